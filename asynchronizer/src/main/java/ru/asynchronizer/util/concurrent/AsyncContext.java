@@ -1,42 +1,94 @@
 package ru.asynchronizer.util.concurrent;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import ru.asynchronizer.util.IDisposable;
 
+/**
+ * Keeps the context of a thread in a thread local variable.
+ *
+ * <p>
+ * A thread gets the variable only while it has a non-empty context, e.g. while it executes a task
+ * passed with a context, so an idle pooled thread or a virtual thread which has not set any properties
+ * does not hold any context data.
+ */
 final class AsyncContext implements IAsyncContext, IDisposable {
 
+    private static final IDisposable NO_SWITCH = () -> { };
+
     private final ThreadLocal<AsyncContextData> context;
     private final Collection<IAsyncContextObserver> observers;
+    private final AsyncContextCapture emptyCapture;
 
 
     public AsyncContext() {
         this.context = new ThreadLocal<>();
         this.observers = new CopyOnWriteArrayList<>();
+        this.emptyCapture = new AsyncContextCapture(AsyncContextSnapshot.EMPTY);
     }
 
 
     @Override
     public IAsyncContextCapture capture() {
-        return new AsyncContextCapture();
+        var data = context.get();
+
+        if (data == null || data.snapshot == AsyncContextSnapshot.EMPTY) {
+            return emptyCapture;
+        }
+
+        // The capture is reused until the context is changed
+        if (data.capture == null || data.capturedSnapshot != data.snapshot) {
+            data.capture = new AsyncContextCapture(data.snapshot.inherited());
+            data.capturedSnapshot = data.snapshot;
+        }
+
+        return data.capture;
+    }
+
+    /**
+     * Returns a capture of the given snapshot.
+     */
+    IAsyncContextCapture capture(AsyncContextSnapshot snapshot) {
+        return (snapshot == AsyncContextSnapshot.EMPTY) ? emptyCapture : new AsyncContextCapture(snapshot);
+    }
+
+    /**
+     * Returns the snapshot of the given capture, or {@code null} if the capture was not made by an {@link AsyncContext}.
+     */
+    static AsyncContextSnapshot snapshotOf(IAsyncContextCapture capture) {
+        return (capture instanceof AsyncContextCapture) ? ((AsyncContextCapture) capture).snapshot : null;
     }
 
     @Override
     public Object getProperty(String name) {
-        return getData().getProperty(name);
+        return snapshot().get(name);
     }
 
     @Override
     public void setProperty(String name, Object value) {
-        if (getData().setProperty(name, value)) {
+        var data = getOrCreateData();
+        var snapshot = data.snapshot.with(name, value);
+
+        if (snapshot != data.snapshot) {
+            data.snapshot = snapshot;
             notifyContextChange(name, value);
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        return (T) snapshot().slot(key.index());
+    }
+
+    @Override
+    public <T> void set(ContextKey<T> key, T value) {
+        var data = getOrCreateData();
+        data.snapshot = data.snapshot.withSlot(key, value);
+    }
+
     @Override
     public IDisposable subscribeToChange(IAsyncContextObserver observer) {
         observers.add(observer);
@@ -49,7 +101,12 @@ final class AsyncContext implements IAsyncContext, IDisposable {
     }
 
 
-    private AsyncContextData getData() {
+    private AsyncContextSnapshot snapshot() {
+        var data = context.get();
+        return (data != null) ? data.snapshot : AsyncContextSnapshot.EMPTY;
+    }
+
+    private AsyncContextData getOrCreateData() {
         var data = context.get();
 
         if (data == null) {
@@ -60,14 +117,9 @@ final class AsyncContext implements IAsyncContext, IDisposable {
         return data;
     }
 
-    private void setData(AsyncContextData data) {
-        if (data == null) {
-            data = new AsyncContextData();
-        }
-
-        context.set(data);
-
-        notifyContextSwitch(data.getProperties());
+    private void setSnapshot(AsyncContextData data, AsyncContextSnapshot snapshot) {
+        data.snapshot = snapshot;
+        notifyContextSwitch(snapshot);
     }
 
 
@@ -86,52 +138,68 @@ final class AsyncContext implements IAsyncContext, IDisposable {
 
     private class AsyncContextCapture implements IAsyncContextCapture {
 
-        private final AsyncContextData data;
+        private final AsyncContextSnapshot snapshot;
 
 
-        AsyncContextCapture() {
-            this.data = new AsyncContextData(getData());
+        AsyncContextCapture(AsyncContextSnapshot snapshot) {
+            this.snapshot = snapshot;
         }
 
 
         @Override
         public void copyTo(Map<String, Object> destination) {
-            destination.putAll(data.getProperties());
+            snapshot.forEach(destination::put);
         }
 
         @Override
         public IDisposable use() {
-            var currentData = getData();
-            setData(data);
-            return () -> setData(currentData);
+            var data = context.get();
+            var currentSnapshot = (data != null) ? data.snapshot : AsyncContextSnapshot.EMPTY;
+
+            // The thread already has the same context, so the observers are not notified,
+            // but the changes made within the scope are still undone
+            if (currentSnapshot == snapshot) {
+                if (data == null) {
+                    return () -> {
+                        if (context.get() != null) {
+                            context.remove();
+                            notifyContextSwitch(AsyncContextSnapshot.EMPTY);
+                        }
+                    };
+                }
+
+                return () -> {
+                    if (data.snapshot != snapshot) {
+                        setSnapshot(data, snapshot);
+                    }
+                };
+            }
+
+            if (data == null) {
+                var newData = getOrCreateData();
+                setSnapshot(newData, snapshot);
+
+                // The thread had no context, so do not keep the data after the task
+                return () -> {
+                    context.remove();
+                    notifyContextSwitch(AsyncContextSnapshot.EMPTY);
+                };
+            }
+
+            setSnapshot(data, snapshot);
+
+            return () -> setSnapshot(data, currentSnapshot);
         }
     }
 
 
+    /**
+     * The context of the thread. The snapshot is immutable, so it is captured by reference.
+     */
     private static class AsyncContextData {
 
-        private final Map<String, Object> properties;
-
-
-        AsyncContextData() {
-            this.properties = new HashMap<>();
-        }
-
-        AsyncContextData(AsyncContextData other) {
-            this.properties = new HashMap<>(other.properties);
-        }
-
-
-        public Map<String, Object> getProperties() {
-            return properties;
-        }
-
-        public Object getProperty(String name) {
-            return properties.get(name);
-        }
-
-        public boolean setProperty(String name, Object value) {
-            return !Objects.equals(value, properties.put(name, value));
-        }
+        private AsyncContextSnapshot snapshot = AsyncContextSnapshot.EMPTY;
+        private AsyncContextSnapshot capturedSnapshot;
+        private AsyncContextCapture capture;
     }
 }
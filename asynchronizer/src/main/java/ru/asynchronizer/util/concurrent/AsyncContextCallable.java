@@ -1,18 +1,55 @@
 package ru.asynchronizer.util.concurrent;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 
 final class AsyncContextCallable<T> implements Callable<T>, IPriorityTask {
 
     private final Callable<T> target;
     private final IAsyncContextCapture parentContext;
     private final IUncaughtExceptionHandler exceptionHandler;
+    private final CancellationToken cancellationToken;
+    private final IAsyncContext context;
+    private final Span span;
+    private final ExecutorMetrics metrics;
+    private final TaskDecoratorChain decorators;
+    private final Object[] decoratorStates;
+    private final long submitTime;
 
 
     public AsyncContextCallable(Callable<T> target, IAsyncContext context, IUncaughtExceptionHandler exceptionHandler) {
+        this(target, context, exceptionHandler, null, TaskDecoratorChain.EMPTY);
+    }
+
+    /**
+     * @param metrics the metrics of the executor, or {@code null} if they are not collected
+     * @param decorators the decorators applied to the task
+     */
+    AsyncContextCallable(Callable<T> target, IAsyncContext context, IUncaughtExceptionHandler exceptionHandler, ExecutorMetrics metrics, TaskDecoratorChain decorators) {
+        this(target, context, exceptionHandler, metrics, decorators, System.nanoTime());
+    }
+
+    /**
+     * @param metrics the metrics of the executor, or {@code null} if they are not collected
+     * @param decorators the decorators applied to the task
+     * @param submitTime the value of {@link System#nanoTime()} since which the task waits in the queue,
+     * e.g. the trigger time of a scheduled task
+     */
+    AsyncContextCallable(Callable<T> target, IAsyncContext context, IUncaughtExceptionHandler exceptionHandler, ExecutorMetrics metrics, TaskDecoratorChain decorators, long submitTime) {
         this.target = target;
         this.parentContext = context.capture();
         this.exceptionHandler = exceptionHandler;
+        this.cancellationToken = context.cancellationToken();
+        this.context = context;
+        this.submitTime = submitTime;
+        this.span = AsyncTracer.newChildSpan(context, target, Span.Kind.TASK, submitTime);
+        this.metrics = metrics;
+        this.decorators = decorators;
+        this.decoratorStates = decorators.onSubmit(target);
+
+        if (metrics != null) {
+            metrics.taskSubmitted();
+        }
     }
 
 
@@ -23,11 +60,70 @@ final class AsyncContextCallable<T> implements Callable<T>, IPriorityTask {
 
     @Override
     public T call() throws Exception {
+        // The task is skipped, its future reports the cancellation
+        try {
+            cancellationToken.throwIfCancelled();
+        } catch (CancellationException e) {
+            skip(e);
+            throw e;
+        }
+
+        var startTime = (metrics != null) ? metrics.taskStarted(submitTime) : 0;
+        var success = false;
+
         try (var ignored = parentContext.use()) {
-            return target.call();
+            T result;
+
+            if (span == null) {
+                result = callTarget();
+            } else {
+                try (var ignoredSpan = span.begin(context)) {
+                    result = callTarget();
+                }
+            }
+
+            success = true;
+            return result;
         } catch (RuntimeException e) {
             exceptionHandler.handle(e);
             throw e;
+        } finally {
+            if (metrics != null) {
+                metrics.taskEnded(startTime, success);
+            }
+        }
+    }
+
+    /**
+     * Notifies the decorators and the metrics about the task which is skipped since it is cancelled.
+     */
+    private void skip(CancellationException error) {
+        if (decoratorStates != null) {
+            try (var ignored = parentContext.use()) {
+                decorators.afterRun(decoratorStates, error);
+            }
+        }
+
+        if (metrics != null) {
+            metrics.taskSkipped();
+        }
+    }
+
+    private T callTarget() throws Exception {
+        if (decoratorStates == null) {
+            return target.call();
+        }
+
+        Throwable error = null;
+        decorators.beforeRun(decoratorStates);
+
+        try {
+            return target.call();
+        } catch (Exception | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            decorators.afterRun(decoratorStates, error);
         }
     }
 }
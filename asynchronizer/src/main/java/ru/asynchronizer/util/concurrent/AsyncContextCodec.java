@@ -0,0 +1,295 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encodes the context properties to a compact binary form to pass the context to another process,
+ * for example, in a message header.
+ *
+ * <p>
+ * Only the properties from the list given on creation are propagated. A property is encoded by its
+ * position in the list rather than by its name, so both processes must use the same list. New properties
+ * must be added to the end of the list: the properties unknown to the receiver are skipped.
+ *
+ * <p>
+ * The supported value types are {@link String}, {@link Boolean}, {@link Integer}, {@link Long},
+ * {@link Double} and {@link UUID}. Integers are encoded as variable-length numbers, so small values take
+ * a single byte.
+ *
+ * <pre>{@code
+ * var codec = new AsyncContextCodec(List.of("userId", "requestId"));
+ *
+ * // The sender
+ * codec.encode(Asynchronizer.context().capture(), buffer);
+ *
+ * // The receiver
+ * try (var ignored = codec.decode(buffer).use()) {
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class AsyncContextCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte UUID_VALUE = 7;
+
+    private final AsyncContext context;
+    private final String[] properties;
+
+
+    /**
+     * Creates a codec of the {@linkplain Asynchronizer#context() application context}.
+     *
+     * @param properties the names of the propagated properties
+     */
+    public AsyncContextCodec(List<String> properties) {
+        this(Asynchronizer.context(), properties);
+    }
+
+    /**
+     * Creates a codec of the given context.
+     *
+     * @param context the context
+     * @param properties the names of the propagated properties
+     */
+    public AsyncContextCodec(IAsyncContext context, List<String> properties) {
+        if (!(context instanceof AsyncContext)) {
+            throw new IllegalArgumentException("The context is not supported: " + context + ".");
+        }
+
+        this.context = (AsyncContext) context;
+        this.properties = properties.toArray(new String[0]);
+    }
+
+
+    /**
+     * Writes the propagated properties of the given capture to the buffer starting from its current position.
+     *
+     * @return the number of written bytes
+     *
+     * @throws BufferOverflowException if there is insufficient space in the buffer, the buffer position is undefined then
+     * @throws IllegalArgumentException if a property value cannot be encoded
+     */
+    public int encode(IAsyncContextCapture capture, ByteBuffer buffer) {
+        Map<String, Object> values = AsyncContext.snapshotOf(capture);
+
+        if (values == null) {
+            values = new HashMap<>();
+            capture.copyTo(values);
+        }
+
+        var start = buffer.position();
+
+        buffer.put(VERSION);
+
+        if (!values.isEmpty()) {
+            for (var i = 0; i < properties.length; i++) {
+                var value = values.get(properties[i]);
+
+                if (value != null) {
+                    putVarint(buffer, i + 1);
+                    putValue(buffer, properties[i], value);
+                }
+            }
+        }
+
+        // The zero id marks the end of the properties
+        buffer.put((byte) 0);
+
+        return buffer.position() - start;
+    }
+
+    /**
+     * Reads the properties from the buffer starting from its current position.
+     *
+     * @return the capture of the context with the read properties
+     *
+     * @throws IllegalArgumentException if the data is malformed
+     */
+    public IAsyncContextCapture decode(ByteBuffer buffer) {
+        try {
+            var version = buffer.get();
+
+            if (version != VERSION) {
+                throw new IllegalArgumentException("The version is not supported: " + version + ".");
+            }
+
+            var snapshot = AsyncContextSnapshot.EMPTY;
+
+            while (true) {
+                var id = getVarint(buffer);
+
+                if (id == 0) {
+                    break;
+                }
+
+                if (id < 0) {
+                    throw new IllegalArgumentException("The property id is malformed: " + id + ".");
+                }
+
+                var value = getValue(buffer);
+
+                // The property unknown to this side is skipped
+                if (id <= properties.length) {
+                    snapshot = snapshot.with(properties[(int) id - 1], value);
+                }
+            }
+
+            return context.capture(snapshot);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The data is truncated.", e);
+        }
+    }
+
+
+    private static void putValue(ByteBuffer buffer, String property, Object value) {
+        if (value instanceof String) {
+            buffer.put(STRING);
+            putString(buffer, (String) value);
+        } else if (value instanceof Boolean) {
+            buffer.put((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer) {
+            buffer.put(INTEGER);
+            putVarint(buffer, zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            buffer.put(LONG);
+            putVarint(buffer, zigZag((Long) value));
+        } else if (value instanceof Double) {
+            buffer.put(DOUBLE);
+            buffer.putDouble((Double) value);
+        } else if (value instanceof UUID) {
+            buffer.put(UUID_VALUE);
+            buffer.putLong(((UUID) value).getMostSignificantBits());
+            buffer.putLong(((UUID) value).getLeastSignificantBits());
+        } else {
+            throw new IllegalArgumentException("The value of the property '" + property + "' cannot be encoded: " + value.getClass().getName() + ".");
+        }
+    }
+
+    private static Object getValue(ByteBuffer buffer) {
+        var type = buffer.get();
+
+        switch (type) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INTEGER:
+                return getInt(buffer);
+            case LONG:
+                return unZigZag(getVarint(buffer));
+            case DOUBLE:
+                return buffer.getDouble();
+            case STRING:
+                return getString(buffer);
+            case UUID_VALUE:
+                return new UUID(buffer.getLong(), buffer.getLong());
+            default:
+                throw new IllegalArgumentException("The value type is not supported: " + type + ".");
+        }
+    }
+
+    private static int getInt(ByteBuffer buffer) {
+        var value = unZigZag(getVarint(buffer));
+
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The integer is out of range: " + value + ".");
+        }
+
+        return (int) value;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        var length = value.length();
+        var ascii = true;
+
+        for (var i = 0; i < length && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+
+        // The ASCII string is written without an intermediate byte array
+        if (ascii) {
+            putVarint(buffer, length);
+
+            if (buffer.remaining() < length) {
+                throw new BufferOverflowException();
+            }
+
+            for (var i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        var length = getVarint(buffer);
+
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        if (buffer.hasArray()) {
+            var value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), (int) length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + (int) length);
+            return value;
+        }
+
+        var bytes = new byte[(int) length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    private static long getVarint(ByteBuffer buffer) {
+        var value = 0L;
+
+        for (var shift = 0; shift < 64; shift += 7) {
+            var b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("The number is malformed.");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.*;
 
 import ru.asynchronizer.util.IDisposable;
@@ -19,25 +20,43 @@ final class AsyncContextExecutorService extends DelegatedExecutorService impleme
     private final IAsyncContext context;
     private final ShutdownAction shutdownAction;
     private final IUncaughtExceptionHandler exceptionHandler;
+    private final ExecutorMetrics metrics;
+    private final Supplier<TaskDecoratorChain> decorators;
 
 
-    public AsyncContextExecutorService(ExecutorService target, Class<?> owner, IAsyncContext context, ShutdownAction shutdownAction, IUncaughtExceptionHandler exceptionHandler) {
+    public AsyncContextExecutorService(ExecutorService target, Class<?> owner, IAsyncContext context, ShutdownAction shutdownAction, IUncaughtExceptionHandler exceptionHandler, ExecutorMetrics metrics, Supplier<TaskDecoratorChain> decorators) {
         super(target);
         this.owner = owner;
         this.context = context;
         this.exceptionHandler = exceptionHandler;
+        this.metrics = metrics;
+        this.decorators = decorators;
         this.shutdownAction = shutdownAction;
     }
 
 
+    /**
+     * Returns the metrics of the executor.
+     */
+    ExecutorMetrics metrics() {
+        return metrics;
+    }
+
+
     @Override
     protected Runnable wrapTask(Runnable task) {
-        return new AsyncContextRunnable(task, context, exceptionHandler);
+        return new AsyncContextRunnable(task, context, exceptionHandler, false, metrics, decorators.get());
+    }
+
+    @Override
+    protected Runnable wrapSubmittedTask(Runnable task) {
+        // The returned future reports the task skipped because of the cancellation
+        return new AsyncContextRunnable(task, context, exceptionHandler, true, metrics, decorators.get());
     }
 
     @Override
     protected <T> Callable<T> wrapTask(Callable<T> task) {
-        return new AsyncContextCallable<>(task, context, exceptionHandler);
+        return new AsyncContextCallable<>(task, context, exceptionHandler, metrics, decorators.get());
     }
 
 
@@ -5,23 +5,39 @@ import java.util.Map;
 import java.util.Objects;
 
 import org.slf4j.MDC;
+import org.slf4j.spi.MDCAdapter;
 
 import ru.asynchronizer.util.IDisposable;
 
+/**
+ * Puts the context properties to the {@link MDC}.
+ *
+ * <p>
+ * The adapter remembers which properties it has put to the MDC of each thread and updates only those which
+ * have changed. So the properties must be removed from the MDC only by the adapter: if the MDC is cleared
+ * or replaced with {@link MDC#clear()} or {@link MDC#setContextMap(Map)}, the properties which the adapter
+ * has put before are not restored until their values change.
+ */
 public final class AsyncContextMdcAdapter implements IDisposable {
 
     private final IAsyncContext context;
+    private final MDCAdapter mdc;
 
     private IDisposable contextSubscription;
 
 
     public AsyncContextMdcAdapter(IAsyncContext context) {
+        this(context, MDC.getMDCAdapter());
+    }
+
+    AsyncContextMdcAdapter(IAsyncContext context, MDCAdapter mdc) {
         this.context = context;
+        this.mdc = mdc;
     }
 
 
     public void run() {
-        contextSubscription = context.subscribeToChange(new MdcAsyncContextObserver());
+        contextSubscription = context.subscribeToChange(new MdcAsyncContextObserver(mdc));
     }
 
     @Override
@@ -36,18 +52,108 @@ public final class AsyncContextMdcAdapter implements IDisposable {
     }
 
 
-    private static class MdcAsyncContextObserver implements IAsyncContextObserver {
+    /**
+     * Keeps the MDC of each thread in sync with the context properties.
+     *
+     * <p>
+     * The observer remembers which property values it has put to the MDC of the thread, so switching
+     * the context updates only the properties which differ, and switching to the context which has
+     * been applied last does nothing at all. Switching to the empty context removes only the properties
+     * put by the observer, and the state is kept for the next task of a pooled thread. A thread which
+     * has never had a context gets no state.
+     */
+    static class MdcAsyncContextObserver implements IAsyncContextObserver {
+
+        private final MDCAdapter mdc;
+        final ThreadLocal<MdcState> state;
+
+
+        MdcAsyncContextObserver(MDCAdapter mdc) {
+            this.mdc = mdc;
+            this.state = new ThreadLocal<>();
+        }
+
 
         @Override
         public void contextChange(String name, Object value) {
-            MDC.put(name, Objects.toString(value, ""));
+            var threadState = getOrCreateState();
+            threadState.put(name, value);
+            // The context is not the one which has been applied anymore
+            threadState.appliedContext = null;
         }
 
         @Override
         public void contextSwitch(Map<String, Object> context) {
-            var contextMap = new HashMap<String, String>(context.size());
-            context.forEach((p, v) -> contextMap.put(p, Objects.toString(v, "")));
-            MDC.setContextMap(contextMap);
+            var threadState = context.isEmpty() ? state.get() : getOrCreateState();
+
+            if (threadState == null || threadState.appliedContext == context) {
+                return;
+            }
+
+            if (context.isEmpty()) {
+                threadState.removeAbsent(context);
+                threadState.appliedContext = context;
+                return;
+            }
+
+            context.forEach(threadState::put);
+
+            if (threadState.values.size() > context.size()) {
+                threadState.removeAbsent(context);
+            }
+
+            threadState.appliedContext = context;
+        }
+
+
+        private MdcState getOrCreateState() {
+            var threadState = state.get();
+
+            if (threadState == null) {
+                threadState = new MdcState(mdc);
+                state.set(threadState);
+            }
+
+            return threadState;
+        }
+    }
+
+
+    /**
+     * The properties put to the MDC of a thread.
+     */
+    static class MdcState {
+
+        private final MDCAdapter mdc;
+        private final Map<String, Object> values = new HashMap<>();
+        private Map<String, Object> appliedContext;
+
+
+        MdcState(MDCAdapter mdc) {
+            this.mdc = mdc;
+        }
+
+
+        void put(String name, Object value) {
+            var previousValue = values.get(name);
+
+            if (previousValue != value || (value == null && !values.containsKey(name))) {
+                values.put(name, value);
+                mdc.put(name, Objects.toString(value, ""));
+            }
+        }
+
+        void removeAbsent(Map<String, Object> context) {
+            var iterator = values.keySet().iterator();
+
+            while (iterator.hasNext()) {
+                var name = iterator.next();
+
+                if (!context.containsKey(name)) {
+                    iterator.remove();
+                    mdc.remove(name);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,73 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The {@link RecursiveTask} analogue which keeps {@linkplain IAsyncContext the async context}.
+ *
+ * <p>
+ * A forked subtask can be stolen and executed by any thread of the pool, so it does not see the context
+ * of the task which has forked it. This task captures the context when it is created, i.e. in the thread
+ * which forks it, and uses that context while {@link #compute()} is executed.
+ *
+ * <pre>{@code
+ * class SumTask extends AsyncContextRecursiveTask<Long> {
+ *
+ *     protected Long compute() {
+ *         if (small) {
+ *             return sum(); // the context of the parent task is available here
+ *         }
+ *
+ *         var left = new SumTask(leftHalf);
+ *         left.fork();
+ *         return new SumTask(rightHalf).compute() + left.join();
+ *     }
+ * }
+ * }</pre>
+ *
+ * @param <V> the type of the result of the task
+ */
+public abstract class AsyncContextRecursiveTask<V> extends ForkJoinTask<V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final IAsyncContextCapture parentContext;
+    private V result;
+
+
+    protected AsyncContextRecursiveTask() {
+        this(Asynchronizer.context());
+    }
+
+    protected AsyncContextRecursiveTask(IAsyncContext context) {
+        this.parentContext = context.capture();
+    }
+
+
+    /**
+     * The main computation performed by this task.
+     *
+     * @return the result of the computation
+     */
+    protected abstract V compute();
+
+
+    @Override
+    public final V getRawResult() {
+        return result;
+    }
+
+    @Override
+    protected final void setRawResult(V value) {
+        result = value;
+    }
+
+    @Override
+    protected final boolean exec() {
+        try (var ignored = parentContext.use()) {
+            result = compute();
+            return true;
+        }
+    }
+}
@@ -1,16 +1,66 @@
 package ru.asynchronizer.util.concurrent;
 
+import java.util.concurrent.CancellationException;
+
 final class AsyncContextRunnable implements Runnable, IPriorityTask {
 
     private final Runnable target;
     private final IAsyncContextCapture parentContext;
     private final IUncaughtExceptionHandler exceptionHandler;
+    private final CancellationToken cancellationToken;
+    private final IAsyncContext context;
+    private final Span span;
+    private final ExecutorMetrics metrics;
+    private final TaskDecoratorChain decorators;
+    private final Object[] decoratorStates;
+    private long submitTime;
 
 
     public AsyncContextRunnable(Runnable target, IAsyncContext context, IUncaughtExceptionHandler exceptionHandler) {
+        this(target, context, exceptionHandler, false);
+    }
+
+    /**
+     * @param cancellable if {@code true}, the task is skipped with a {@link java.util.concurrent.CancellationException}
+     * in case the {@linkplain IAsyncContext#cancellationToken() cancellation token} of the parent context is cancelled
+     */
+    public AsyncContextRunnable(Runnable target, IAsyncContext context, IUncaughtExceptionHandler exceptionHandler, boolean cancellable) {
+        this(target, context, exceptionHandler, cancellable, null, TaskDecoratorChain.EMPTY);
+    }
+
+    /**
+     * @param cancellable if {@code true}, the task is skipped with a {@link java.util.concurrent.CancellationException}
+     * in case the {@linkplain IAsyncContext#cancellationToken() cancellation token} of the parent context is cancelled
+     * @param metrics the metrics of the executor, or {@code null} if they are not collected
+     * @param decorators the decorators applied to the task
+     */
+    AsyncContextRunnable(Runnable target, IAsyncContext context, IUncaughtExceptionHandler exceptionHandler, boolean cancellable, ExecutorMetrics metrics, TaskDecoratorChain decorators) {
+        this(target, context, exceptionHandler, cancellable, metrics, decorators, System.nanoTime());
+    }
+
+    /**
+     * @param cancellable if {@code true}, the task is skipped with a {@link java.util.concurrent.CancellationException}
+     * in case the {@linkplain IAsyncContext#cancellationToken() cancellation token} of the parent context is cancelled
+     * @param metrics the metrics of the executor, or {@code null} if they are not collected
+     * @param decorators the decorators applied to the task
+     * @param submitTime the value of {@link System#nanoTime()} since which the task waits in the queue,
+     * e.g. the trigger time of a scheduled task
+     */
+    AsyncContextRunnable(Runnable target, IAsyncContext context, IUncaughtExceptionHandler exceptionHandler, boolean cancellable, ExecutorMetrics metrics, TaskDecoratorChain decorators, long submitTime) {
         this.target = target;
         this.parentContext = context.capture();
         this.exceptionHandler = exceptionHandler;
+        this.cancellationToken = cancellable ? context.cancellationToken() : CancellationToken.NONE;
+        this.context = context;
+        this.submitTime = submitTime;
+        this.span = AsyncTracer.newChildSpan(context, target, Span.Kind.TASK, submitTime);
+        this.metrics = metrics;
+        this.decorators = decorators;
+        this.decoratorStates = decorators.onSubmit(target);
+
+        if (metrics != null) {
+            metrics.taskSubmitted();
+        }
     }
 
 
@@ -21,11 +71,72 @@ final class AsyncContextRunnable implements Runnable, IPriorityTask {
 
     @Override
     public void run() {
+        try {
+            cancellationToken.throwIfCancelled();
+        } catch (CancellationException e) {
+            skip(e);
+            throw e;
+        }
+
+        var startTime = (metrics != null) ? metrics.taskStarted(submitTime) : 0;
+        var success = false;
+
+        // A span records a single run, so each next run of a periodic task gets a new one
+        var runSpan = (span != null && submitTime == 0) ? span.nextRun(System.nanoTime()) : span;
+
+        // A periodic task waits in the queue only before the first run
+        submitTime = 0;
+
         try (var ignored = parentContext.use()) {
-            target.run();
+            if (runSpan == null) {
+                runTarget();
+            } else {
+                try (var ignoredSpan = runSpan.begin(context)) {
+                    runTarget();
+                }
+            }
+            success = true;
         } catch (RuntimeException e) {
             exceptionHandler.handle(e);
             throw e;
+        } finally {
+            if (metrics != null) {
+                metrics.taskEnded(startTime, success);
+            }
+        }
+    }
+
+    /**
+     * Notifies the decorators and the metrics about the task which is skipped since it is cancelled.
+     */
+    private void skip(CancellationException error) {
+        if (decoratorStates != null) {
+            try (var ignored = parentContext.use()) {
+                decorators.afterRun(decoratorStates, error);
+            }
+        }
+
+        if (metrics != null) {
+            metrics.taskSkipped();
+        }
+    }
+
+    private void runTarget() {
+        if (decoratorStates == null) {
+            target.run();
+            return;
+        }
+
+        Throwable error = null;
+        decorators.beforeRun(decoratorStates);
+
+        try {
+            target.run();
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            decorators.afterRun(decoratorStates, error);
         }
     }
 }
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.*;
 
 import ru.asynchronizer.util.IDisposable;
@@ -19,25 +20,54 @@ final class AsyncContextScheduledExecutorService extends DelegatedScheduledExecu
     private final IAsyncContext context;
     private final ShutdownAction shutdownAction;
     private final IUncaughtExceptionHandler exceptionHandler;
+    private final ExecutorMetrics metrics;
+    private final Supplier<TaskDecoratorChain> decorators;
 
 
-    public AsyncContextScheduledExecutorService(ScheduledExecutorService target, Class<?> owner, IAsyncContext context, ShutdownAction shutdownAction, IUncaughtExceptionHandler exceptionHandler) {
+    public AsyncContextScheduledExecutorService(ScheduledExecutorService target, Class<?> owner, IAsyncContext context, ShutdownAction shutdownAction, IUncaughtExceptionHandler exceptionHandler, ExecutorMetrics metrics, Supplier<TaskDecoratorChain> decorators) {
         super(target);
         this.owner = owner;
         this.context = context;
         this.shutdownAction = shutdownAction;
         this.exceptionHandler = exceptionHandler;
+        this.metrics = metrics;
+        this.decorators = decorators;
+    }
+
+
+    /**
+     * Returns the metrics of the executor.
+     */
+    ExecutorMetrics metrics() {
+        return metrics;
     }
 
 
     @Override
     protected Runnable wrapTask(Runnable task) {
-        return new AsyncContextRunnable(task, context, exceptionHandler);
+        return new AsyncContextRunnable(task, context, exceptionHandler, false, metrics, decorators.get());
+    }
+
+    @Override
+    protected Runnable wrapSubmittedTask(Runnable task) {
+        // The returned future reports the task skipped because of the cancellation
+        return new AsyncContextRunnable(task, context, exceptionHandler, true, metrics, decorators.get());
     }
 
     @Override
     protected <T> Callable<T> wrapTask(Callable<T> task) {
-        return new AsyncContextCallable<>(task, context, exceptionHandler);
+        return new AsyncContextCallable<>(task, context, exceptionHandler, metrics, decorators.get());
+    }
+
+    @Override
+    protected Runnable wrapScheduledTask(Runnable task, long delay, TimeUnit unit) {
+        // The task starts waiting in the queue when it is due, not when it is scheduled
+        return new AsyncContextRunnable(task, context, exceptionHandler, true, metrics, decorators.get(), triggerTime(delay, unit));
+    }
+
+    @Override
+    protected <T> Callable<T> wrapScheduledTask(Callable<T> task, long delay, TimeUnit unit) {
+        return new AsyncContextCallable<>(task, context, exceptionHandler, metrics, decorators.get(), triggerTime(delay, unit));
     }
 
 
@@ -95,6 +125,11 @@ final class AsyncContextScheduledExecutorService extends DelegatedScheduledExecu
     }
 
 
+    private static long triggerTime(long delay, TimeUnit unit) {
+        return System.nanoTime() + unit.toNanos(Math.max(delay, 0));
+    }
+
+
     interface ShutdownAction {
 
         boolean invoke(AsyncContextScheduledExecutorService executor);
@@ -0,0 +1,383 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The immutable persistent map of the {@link AsyncContext} properties.
+ *
+ * <p>
+ * Capturing the context is just copying a reference to its snapshot, and setting a property creates a new
+ * snapshot sharing the most of its structure with the previous one. Small snapshots are stored as an array
+ * of keys and values; large ones are stored as a hash array mapped trie.
+ *
+ * <p>
+ * Values of {@link ContextKey}s are stored separately, in the slots indexed by the keys,
+ * and are not exposed as the map entries.
+ */
+final class AsyncContextSnapshot extends AbstractMap<String, Object> {
+
+    /**
+     * The empty snapshot which is shared by all the threads having no context.
+     */
+    static final AsyncContextSnapshot EMPTY = new AsyncContextSnapshot(new Object[0], null, 0, new Object[0], 0);
+
+    private static final int MAX_ARRAY_SIZE = 8;
+    private static final Object ABSENT = new Object();
+
+    private final Object[] entries;
+    private final TrieNode root;
+    private final int size;
+    private final Object[] slots;
+    private final int localSlots;
+
+
+    private AsyncContextSnapshot(Object[] entries, TrieNode root, int size, Object[] slots, int localSlots) {
+        this.entries = entries;
+        this.root = root;
+        this.size = size;
+        this.slots = slots;
+        this.localSlots = localSlots;
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof String) && find((String) key) != ABSENT;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        var value = find((String) key);
+        return (value != ABSENT) ? value : null;
+    }
+
+    /**
+     * Returns a snapshot with the given property value, or this snapshot if the property already has an equal value.
+     */
+    AsyncContextSnapshot with(String key, Object value) {
+        Objects.requireNonNull(key);
+
+        if (root == null) {
+            return withInArray(key, value);
+        }
+
+        // The absent property is considered as null
+        if (value == null && find(key) == ABSENT) {
+            return this;
+        }
+
+        var added = new boolean[1];
+        var newRoot = root.with(0, key.hashCode(), key, value, added);
+
+        if (newRoot == root) {
+            return this;
+        }
+
+        return new AsyncContextSnapshot(null, newRoot, added[0] ? size + 1 : size, slots, localSlots);
+    }
+
+    private AsyncContextSnapshot withInArray(String key, Object value) {
+        for (var i = 0; i < entries.length; i += 2) {
+            if (key.equals(entries[i])) {
+                if (Objects.equals(value, entries[i + 1])) {
+                    return this;
+                }
+
+                var newEntries = entries.clone();
+                newEntries[i + 1] = value;
+
+                return new AsyncContextSnapshot(newEntries, null, size, slots, localSlots);
+            }
+        }
+
+        // The absent property is considered as null
+        if (value == null) {
+            return this;
+        }
+
+        if (size < MAX_ARRAY_SIZE) {
+            var newEntries = new Object[entries.length + 2];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            newEntries[entries.length] = key;
+            newEntries[entries.length + 1] = value;
+
+            return new AsyncContextSnapshot(newEntries, null, size + 1, slots, localSlots);
+        }
+
+        // The array is full, so move to the trie
+        var added = new boolean[1];
+        var newRoot = TrieNode.EMPTY;
+
+        for (var i = 0; i < entries.length; i += 2) {
+            var entryKey = (String) entries[i];
+            newRoot = newRoot.with(0, entryKey.hashCode(), entryKey, entries[i + 1], added);
+        }
+
+        newRoot = newRoot.with(0, key.hashCode(), key, value, added);
+
+        return new AsyncContextSnapshot(null, newRoot, size + 1, slots, localSlots);
+    }
+
+    /**
+     * Returns the value of the key.
+     */
+    Object slot(int index) {
+        return (index < slots.length) ? slots[index] : null;
+    }
+
+    /**
+     * Returns a snapshot with the given value of the key, or this snapshot if the key already has an equal value.
+     */
+    AsyncContextSnapshot withSlot(ContextKey<?> key, Object value) {
+        var index = key.index();
+        var previousValue = slot(index);
+
+        if (Objects.equals(value, previousValue)) {
+            return this;
+        }
+
+        var newSlots = Arrays.copyOf(slots, Math.max(slots.length, index + 1));
+        newSlots[index] = value;
+
+        var newLocalSlots = localSlots;
+
+        if (key.inheritance() == ContextKey.Inheritance.CLEAR) {
+            newLocalSlots += (previousValue == null) ? 1 : (value == null) ? -1 : 0;
+        }
+
+        return new AsyncContextSnapshot(entries, root, size, newSlots, newLocalSlots);
+    }
+
+    /**
+     * Returns a snapshot to pass to asynchronous tasks, i.e. without the values of the keys
+     * which are not inherited.
+     */
+    AsyncContextSnapshot inherited() {
+        if (localSlots == 0) {
+            return this;
+        }
+
+        var newSlots = slots.clone();
+
+        for (var i = 0; i < newSlots.length; i++) {
+            if (newSlots[i] != null && ContextKey.byIndex(i).inheritance() == ContextKey.Inheritance.CLEAR) {
+                newSlots[i] = null;
+            }
+        }
+
+        return new AsyncContextSnapshot(entries, root, size, newSlots, 0);
+    }
+
+    /**
+     * Returns the property value or {@link #ABSENT} if there is no such a property.
+     */
+    private Object find(String key) {
+        if (root != null) {
+            return root.find(0, key.hashCode(), key);
+        }
+
+        for (var i = 0; i < entries.length; i += 2) {
+            if (key.equals(entries[i])) {
+                return entries[i + 1];
+            }
+        }
+
+        return ABSENT;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        if (root != null) {
+            root.forEach(action);
+            return;
+        }
+
+        for (var i = 0; i < entries.length; i += 2) {
+            action.accept((String) entries[i], entries[i + 1]);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                var list = new ArrayList<Entry<String, Object>>(size);
+                AsyncContextSnapshot.this.forEach((k, v) -> list.add(new SimpleImmutableEntry<>(k, v)));
+                return list.iterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+
+    /**
+     * The node of the hash array mapped trie.
+     *
+     * <p>
+     * The array contains a pair for each bit set in the bitmap: either a key and its value,
+     * or {@code null} and the child node. A node which keys have the same hash contains
+     * key-value pairs only and has no bitmap.
+     */
+    private static final class TrieNode {
+
+        static final TrieNode EMPTY = new TrieNode(0, new Object[0], false);
+
+        private static final int BITS = 5;
+        private static final int MASK = (1 << BITS) - 1;
+
+        private final int bitmap;
+        private final Object[] array;
+        private final boolean collision;
+
+
+        TrieNode(int bitmap, Object[] array, boolean collision) {
+            this.bitmap = bitmap;
+            this.array = array;
+            this.collision = collision;
+        }
+
+
+        Object find(int shift, int hash, String key) {
+            var node = this;
+
+            while (true) {
+                if (node.collision) {
+                    for (var i = 0; i < node.array.length; i += 2) {
+                        if (key.equals(node.array[i])) {
+                            return node.array[i + 1];
+                        }
+                    }
+
+                    return ABSENT;
+                }
+
+                var bit = 1 << ((hash >>> shift) & MASK);
+
+                if ((node.bitmap & bit) == 0) {
+                    return ABSENT;
+                }
+
+                var index = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+                var entryKey = node.array[index];
+
+                if (entryKey == null) {
+                    node = (TrieNode) node.array[index + 1];
+                    shift += BITS;
+                } else {
+                    return key.equals(entryKey) ? node.array[index + 1] : ABSENT;
+                }
+            }
+        }
+
+        TrieNode with(int shift, int hash, String key, Object value, boolean[] added) {
+            if (collision) {
+                for (var i = 0; i < array.length; i += 2) {
+                    if (key.equals(array[i])) {
+                        return Objects.equals(value, array[i + 1]) ? this : replace(i + 1, value);
+                    }
+                }
+
+                added[0] = true;
+                return new TrieNode(0, append(array, key, value), true);
+            }
+
+            var bit = 1 << ((hash >>> shift) & MASK);
+            var index = 2 * Integer.bitCount(bitmap & (bit - 1));
+
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+
+                var newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+
+                return new TrieNode(bitmap | bit, newArray, false);
+            }
+
+            var entryKey = array[index];
+            var entryValue = array[index + 1];
+
+            if (entryKey == null) {
+                var child = (TrieNode) entryValue;
+                var newChild = child.with(shift + BITS, hash, key, value, added);
+                return (newChild == child) ? this : replace(index + 1, newChild);
+            }
+
+            if (key.equals(entryKey)) {
+                return Objects.equals(value, entryValue) ? this : replace(index + 1, value);
+            }
+
+            // Both keys fall into the same slot, so push them down
+            added[0] = true;
+
+            var child = split(shift + BITS, (String) entryKey, entryValue, hash, key, value);
+            var newArray = array.clone();
+            newArray[index] = null;
+            newArray[index + 1] = child;
+
+            return new TrieNode(bitmap, newArray, false);
+        }
+
+        private static TrieNode split(int shift, String key1, Object value1, int hash2, String key2, Object value2) {
+            var hash1 = key1.hashCode();
+
+            if (hash1 == hash2) {
+                return new TrieNode(0, new Object[] { key1, value1, key2, value2 }, true);
+            }
+
+            var ignored = new boolean[1];
+
+            return EMPTY
+                    .with(shift, hash1, key1, value1, ignored)
+                    .with(shift, hash2, key2, value2, ignored);
+        }
+
+        private TrieNode replace(int index, Object value) {
+            var newArray = array.clone();
+            newArray[index] = value;
+            return new TrieNode(bitmap, newArray, collision);
+        }
+
+        private static Object[] append(Object[] array, Object key, Object value) {
+            var newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return newArray;
+        }
+
+        void forEach(BiConsumer<? super String, ? super Object> action) {
+            for (var i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((TrieNode) array[i + 1]).forEach(action);
+                } else {
+                    action.accept((String) array[i], array[i + 1]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Traverses the source using the captured context.
+ *
+ * <p>
+ * The stages of a stream pipeline are invoked by the traversal of its source, so all of them get the context,
+ * whichever thread executes that part of a parallel stream.
+ */
+final class AsyncContextSpliterator<T> implements Spliterator<T> {
+
+    private final Spliterator<T> target;
+    private final IAsyncContextCapture parentContext;
+
+
+    public AsyncContextSpliterator(Spliterator<T> target, IAsyncContextCapture parentContext) {
+        this.target = target;
+        this.parentContext = parentContext;
+    }
+
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        try (var ignored = parentContext.use()) {
+            return target.tryAdvance(action);
+        }
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        try (var ignored = parentContext.use()) {
+            target.forEachRemaining(action);
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        var prefix = target.trySplit();
+        return (prefix != null) ? new AsyncContextSpliterator<>(prefix, parentContext) : null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return target.estimateSize();
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        return target.getExactSizeIfKnown();
+    }
+
+    @Override
+    public int characteristics() {
+        return target.characteristics();
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        return target.getComparator();
+    }
+}
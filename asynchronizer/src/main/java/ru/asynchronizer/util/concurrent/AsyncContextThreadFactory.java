@@ -2,31 +2,65 @@ package ru.asynchronizer.util.concurrent;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
-final class AsyncContextThreadFactory implements ThreadFactory {
+final class AsyncContextThreadFactory implements ThreadFactory, ForkJoinPool.ForkJoinWorkerThreadFactory {
 
     private static final Map<Class<?>, AtomicInteger> POOL_NUMBER = new ConcurrentHashMap<>();
 
+    private final int poolNumber;
     private final boolean daemon;
     private final Thread.UncaughtExceptionHandler exceptionHandler;
     private final ThreadGroup threadGroup;
     private final AtomicInteger threadNumber;
     private final String threadNamePrefix;
+    private final ThreadFactory virtualThreadFactory;
 
 
     public AsyncContextThreadFactory(Class<?> owner, boolean daemon, Thread.UncaughtExceptionHandler exceptionHandler) {
-        this.daemon = daemon;
+        this(owner, daemon, false, exceptionHandler);
+    }
+
+    /**
+     * @param virtual if {@code true} and the runtime supports virtual threads, the factory creates virtual threads,
+     * otherwise, platform daemon threads
+     */
+    public AsyncContextThreadFactory(Class<?> owner, boolean daemon, boolean virtual, Thread.UncaughtExceptionHandler exceptionHandler) {
+        this.poolNumber = getPoolNumber(owner);
+        this.daemon = daemon || virtual;
         this.exceptionHandler = exceptionHandler;
         this.threadGroup = Thread.currentThread().getThreadGroup();
         this.threadNumber = new AtomicInteger(1);
-        this.threadNamePrefix = String.format("%s-pool-%d-thread-", owner.getSimpleName(), getPoolNumber(owner));
+        this.threadNamePrefix = String.format("%s-pool-%d-thread-", owner.getSimpleName(), poolNumber);
+        this.virtualThreadFactory = (virtual && VirtualThreadSupport.isSupported())
+                ? VirtualThreadSupport.newThreadFactory(threadNamePrefix, exceptionHandler)
+                : null;
+    }
+
+
+    /**
+     * Returns the number of the pool among the pools of the same owner.
+     */
+    public int poolNumber() {
+        return poolNumber;
     }
 
+    /**
+     * Returns {@code true} if the factory creates virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtualThreadFactory != null;
+    }
 
     @Override
     public Thread newThread(Runnable action) {
+        if (virtualThreadFactory != null) {
+            return virtualThreadFactory.newThread(action);
+        }
+
         var threadName = threadNamePrefix + threadNumber.getAndIncrement();
         var thread = new Thread(threadGroup, action, threadName);
         thread.setDaemon(daemon);
@@ -39,10 +73,28 @@ final class AsyncContextThreadFactory implements ThreadFactory {
         return thread;
     }
 
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        var threadName = threadNamePrefix + threadNumber.getAndIncrement();
+        var thread = new WorkerThread(pool);
+        thread.setName(threadName);
+        thread.setDaemon(daemon);
+        thread.setUncaughtExceptionHandler(exceptionHandler);
+        return thread;
+    }
+
 
     private static int getPoolNumber(Class<?> owner) {
         return POOL_NUMBER.computeIfAbsent(owner,
                         c -> new AtomicInteger(1))
                 .getAndIncrement();
     }
+
+
+    private static final class WorkerThread extends ForkJoinWorkerThread {
+
+        WorkerThread(ForkJoinPool pool) {
+            super(pool);
+        }
+    }
 }
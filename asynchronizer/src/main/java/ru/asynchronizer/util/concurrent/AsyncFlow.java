@@ -7,12 +7,14 @@ final class AsyncFlow implements IAsyncFlow {
 
     private final Executor executor;
     private final AtomicBoolean interrupted;
+    private final CancellationToken cancellationToken;
     private Object result;
 
 
     public AsyncFlow(Executor executor) {
         this.executor = executor;
         this.interrupted = new AtomicBoolean(false);
+        this.cancellationToken = Asynchronizer.context().cancellationToken();
         this.result = null;
     }
 
@@ -33,6 +35,13 @@ final class AsyncFlow implements IAsyncFlow {
         return interrupted.get();
     }
 
+    /**
+     * Returns the cancellation token of the context which has started the pipeline.
+     */
+    public CancellationToken cancellationToken() {
+        return cancellationToken;
+    }
+
     @SuppressWarnings("unchecked")
     public <T> T getResult() {
         return (T) result;
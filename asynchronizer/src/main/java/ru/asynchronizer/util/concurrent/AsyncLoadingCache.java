@@ -0,0 +1,565 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import ru.asynchronizer.util.ObjectRef;
+import ru.asynchronizer.util.function.ThrowableFunction;
+
+/**
+ * Loads values asynchronously and caches them.
+ *
+ * <p>
+ * Values are loaded with the {@link #computeIfAbsentAsync(Object, ThrowableFunction)} method. Only one load
+ * is performed for a key at the same time: all the callers requesting a key which is being loaded await
+ * the same load, but each of them gets its own {@link CompletableFuture} instance. Loads are performed in the given executor, by default
+ * in the {@link Asynchronizer#commonPool()}, so {@linkplain IAsyncContext the async context} is available
+ * for the loader. If the loader fails, the key is not cached and the next request loads it again.
+ *
+ * <p>
+ * The cache can be limited with the maximum number of entries. When the limit is exceeded, entries are
+ * evicted in accordance with the segmented LRU policy: new entries come to the probation segment and move
+ * to the protected segment when they are accessed again, so one-time keys do not push out frequently used ones.
+ *
+ * <p>
+ * Entries can expire after the given time since their value has been loaded. Additionally, entries can be refreshed
+ * after the given time: the stale value is returned immediately, and the new one is loaded in background
+ * (stale-while-revalidate). The refresh time should be less than the expiration time.
+ *
+ * <p>
+ * The cache does not use a background thread: the eviction is performed by the threads using the cache.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ */
+public final class AsyncLoadingCache<K, V> {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = Long.MAX_VALUE;
+
+    private static final double PROTECTED_SEGMENT_RATIO = 0.8;
+    private static final int EXPIRATION_CHECK_LIMIT = 16;
+
+    private final long maximumSize;
+    private final long protectedMaximumSize;
+    private final long expireAfterWrite;
+    private final long refreshAfterWrite;
+    private final Executor executor;
+    private final boolean orderTracked;
+    private final ConcurrentHashMap<K, Node<K, V>> nodes;
+    private final ReentrantLock evictionLock;
+    private final Node<K, V> probationSegment;
+    private final Node<K, V> protectedSegment;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder loadSuccessCount;
+    private final LongAdder loadFailureCount;
+    private final LongAdder evictionCount;
+
+    // Guarded by the eviction lock
+    private long size;
+    private long protectedSize;
+
+
+    /**
+     * Creates an unbounded cache without expiration.
+     */
+    public AsyncLoadingCache() {
+        this(DEFAULT_MAXIMUM_SIZE, null, null);
+    }
+
+    /**
+     * Creates a cache which loads values in the {@link Asynchronizer#commonPool()}.
+     *
+     * @param maximumSize the maximum number of entries
+     * @param expireAfterWrite defines how long an entry lives after its value has been loaded; {@code null} - infinitely
+     * @param refreshAfterWrite defines when an entry is refreshed after its value has been loaded; {@code null} - never
+     */
+    public AsyncLoadingCache(long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite) {
+        this(maximumSize, expireAfterWrite, refreshAfterWrite, Asynchronizer.commonPool());
+    }
+
+    /**
+     * Creates a cache which loads values in the given executor.
+     *
+     * @param maximumSize the maximum number of entries
+     * @param expireAfterWrite defines how long an entry lives after its value has been loaded; {@code null} - infinitely
+     * @param refreshAfterWrite defines when an entry is refreshed after its value has been loaded; {@code null} - never
+     * @param executor the executor to load values
+     */
+    public AsyncLoadingCache(long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite, Executor executor) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.protectedMaximumSize = (long) (maximumSize * PROTECTED_SEGMENT_RATIO);
+        this.expireAfterWrite = toNanos(expireAfterWrite);
+        this.refreshAfterWrite = toNanos(refreshAfterWrite);
+        this.executor = executor;
+        this.orderTracked = (maximumSize != DEFAULT_MAXIMUM_SIZE || this.expireAfterWrite > 0);
+        this.nodes = new ConcurrentHashMap<>();
+        this.evictionLock = new ReentrantLock();
+        this.probationSegment = Node.sentinel();
+        this.protectedSegment = Node.sentinel();
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.loadSuccessCount = new LongAdder();
+        this.loadFailureCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key.
+     * If the key is cached, the cached value is returned; otherwise the value is loaded with the given loader.
+     * If the key is being loaded, the future of the current load is returned.
+     *
+     * <p>
+     * The returned future is a copy of the shared one, so completing or cancelling it does not affect
+     * the other callers requesting the key.
+     */
+    public CompletableFuture<V> computeIfAbsentAsync(K key, ThrowableFunction<? super K, ? extends V> loader) {
+        var now = System.nanoTime();
+        var node = nodes.get(key);
+
+        // If the key is cached or is being loaded, return its value
+        if (node != null && !isAbsent(node, now)) {
+            var future = node.future;
+            hitCount.increment();
+            afterRead(node, now);
+            return future.copy();
+        }
+
+        var createdNodeRef = new ObjectRef<Node<K, V>>();
+        var expiredNodeRef = new ObjectRef<Node<K, V>>();
+
+        node = nodes.compute(key, (k, existingNode) -> {
+            if (existingNode != null && !isAbsent(existingNode, now)) {
+                return existingNode;
+            }
+
+            var createdNode = new Node<K, V>(k, loader, new AsyncCompletableFuture<>(executor));
+            createdNodeRef.set(createdNode);
+            expiredNodeRef.set(existingNode);
+
+            return createdNode;
+        });
+
+        // If another caller has just started loading the key, join it
+        if (node != createdNodeRef.get()) {
+            var future = node.future;
+            hitCount.increment();
+            afterRead(node, now);
+            return future.copy();
+        }
+
+        missCount.increment();
+        afterWrite(node, expiredNodeRef.get());
+        load(node);
+
+        return node.future.copy();
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key if the key is cached
+     * or is being loaded; otherwise {@code null}.
+     */
+    public CompletableFuture<V> getIfPresent(K key) {
+        var now = System.nanoTime();
+        var node = nodes.get(key);
+
+        if (node != null && !isAbsent(node, now)) {
+            var future = node.future;
+            hitCount.increment();
+            afterRead(node, now);
+            return future.copy();
+        }
+
+        if (node != null) {
+            remove(node);
+        }
+
+        missCount.increment();
+
+        return null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this cache.
+     * If the cache previously contained a value for the key, the old value is replaced.
+     */
+    public void put(K key, V value) {
+        var node = new Node<K, V>(key, null, AsyncCompletableFuture.completedFuture(value));
+        node.writeTime = System.nanoTime();
+
+        var replacedNode = nodes.put(key, node);
+        afterWrite(node, replacedNode);
+    }
+
+    /**
+     * Removes the specified key from this cache.
+     */
+    public void invalidate(K key) {
+        var node = nodes.remove(key);
+
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Removes all keys from this cache.
+     */
+    public void invalidateAll() {
+        for (var key : nodes.keySet()) {
+            invalidate(key);
+        }
+    }
+
+
+    /**
+     * Returns the number of keys in this cache including the keys which are being loaded.
+     */
+    public long size() {
+        return nodes.mappingCount();
+    }
+
+    /**
+     * Returns the number of times the requested key was cached or was being loaded.
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of times the requested key was not cached.
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the ratio of the {@linkplain #hitCount() hits} to all the requests,
+     * or {@code 1.0} if there were no requests.
+     */
+    public double hitRate() {
+        var hits = hitCount();
+        var requests = hits + missCount();
+        return (requests == 0) ? 1.0 : (double) hits / requests;
+    }
+
+    /**
+     * Returns the number of successful loads including refreshes.
+     */
+    public long loadSuccessCount() {
+        return loadSuccessCount.sum();
+    }
+
+    /**
+     * Returns the number of failed loads including refreshes.
+     */
+    public long loadFailureCount() {
+        return loadFailureCount.sum();
+    }
+
+    /**
+     * Returns the number of keys evicted due to the size limit or expiration.
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+
+    private void load(Node<K, V> node) {
+        try {
+            executor.execute(() -> {
+                V value;
+
+                try {
+                    value = node.loader.tryApply(node.key);
+                } catch (Throwable e) {
+                    loadFailed(node, e);
+                    return;
+                }
+
+                loadSucceeded(node, value);
+            });
+        } catch (Throwable e) {
+            loadFailed(node, e);
+        }
+    }
+
+    private void loadSucceeded(Node<K, V> node, V value) {
+        loadSuccessCount.increment();
+
+        // The absent value is not cached
+        if (value == null) {
+            remove(node);
+        } else {
+            node.writeTime = System.nanoTime();
+        }
+
+        node.future.complete(value);
+    }
+
+    private void loadFailed(Node<K, V> node, Throwable error) {
+        loadFailureCount.increment();
+        remove(node);
+        node.future.completeExceptionally(error);
+    }
+
+    private void refresh(Node<K, V> node) {
+        try {
+            executor.execute(() -> {
+                try {
+                    var value = node.loader.tryApply(node.key);
+
+                    loadSuccessCount.increment();
+
+                    if (value == null) {
+                        remove(node);
+                    } else {
+                        node.future = AsyncCompletableFuture.completedFuture(value);
+                        node.writeTime = System.nanoTime();
+                    }
+                } catch (Throwable e) {
+                    // The stale value remains, the next read tries to refresh it again
+                    loadFailureCount.increment();
+                } finally {
+                    node.refreshing.set(false);
+                }
+            });
+        } catch (Throwable e) {
+            node.refreshing.set(false);
+        }
+    }
+
+
+    private boolean isAbsent(Node<K, V> node, long now) {
+        // A failed load is not cached, so its node is replaced even if it has not been removed yet
+        return node.future.isCompletedExceptionally() || isExpired(node, now);
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireAfterWrite > 0
+                && node.isLoaded()
+                && now - node.writeTime >= expireAfterWrite;
+    }
+
+    private boolean isRefreshNeeded(Node<K, V> node, long now) {
+        return refreshAfterWrite > 0
+                && node.loader != null
+                && node.isLoaded()
+                && now - node.writeTime >= refreshAfterWrite;
+    }
+
+    private void remove(Node<K, V> node) {
+        if (nodes.remove(node.key, node)) {
+            unlink(node);
+        }
+    }
+
+
+    private void afterRead(Node<K, V> node, long now) {
+        if (isRefreshNeeded(node, now) && node.refreshing.compareAndSet(false, true)) {
+            refresh(node);
+        }
+
+        // Reordering is skipped under contention, it does not affect correctness
+        if (orderTracked && evictionLock.tryLock()) {
+            try {
+                if (node.isLinked()) {
+                    onAccess(node);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void afterWrite(Node<K, V> node, Node<K, V> replacedNode) {
+        if (!orderTracked) {
+            return;
+        }
+
+        evictionLock.lock();
+
+        try {
+            if (replacedNode != null) {
+                unlinkLocked(replacedNode);
+            }
+
+            // The node could be removed before it was linked
+            if (!node.removed) {
+                linkLast(probationSegment, node);
+                size++;
+            }
+
+            evictExpired(System.nanoTime());
+            evictExceeded();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (!orderTracked) {
+            return;
+        }
+
+        evictionLock.lock();
+
+        try {
+            unlinkLocked(node);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+
+    private void onAccess(Node<K, V> node) {
+        unlinkNode(node);
+
+        if (node.protectedNode) {
+            linkLast(protectedSegment, node);
+            return;
+        }
+
+        // The node is accessed again, so it is promoted to the protected segment
+        node.protectedNode = true;
+        linkLast(protectedSegment, node);
+        protectedSize++;
+
+        // The least recently used protected nodes are demoted to the probation segment
+        while (protectedSize > protectedMaximumSize && protectedSegment.next != protectedSegment) {
+            var demotedNode = protectedSegment.next;
+            unlinkNode(demotedNode);
+            demotedNode.protectedNode = false;
+            protectedSize--;
+            linkLast(probationSegment, demotedNode);
+        }
+    }
+
+    private void evictExpired(long now) {
+        if (expireAfterWrite > 0) {
+            evictExpired(probationSegment, now);
+            evictExpired(protectedSegment, now);
+        }
+    }
+
+    private void evictExpired(Node<K, V> segment, long now) {
+        // The least recently used nodes are checked, the check is limited to amortize its cost
+        for (var i = 0; i < EXPIRATION_CHECK_LIMIT && segment.next != segment; i++) {
+            var node = segment.next;
+
+            if (!isExpired(node, now)) {
+                break;
+            }
+
+            evict(node);
+        }
+    }
+
+    private void evictExceeded() {
+        while (size > maximumSize) {
+            var victim = (probationSegment.next != probationSegment)
+                    ? probationSegment.next
+                    : protectedSegment.next;
+
+            if (victim == protectedSegment) {
+                break;
+            }
+
+            evict(victim);
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        unlinkLocked(node);
+        nodes.remove(node.key, node);
+        evictionCount.increment();
+    }
+
+    private void unlinkLocked(Node<K, V> node) {
+        if (node.removed) {
+            return;
+        }
+
+        node.removed = true;
+
+        if (node.isLinked()) {
+            unlinkNode(node);
+            size--;
+
+            if (node.protectedNode) {
+                protectedSize--;
+            }
+        }
+    }
+
+    private static <K, V> void linkLast(Node<K, V> segment, Node<K, V> node) {
+        node.prev = segment.prev;
+        node.next = segment;
+        segment.prev.next = node;
+        segment.prev = node;
+    }
+
+    private static <K, V> void unlinkNode(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static long toNanos(Duration duration) {
+        return (duration != null && !duration.isNegative()) ? duration.toNanos() : 0;
+    }
+
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final ThrowableFunction<? super K, ? extends V> loader;
+        private final AtomicBoolean refreshing;
+
+        private volatile CompletableFuture<V> future;
+        private volatile long writeTime;
+
+        // Guarded by the eviction lock
+        private Node<K, V> prev;
+        private Node<K, V> next;
+        private boolean protectedNode;
+        private boolean removed;
+
+
+        Node(K key, ThrowableFunction<? super K, ? extends V> loader, CompletableFuture<V> future) {
+            this.key = key;
+            this.loader = loader;
+            this.future = future;
+            this.refreshing = new AtomicBoolean(false);
+        }
+
+
+        static <K, V> Node<K, V> sentinel() {
+            var sentinel = new Node<K, V>(null, null, null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+
+        boolean isLoaded() {
+            var f = future;
+            return f.isDone() && !f.isCompletedExceptionally();
+        }
+
+        boolean isLinked() {
+            return prev != null;
+        }
+    }
+}
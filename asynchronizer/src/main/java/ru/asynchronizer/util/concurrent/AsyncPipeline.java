@@ -1,5 +1,6 @@
 package ru.asynchronizer.util.concurrent;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
@@ -101,6 +102,9 @@ public final class AsyncPipeline<T> implements IAsyncPipeline<T> {
         var thenFuture = future.thenComposeAsync(t -> {
             if (flow.isInterrupted()) {
                 return CompletableFuture.completedFuture(null);
+            } else if (flow.cancellationToken().isCancelled()) {
+                // The operation is abandoned, so do not start the next stage
+                return CompletableFuture.failedFuture(new CancellationException("The operation has been cancelled."));
             } else {
                 return futureSupplier.apply(flow, t);
             }
@@ -0,0 +1,243 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.*;
+
+/**
+ * Traces the asynchronous control flow with {@linkplain Span spans}.
+ *
+ * <p>
+ * Tracing is disabled by default. When it is enabled, a span is {@linkplain IAsyncContext#openSpan(String) opened}
+ * through the async context, and each task passed to the executors created by {@link IExecutorFactory} or
+ * enqueued to the {@link AwaitableQueue} within the span gets a child span. So the latency of the operation
+ * is divided into the time its tasks spent in queues and the time they were running. The tasks passed
+ * outside any span are not traced at all.
+ *
+ * <p>
+ * The ended spans are kept in the per-thread ring buffers without any locks and are exported in batches
+ * to the {@linkplain ISpanSink sink} by a background thread. If a buffer is full, for example, because the sink
+ * is too slow, the new spans are {@linkplain #droppedSpans() dropped} rather than slowing down the application.
+ *
+ * <pre>{@code
+ * AsyncTracer.enable(new FileSpanSink(Path.of("spans.jsonl")));
+ * }</pre>
+ */
+@Slf4j
+public final class AsyncTracer {
+
+    public static final Duration DEFAULT_EXPORT_PERIOD = Duration.ofSeconds(1);
+    public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+    /**
+     * The system property defining the file used by the default sink.
+     */
+    public static final String FILE_PROPERTY = "asynchronizer.tracing.file";
+
+    private static final String DEFAULT_FILE = "asynchronizer-spans.jsonl";
+    private static final long EPOCH_OFFSET = System.currentTimeMillis() * 1_000_000 - System.nanoTime();
+
+    private static final Object STATE_LOCK = new Object();
+    private static final Object FLUSH_LOCK = new Object();
+    private static final Queue<SpanBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<SpanBuffer> BUFFER = ThreadLocal.withInitial(AsyncTracer::newBuffer);
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private static volatile boolean enabled;
+    private static volatile int bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+    private static volatile ISpanSink sink;
+    private static Thread exporter;
+
+
+    private AsyncTracer() {
+        // Static only class
+    }
+
+
+    /**
+     * Returns {@code true} if tracing is enabled.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables tracing with the sink appending spans to the file defined by the {@value #FILE_PROPERTY} system property.
+     */
+    public static void enable() {
+        enable(new FileSpanSink(Path.of(System.getProperty(FILE_PROPERTY, DEFAULT_FILE))));
+    }
+
+    /**
+     * Enables tracing with the given sink and default settings.
+     */
+    public static void enable(ISpanSink sink) {
+        enable(sink, DEFAULT_EXPORT_PERIOD, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * Enables tracing with the given settings.
+     *
+     * @param sink the sink to export spans to
+     * @param exportPeriod defines how often the spans are exported
+     * @param bufferCapacity defines how many spans a thread can keep until they are exported
+     */
+    public static void enable(ISpanSink sink, Duration exportPeriod, int bufferCapacity) {
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("The buffer capacity must be positive.");
+        }
+
+        synchronized (STATE_LOCK) {
+            disable();
+
+            AsyncTracer.sink = sink;
+            AsyncTracer.bufferCapacity = bufferCapacity;
+            AsyncTracer.enabled = true;
+
+            var exportPeriodMillis = Math.max(exportPeriod.toMillis(), 1);
+
+            exporter = Asynchronizer.executorFactory().newThreadFactory(AsyncTracer.class).newThread(() -> {
+                while (true) {
+                    try {
+                        Thread.sleep(exportPeriodMillis);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    flush();
+                }
+            });
+
+            exporter.start();
+        }
+    }
+
+    /**
+     * Disables tracing and exports the recorded spans.
+     */
+    public static void disable() {
+        synchronized (STATE_LOCK) {
+            if (!enabled) {
+                return;
+            }
+
+            enabled = false;
+
+            exporter.interrupt();
+
+            try {
+                exporter.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            exporter = null;
+
+            flush();
+
+            sink = null;
+        }
+    }
+
+    /**
+     * Exports the recorded spans immediately.
+     */
+    public static void flush() {
+        synchronized (FLUSH_LOCK) {
+            var batch = new ArrayList<Span>();
+
+            for (var buffer : BUFFERS) {
+                // The buffer of a terminated thread will never get new spans
+                var alive = buffer.isAlive();
+
+                buffer.drainTo(batch);
+
+                if (!alive) {
+                    BUFFERS.remove(buffer);
+                }
+            }
+
+            var currentSink = sink;
+
+            if (currentSink != null && !batch.isEmpty()) {
+                try {
+                    currentSink.export(batch);
+                } catch (IOException | RuntimeException e) {
+                    log.atError().setMessage("The spans cannot be exported.").setCause(e).log();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of spans dropped because the buffers were full.
+     */
+    public static long droppedSpans() {
+        return DROPPED.sum();
+    }
+
+
+    /**
+     * Opens the span of an operation and makes it current in the given context.
+     */
+    static Span openSpan(IAsyncContext context, String name) {
+        if (!enabled) {
+            return Span.NONE;
+        }
+
+        var parent = context.get(Span.CONTEXT_KEY);
+        var createTime = System.nanoTime();
+        var span = (parent != null) ? new Span(parent, name, Span.Kind.OPERATION, createTime) : new Span(name, Span.Kind.OPERATION, createTime);
+
+        return span.begin(context);
+    }
+
+    /**
+     * Creates a child of the current span, or returns {@code null} if there is no current span.
+     */
+    static Span newChildSpan(IAsyncContext context, Object task, Span.Kind kind) {
+        return enabled ? newChildSpan(context, task, kind, System.nanoTime()) : null;
+    }
+
+    /**
+     * Creates a child of the current span, or returns {@code null} if there is no current span.
+     *
+     * @param createTime the value of {@link System#nanoTime()} when the work was created
+     */
+    static Span newChildSpan(IAsyncContext context, Object task, Span.Kind kind, long createTime) {
+        if (!enabled) {
+            return null;
+        }
+
+        var parent = context.get(Span.CONTEXT_KEY);
+
+        return (parent != null) ? new Span(parent, task.getClass().getName(), kind, createTime) : null;
+    }
+
+    /**
+     * Adds the ended span to the buffer of the current thread.
+     */
+    static void record(Span span) {
+        if (enabled && !BUFFER.get().add(span)) {
+            DROPPED.increment();
+        }
+    }
+
+    /**
+     * Converts the value of {@link System#nanoTime()} to the wall-clock time.
+     */
+    static Instant toInstant(long nanoTime) {
+        return Instant.ofEpochSecond(0, EPOCH_OFFSET + nanoTime);
+    }
+
+    private static SpanBuffer newBuffer() {
+        var buffer = new SpanBuffer(Thread.currentThread(), bufferCapacity);
+        BUFFERS.add(buffer);
+        return buffer;
+    }
+}
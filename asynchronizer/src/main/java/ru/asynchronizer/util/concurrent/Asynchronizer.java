@@ -1,5 +1,6 @@
 package ru.asynchronizer.util.concurrent;
 
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -10,9 +11,41 @@ import java.util.concurrent.ScheduledExecutorService;
  */
 public final class Asynchronizer {
 
+    /**
+     * The system property defining the maximum number of threads of the {@linkplain #commonPool() common pool}
+     * per available processor.
+     */
+    public static final String COMMON_POOL_MAX_THREADS_PER_CORE_PROPERTY = "asynchronizer.commonPool.maxThreadsPerCore";
+
+    /**
+     * The system property defining the maximum number of tasks waiting for a free thread of the {@linkplain #commonPool() common pool}.
+     */
+    public static final String COMMON_POOL_QUEUE_CAPACITY_PROPERTY = "asynchronizer.commonPool.queueCapacity";
+
+    /**
+     * The system property defining how many seconds an idle thread of the {@linkplain #commonPool() common pool} lives.
+     */
+    public static final String COMMON_POOL_KEEP_ALIVE_PROPERTY = "asynchronizer.commonPool.keepAliveSeconds";
+
+    /**
+     * The system property defining the {@link SaturationPolicy} of the {@linkplain #commonPool() common pool}.
+     */
+    public static final String COMMON_POOL_SATURATION_POLICY_PROPERTY = "asynchronizer.commonPool.saturationPolicy";
+
+    /**
+     * The system property which enables running the {@linkplain #commonPool() common pool} on virtual threads.
+     * The virtual threads are not limited by the thread settings.
+     */
+    public static final String COMMON_POOL_VIRTUAL_PROPERTY = "asynchronizer.commonPool.virtual";
+
+    public static final int DEFAULT_COMMON_POOL_MAX_THREADS_PER_CORE = 10;
+    public static final int DEFAULT_COMMON_POOL_QUEUE_CAPACITY = 100_000;
+    public static final int DEFAULT_COMMON_POOL_KEEP_ALIVE = 60;
+    public static final SaturationPolicy DEFAULT_COMMON_POOL_SATURATION_POLICY = SaturationPolicy.CALLER_RUNS;
+
     private static final AsyncContext CONTEXT = new AsyncContext();
     private static final ExecutorFactory EXECUTOR_FACTORY = new ExecutorFactory(CONTEXT);
-    private static final CommonExecutorService COMMON_POOL = new CommonExecutorService(EXECUTOR_FACTORY.newCachedThreadPool(Asynchronizer.class));
+    private static final CommonExecutorService COMMON_POOL = new CommonExecutorService(newCommonPool());
     private static final CommonScheduledExecutorService COMMON_SCHEDULED_POOL = new CommonScheduledExecutorService(EXECUTOR_FACTORY.newScheduledThreadPool(Asynchronizer.class, 5), COMMON_POOL);
 
 
@@ -37,6 +70,12 @@ public final class Asynchronizer {
 
     /**
      * Returns an {@link ExecutorService} instance that can be used in case when there is no special executor defined/needed.
+     *
+     * <p>
+     * The pool creates threads as needed, but no more than {@value #DEFAULT_COMMON_POOL_MAX_THREADS_PER_CORE} threads
+     * per available processor, and reaps the idle ones. When all the threads are busy the tasks wait in the queue,
+     * and when the queue is full the tasks are run by the calling threads. The settings can be changed with
+     * the {@code asynchronizer.commonPool.*} system properties before this class is initialized.
      */
     public static ExecutorService commonPool() {
         return COMMON_POOL;
@@ -80,4 +119,22 @@ public final class Asynchronizer {
         EXECUTOR_FACTORY.disposeNow();
         CONTEXT.dispose();
     }
+
+
+    private static ExecutorService newCommonPool() {
+        if (Boolean.getBoolean(COMMON_POOL_VIRTUAL_PROPERTY)) {
+            return EXECUTOR_FACTORY.newVirtualThreadPerTaskExecutor(Asynchronizer.class);
+        }
+
+        var maxThreadsPerCore = Integer.getInteger(COMMON_POOL_MAX_THREADS_PER_CORE_PROPERTY, DEFAULT_COMMON_POOL_MAX_THREADS_PER_CORE);
+        var queueCapacity = Integer.getInteger(COMMON_POOL_QUEUE_CAPACITY_PROPERTY, DEFAULT_COMMON_POOL_QUEUE_CAPACITY);
+        var keepAlive = Integer.getInteger(COMMON_POOL_KEEP_ALIVE_PROPERTY, DEFAULT_COMMON_POOL_KEEP_ALIVE);
+        var saturationPolicy = SaturationPolicy.valueOf(System.getProperty(COMMON_POOL_SATURATION_POLICY_PROPERTY, DEFAULT_COMMON_POOL_SATURATION_POLICY.name()));
+
+        return EXECUTOR_FACTORY.newBoundedElasticPool(Asynchronizer.class,
+                Math.max(maxThreadsPerCore * Runtime.getRuntime().availableProcessors(), 1),
+                queueCapacity,
+                Duration.ofSeconds(keepAlive),
+                saturationPolicy);
+    }
 }
@@ -1,51 +1,256 @@
 package ru.asynchronizer.util.concurrent;
 
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongBiFunction;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
 
 import ru.asynchronizer.util.ObjectRef;
 
 /**
- * Maps keys to values and provides an ability to await adding and removing keys.
+ * Maps keys to values and provides an ability to await adding, changing and removing keys.
+ *
+ * <p>
+ * Awaiters are completed using the completion executor, by default, the {@link Asynchronizer#commonPool()},
+ * so dependent stages registered without an executor do not run in the thread which updates the map.
+ * To complete awaiters in the updating thread, specify {@code Runnable::run} as the completion executor.
+ *
+ * <p>
+ * Values and awaiters are kept in a single table. A key which is not awaited is mapped to its value directly,
+ * and only an awaited key is mapped to a node holding the value and the stack of awaiters. So each operation
+ * looks up the key once and updates the value together with its awaiters atomically.
+ *
+ * <p>
+ * If the map is created over a given map, values are kept in that map, and the table holds only the nodes
+ * of awaited keys. The given map is accessed inside the compute() method of the table, so it must be
+ * thread-safe if the map is updated concurrently. This mode is slower and does not support bounds.
  *
  * @param <K> the type of keys maintained by this map
  * @param <V> the type of mapped values
  */
+@Slf4j
 public final class AwaitableHashMap<K, V> {
 
+    private final ConcurrentHashMap<K, Object> table;
     private final Map<K, V> delegatedMap;
-    private final Map<K, CompletableFuture<V>> awaitersOnAdded;
-    private final Map<K, CompletableFuture<Boolean>> awaitersOnRemoved;
+    private final LongAdder size;
+    private final BufferedPublisher<Change<K, V>> changePublisher;
+    private final Executor completionExecutor;
+
+    private final boolean bounded;
+    private final long maximumWeight;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final BiConsumer<? super K, ? super V> evictionListener;
+    private final ReentrantLock evictionLock;
+    private final Node<K, V> writeOrder;
+    private long totalWeight;
 
 
     public AwaitableHashMap() {
-        this(new ConcurrentHashMap<>());
+        this(Asynchronizer.commonPool());
     }
 
+    /**
+     * Creates a map which keeps values in the given map.
+     */
     public AwaitableHashMap(Map<K, V> delegatedMap) {
+        this(delegatedMap, Asynchronizer.commonPool());
+    }
+
+    public AwaitableHashMap(Executor completionExecutor) {
+        this(Long.MAX_VALUE, null, null, null, completionExecutor);
+    }
+
+    /**
+     * Creates a bounded map.
+     *
+     * @param maximumSize the maximum number of keys; the keys which were put earlier are evicted first
+     * @param expireAfterWrite the time after which a key is evicted since its value is put, or {@code null}
+     * @param evictionListener the listener which is notified with evicted keys and their values, or {@code null}
+     *
+     * @see #AwaitableHashMap(long, ToLongBiFunction, Duration, BiConsumer, Executor)
+     */
+    public AwaitableHashMap(long maximumSize, Duration expireAfterWrite, BiConsumer<? super K, ? super V> evictionListener) {
+        this(maximumSize, null, expireAfterWrite, evictionListener, Asynchronizer.commonPool());
+    }
+
+    /**
+     * Creates a bounded map.
+     *
+     * <p>
+     * Keys are evicted in the order their values are put. Eviction is performed by the threads which put
+     * values, so there is no background activity. Expired keys are not visible even before they are evicted,
+     * and an expired key is evicted as soon as it is put, removed or awaited, so it is treated as absent.
+     * An evicted key completes its {@linkplain #awaitRemove(Object) removal awaiters}, notifies the eviction
+     * listener and is published as a {@link Change.Type#REMOVE} change. The eviction listener is invoked
+     * using the completion executor.
+     *
+     * @param maximumWeight the maximum total weight of keys
+     * @param weigher the function to calculate a weight of a key and its value, or {@code null} to count keys
+     * @param expireAfterWrite the time after which a key is evicted since its value is put, or {@code null}
+     * @param evictionListener the listener which is notified with evicted keys and their values, or {@code null}
+     * @param completionExecutor the executor to complete awaiters and notify listeners
+     */
+    public AwaitableHashMap(long maximumWeight, ToLongBiFunction<? super K, ? super V> weigher, Duration expireAfterWrite,
+                            BiConsumer<? super K, ? super V> evictionListener, Executor completionExecutor) {
+        this(null, maximumWeight, weigher, expireAfterWrite, evictionListener, completionExecutor);
+    }
+
+    /**
+     * Creates a map which keeps values in the given map.
+     */
+    public AwaitableHashMap(Map<K, V> delegatedMap, Executor completionExecutor) {
+        this(Objects.requireNonNull(delegatedMap), Long.MAX_VALUE, null, null, null, completionExecutor);
+    }
+
+    private AwaitableHashMap(Map<K, V> delegatedMap, long maximumWeight, ToLongBiFunction<? super K, ? super V> weigher,
+                             Duration expireAfterWrite, BiConsumer<? super K, ? super V> evictionListener,
+                             Executor completionExecutor) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("The maximum weight must not be negative.");
+        }
+
+        this.table = new ConcurrentHashMap<>();
         this.delegatedMap = delegatedMap;
-        this.awaitersOnAdded = new ConcurrentHashMap<>();
-        this.awaitersOnRemoved = new ConcurrentHashMap<>();
+        this.size = new LongAdder();
+        this.completionExecutor = completionExecutor;
+        this.changePublisher = new BufferedPublisher<>(Flow.defaultBufferSize(), completionExecutor);
+
+        this.maximumWeight = maximumWeight;
+        this.weigher = (weigher != null) ? weigher : (k, v) -> 1;
+        this.expireAfterWriteNanos = (expireAfterWrite != null) ? expireAfterWrite.toNanos() : 0;
+        this.evictionListener = evictionListener;
+        this.bounded = (maximumWeight != Long.MAX_VALUE || expireAfterWriteNanos > 0);
+        this.evictionLock = new ReentrantLock();
+        this.writeOrder = new Node<>(null, null);
+        this.writeOrder.older = writeOrder;
+        this.writeOrder.newer = writeOrder;
     }
 
 
+
     /**
-     * Returns a {@link Set} view of the keys contained in this map.
+     * Returns a {@link Set} view of the keys contained in this map. Removing a key from the view
+     * removes it from this map, see {@link #remove(Object)}.
      */
     public Set<K> keySet() {
-        return delegatedMap.keySet();
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<K> iterator() {
+                return new ViewIterator<>(Map.Entry::getKey);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object key) {
+                return (key != null) && get((K) key) != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean remove(Object key) {
+                return (key != null) && AwaitableHashMap.this.remove((K) key) != null;
+            }
+
+            @Override
+            public int size() {
+                return AwaitableHashMap.this.size();
+            }
+        };
     }
 
     /**
-     * Returns a {@link Collection} view of the values contained in this map.
+     * Returns a {@link Collection} view of the values contained in this map. Removing a value from the view
+     * removes its key from this map, see {@link #remove(Object)}.
      */
     public Collection<V> values() {
-        return delegatedMap.values();
+        return new AbstractCollection<>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                return new ViewIterator<>(Map.Entry::getValue);
+            }
+
+            @Override
+            public int size() {
+                return AwaitableHashMap.this.size();
+            }
+        };
+    }
+
+    private int size() {
+        if (delegatedMap != null) {
+            return delegatedMap.size();
+        }
+
+        // Expired keys are not counted even before they are evicted
+        if (expireAfterWriteNanos > 0) {
+            return (int) table.values().stream().filter(slot -> valueOf(slot) != null).count();
+        }
+
+        return (int) Math.max(0, Math.min(size.sum(), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns the snapshot of the mappings, so the views can remove keys through this map while iterating.
+     */
+    private Iterator<Map.Entry<K, V>> entries() {
+        if (delegatedMap != null) {
+            return delegatedMap.entrySet().stream()
+                    .map(e -> Map.entry(e.getKey(), e.getValue()))
+                    .collect(Collectors.toList())
+                    .iterator();
+        }
+
+        return table.entrySet().stream()
+                .map(e -> {
+                    var value = valueOf(e.getValue());
+                    return (value != null) ? Map.entry(e.getKey(), value) : null;
+                })
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+
+    /**
+     * Returns a {@link Flow.Publisher} of changes of this map.
+     *
+     * <p>
+     * Each subscriber receives all the changes made after its subscription, in the order they have been
+     * published, according to its demand. Changes are buffered for each subscriber separately, and if
+     * a subscriber does not keep up with the map, its subscription is terminated with an
+     * {@link IllegalStateException}, so it can resubscribe and rescan the map. Changes are delivered
+     * using the completion executor.
+     */
+    public Flow.Publisher<Change<K, V>> changes() {
+        return changePublisher;
     }
 
 
@@ -54,7 +259,11 @@ public final class AwaitableHashMap<K, V> {
      * or {@code null} if this map contains no mapping for the key.
      */
     public V get(K key) {
-        return delegatedMap.get(key);
+        if (delegatedMap != null) {
+            return delegatedMap.get(key);
+        }
+
+        return valueOf(table.get(key));
     }
 
     /**
@@ -63,35 +272,292 @@ public final class AwaitableHashMap<K, V> {
      * is replaced by the specified value.
      */
     public V put(K key, V value) {
-        var previousValue = delegatedMap.put(key, value);
+        var completions = new ArrayList<Runnable>(0);
+        var previousValue = putInternal(key, value, completions);
+        complete(completions);
+        return previousValue;
+    }
+
+    /**
+     * Copies all the mappings from the specified map to this map. Awaiters of all
+     * the added and replaced keys are completed at once, in a single task.
+     */
+    public void putAll(Map<? extends K, ? extends V> map) {
+        var completions = new ArrayList<Runnable>(0);
+
+        for (var entry : map.entrySet()) {
+            putInternal(entry.getKey(), entry.getValue(), completions);
+        }
+
+        complete(completions);
+    }
+
+    private V putInternal(K key, V value, List<Runnable> completions) {
+        Objects.requireNonNull(value);
+
+        var previousValueRef = new ObjectRef<V>();
+        var nodeRef = new ObjectRef<Node<K, V>>();
+
+        table.compute(key, (k, slot) -> {
+            if (!bounded && !(slot instanceof Node)) {
+                if (delegatedMap != null) {
+                    previousValueRef.set(delegatedMap.put(k, value));
+                    bufferChange(k, value, previousValueRef.get());
+                    return null;
+                }
+
+                previousValueRef.set(valueOf(slot));
+                bufferChange(k, value, previousValueRef.get());
+                return value;
+            }
+
+            var node = nodeOf(k, slot, completions);
+            previousValueRef.set(node.value);
+            node.version++;
+            node.writeTime = (expireAfterWriteNanos > 0) ? System.nanoTime() : 0;
+            node.value = value;
+
+            if (delegatedMap != null) {
+                delegatedMap.put(k, value);
+            }
+
+            // Either the key is added or its value is replaced
+            node.put(k, value, previousValueRef.get(), completions);
+            nodeRef.set(node);
+            bufferChange(k, value, previousValueRef.get());
+
+            return compact(node);
+        });
+
+        var previousValue = previousValueRef.get();
 
         // If the key is just added, not replaced
         if (previousValue == null) {
-            var keyAwaiter = awaitersOnAdded.remove(key);
+            size.increment();
+        }
 
-            if (keyAwaiter != null) {
-                keyAwaiter.complete(value);
-            }
+        if (bounded) {
+            afterWrite(nodeRef.get(), completions);
         }
 
+        changePublisher.flush();
+
         return previousValue;
     }
 
+    /**
+     * Buffers the change of the key. Must be called inside the compute() method, so the changes of the key
+     * are buffered in the order they are applied; the changes are delivered after the compute() method.
+     */
+    private void bufferChange(K key, V value, V previousValue) {
+        if (!changePublisher.hasSubscribers()) {
+            return;
+        }
+
+        Change.Type type;
+
+        if (value == null) {
+            type = Change.Type.REMOVE;
+        } else if (previousValue == null) {
+            type = Change.Type.PUT;
+        } else {
+            type = Change.Type.REPLACE;
+        }
+
+        changePublisher.buffer(new Change<>(type, key, value, previousValue));
+    }
+
+    private void complete(List<Runnable> completions) {
+        if (completions.isEmpty()) {
+            return;
+        }
+
+        Runnable completeAll = () -> {
+            for (var completion : completions) {
+                try {
+                    completion.run();
+                } catch (Throwable e) {
+                    log.atError()
+                            .setMessage("Cannot complete an awaiter or notify a listener of the map.")
+                            .setCause(e)
+                            .log();
+                }
+            }
+        };
+
+        try {
+            completionExecutor.execute(completeAll);
+        } catch (RejectedExecutionException e) {
+            // The executor is shut down, so complete the awaiters here
+            completeAll.run();
+        }
+    }
+
     /**
      * Removes the mapping for a key from this map if it is present.
      */
     public V remove(K key) {
-        var previous = delegatedMap.remove(key);
+        var completions = new ArrayList<Runnable>(0);
+        var previousValue = removeInternal(key, completions, true);
+        complete(completions);
+        changePublisher.flush();
+        return previousValue;
+    }
+
+    private V removeInternal(K key, List<Runnable> completions, boolean publishChange) {
+        var previousValueRef = new ObjectRef<V>();
+        var nodeRef = new ObjectRef<Node<K, V>>();
+
+        // The delegated map may contain the key which is not in the table
+        compute(key, (k, slot) -> {
+            if (delegatedMap == null && !(slot instanceof Node)) {
+                previousValueRef.set(valueOf(slot));
+
+                if (publishChange) {
+                    bufferChange(k, null, previousValueRef.get());
+                }
+
+                return null;
+            }
+
+            var node = nodeOf(k, slot, completions);
+
+            // The key is only awaited, not added
+            if (node.value == null) {
+                return compact(node);
+            }
+
+            previousValueRef.set(node.value);
+            node.value = null;
+            node.remove(completions);
+
+            if (delegatedMap != null) {
+                delegatedMap.remove(k);
+            }
+            nodeRef.set(node);
+
+            if (publishChange) {
+                bufferChange(k, null, previousValueRef.get());
+            }
 
-        if (previous != null) {
-            var awaiter = awaitersOnRemoved.remove(key);
+            return compact(node);
+        });
+
+        if (previousValueRef.get() != null) {
+            size.decrement();
+        }
+
+        if (bounded && nodeRef.get() != null) {
+            evictionLock.lock();
 
-            if (awaiter != null) {
-                awaiter.complete(true);
+            try {
+                updateWriteOrder(nodeRef.get());
+            } finally {
+                evictionLock.unlock();
             }
         }
 
-        return previous;
+        return previousValueRef.get();
+    }
+
+
+    /**
+     * Updates the write order of the node and evicts the keys which exceed the bounds.
+     */
+    private void afterWrite(Node<K, V> node, List<Runnable> completions) {
+        var evictedNodes = new ArrayList<Node<K, V>>(0);
+        var evictedVersions = new ArrayList<Long>(0);
+
+        evictionLock.lock();
+
+        try {
+            updateWriteOrder(node);
+
+            var now = (expireAfterWriteNanos > 0) ? System.nanoTime() : 0;
+
+            // The eldest keys are evicted first
+            for (var eldest = writeOrder.newer; eldest != writeOrder; eldest = writeOrder.newer) {
+                if (totalWeight <= maximumWeight && !isExpired(eldest, now)) {
+                    break;
+                }
+
+                unlinkWriteOrder(eldest);
+                evictedNodes.add(eldest);
+                evictedVersions.add(eldest.version);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+
+        for (var i = 0; i < evictedNodes.size(); i++) {
+            evict(evictedNodes.get(i), evictedVersions.get(i), completions);
+        }
+    }
+
+    private void evict(Node<K, V> node, long version, List<Runnable> completions) {
+        var evictedValueRef = new ObjectRef<V>();
+
+        table.computeIfPresent(node.key, (k, slot) -> {
+            // If the key has been put again or removed since then, it is not evicted
+            if (slot != node || node.version != version || node.value == null) {
+                return slot;
+            }
+
+            evictedValueRef.set(node.value);
+            node.value = null;
+            node.remove(completions);
+            bufferChange(k, null, evictedValueRef.get());
+
+            return compact(node);
+        });
+
+        var evictedValue = evictedValueRef.get();
+
+        if (evictedValue == null) {
+            return;
+        }
+
+        size.decrement();
+
+        if (evictionListener != null) {
+            completions.add(() -> evictionListener.accept(node.key, evictedValue));
+        }
+    }
+
+    /**
+     * Moves the node to the newest end if it holds a value, otherwise unlinks it.
+     * Must be called under the eviction lock.
+     */
+    private void updateWriteOrder(Node<K, V> node) {
+        var value = node.value;
+
+        if (node.newer != null) {
+            unlinkWriteOrder(node);
+        }
+
+        if (value != null) {
+            node.weight = weigher.applyAsLong(node.key, value);
+            node.older = writeOrder.older;
+            node.newer = writeOrder;
+            writeOrder.older.newer = node;
+            writeOrder.older = node;
+            totalWeight += node.weight;
+        }
+    }
+
+    /**
+     * Must be called under the eviction lock.
+     */
+    private void unlinkWriteOrder(Node<K, V> node) {
+        node.older.newer = node.newer;
+        node.newer.older = node.older;
+        node.older = null;
+        node.newer = null;
+        totalWeight -= node.weight;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos;
     }
 
 
@@ -130,7 +596,7 @@ public final class AwaitableHashMap<K, V> {
     }
 
     private CompletableFuture<V> awaitInternal(K key, long timeout, TimeUnit unit, V defaultValue, boolean withDefaultValue) {
-        var value = delegatedMap.get(key);
+        var value = get(key);
 
         // If the key already exists, return its value immediately
         if (value != null) {
@@ -138,42 +604,255 @@ public final class AwaitableHashMap<K, V> {
         }
 
         var keyAwaiterRef = new ObjectRef<CompletableFuture<V>>();
+        var completions = new ArrayList<Runnable>(0);
 
-        awaitersOnAdded.compute(key, (k, awaiter) -> {
-            var value2 = delegatedMap.get(k);
+        table.compute(key, (k, slot) -> {
+            var node = nodeOf(k, slot, completions);
 
-            // If the key already exists, return its value and remove the key awaiter
-            if (value2 != null) {
-                keyAwaiterRef.set(CompletableFuture.completedFuture(value2));
-                return null;
+            // If the key already exists, return its value
+            if (node.value != null) {
+                keyAwaiterRef.set(CompletableFuture.completedFuture(node.value));
+                return slot;
             }
 
             // If the key awaiter already exists, return it
-            if (awaiter != null) {
-                keyAwaiterRef.set(awaiter);
-                return awaiter;
+            AddedAwaiter existingAwaiter = node.find(AddedAwaiter.class);
+
+            if (existingAwaiter != null) {
+                keyAwaiterRef.set(existingAwaiter.future);
+                return node;
             }
 
             // Create a new key awaiter which is removed automatically as soon as completed
-            CompletableFuture<V> keyAwaiter = new FinalizableCompletableFuture<>(() -> awaitersOnAdded.remove(k));
+            var keyAwaiter = new AddedAwaiter(k);
 
             if (timeout > 0 && unit != null) {
                 if (withDefaultValue) {
-                    keyAwaiter = keyAwaiter.completeOnTimeout(defaultValue, timeout, unit);
+                    keyAwaiter.future.completeOnTimeout(defaultValue, timeout, unit);
                 } else {
-                    keyAwaiter = keyAwaiter.orTimeout(timeout, unit);
+                    keyAwaiter.future.orTimeout(timeout, unit);
                 }
             }
 
-            keyAwaiterRef.set(keyAwaiter);
+            node.push(keyAwaiter);
+            keyAwaiterRef.set(keyAwaiter.future);
 
-            return keyAwaiter;
+            return node;
         });
 
+        complete(completions);
+        changePublisher.flush();
+
         return keyAwaiterRef.get();
     }
 
 
+    /**
+     * Returns a {@link CompletableFuture} instance to await values of all the specified keys.
+     * The returned future will be completed as soon as all the specified keys are added.
+     * The future is completed with a map of the specified keys to their values. Keys which
+     * already exist are taken into account immediately.
+     */
+    public CompletableFuture<Map<K, V>> awaitAll(Collection<K> keys) {
+        return awaitAll(keys, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await values of all the specified keys.
+     * The returned future will be completed as soon as all the specified keys are added or
+     * the given timeout is expired. The future is completed normally with a map of the specified
+     * keys to their values if all the keys have been added before the given timeout; otherwise
+     * exceptionally with a {@link TimeoutException}. Keys which already exist are taken into
+     * account immediately.
+     *
+     * <p>
+     * Unlike awaiting each key separately, the method registers a single awaiter for all the keys.
+     */
+    public CompletableFuture<Map<K, V>> awaitAll(Collection<K> keys, long timeout, TimeUnit unit) {
+        return awaitKeys(keys, timeout, unit, false);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of any of the specified keys.
+     * The returned future will be completed as soon as any of the specified keys is added.
+     * The future is completed with a map of the first added key to its value. In case any of
+     * the keys already exists, the method returns a completed future with a value of that key.
+     */
+    public CompletableFuture<Map<K, V>> awaitAny(Collection<K> keys) {
+        return awaitAny(keys, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of any of the specified keys.
+     * The returned future will be completed as soon as any of the specified keys is added or
+     * the given timeout is expired. The future is completed normally with a map of the first
+     * added key to its value if any of the keys has been added before the given timeout; otherwise
+     * exceptionally with a {@link TimeoutException}. In case any of the keys already exists,
+     * the method returns a completed future with a value of that key.
+     *
+     * <p>
+     * Unlike awaiting each key separately, the method registers a single awaiter for all the keys.
+     */
+    public CompletableFuture<Map<K, V>> awaitAny(Collection<K> keys, long timeout, TimeUnit unit) {
+        return awaitKeys(keys, timeout, unit, true);
+    }
+
+    private CompletableFuture<Map<K, V>> awaitKeys(Collection<K> keys, long timeout, TimeUnit unit, boolean any) {
+        var values = new ConcurrentHashMap<K, V>(keys.size());
+        var missingKeys = new ArrayList<K>(keys.size());
+
+        // Take into account the keys which already exist
+        for (var key : new LinkedHashSet<>(keys)) {
+            var value = get(key);
+
+            if (value != null) {
+                if (any) {
+                    return CompletableFuture.completedFuture(Map.of(key, value));
+                }
+                values.put(key, value);
+            } else {
+                missingKeys.add(key);
+            }
+        }
+
+        if (missingKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(values);
+        }
+
+        var keysAwaiter = new KeysAwaiter(missingKeys, values, any);
+
+        if (timeout > 0 && unit != null) {
+            keysAwaiter.future.orTimeout(timeout, unit);
+        }
+
+        var valueRef = new ObjectRef<V>();
+        var completions = new ArrayList<Runnable>(0);
+
+        for (var key : missingKeys) {
+            if (keysAwaiter.future.isDone()) {
+                break;
+            }
+
+            valueRef.set(null);
+
+            table.compute(key, (k, slot) -> {
+                var node = nodeOf(k, slot, completions);
+
+                // If the key already exists, do not register the awaiter
+                if (node.value != null) {
+                    valueRef.set(node.value);
+                    return slot;
+                }
+
+                node.push(new KeyOfKeysAwaiter(keysAwaiter));
+
+                return node;
+            });
+
+            // The future must not be completed inside the compute() method
+            if (valueRef.get() != null) {
+                keysAwaiter.added(key, valueRef.get());
+            }
+        }
+
+        complete(completions);
+        changePublisher.flush();
+
+        // All the keys are registered
+        keysAwaiter.added(null, null);
+
+        return keysAwaiter.future;
+    }
+
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key which
+     * differs from the given one. The returned future will be completed as soon as the specified
+     * key is added or its value is replaced with a value which is not {@linkplain Objects#equals(Object, Object) equal}
+     * to the given one. The future is completed with the new value. In case the key already has
+     * a different value, the method returns a completed future with this value.
+     */
+    public CompletableFuture<V> awaitChange(K key, V lastSeen) {
+        return awaitChange(key, lastSeen, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key which
+     * differs from the given one. The returned future will be completed as soon as the specified
+     * key is added or its value is replaced with a value which is not {@linkplain Objects#equals(Object, Object) equal}
+     * to the given one, or the given timeout is expired. The future is completed normally with
+     * the new value if it has been put before the given timeout; otherwise exceptionally with
+     * a {@link TimeoutException}. In case the key already has a different value, the method returns
+     * a completed future with this value.
+     */
+    public CompletableFuture<V> awaitChange(K key, V lastSeen, long timeout, TimeUnit unit) {
+        return awaitMatch(key, value -> !Objects.equals(value, lastSeen), timeout, unit);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key which
+     * matches the given predicate. The returned future will be completed as soon as the specified
+     * key is added or its value is replaced with a value matching the predicate. The future is
+     * completed with the matched value. In case the current value of the key matches the predicate,
+     * the method returns a completed future with this value.
+     */
+    public CompletableFuture<V> awaitMatch(K key, Predicate<? super V> predicate) {
+        return awaitMatch(key, predicate, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key which
+     * matches the given predicate. The returned future will be completed as soon as the specified
+     * key is added or its value is replaced with a value matching the predicate, or the given timeout
+     * is expired. The future is completed normally with the matched value if it has been put before
+     * the given timeout; otherwise exceptionally with a {@link TimeoutException}. In case the current
+     * value of the key matches the predicate, the method returns a completed future with this value.
+     *
+     * <p>
+     * The predicate is tested against each value put for the key, so it must be fast and must not
+     * access this map.
+     */
+    public CompletableFuture<V> awaitMatch(K key, Predicate<? super V> predicate, long timeout, TimeUnit unit) {
+        var value = get(key);
+
+        // If the current value matches, return it immediately
+        if (value != null && predicate.test(value)) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        var valueAwaiter = new ValueAwaiter(key, predicate);
+        var matchedValueRef = new ObjectRef<V>();
+        var completions = new ArrayList<Runnable>(0);
+
+        table.compute(key, (k, slot) -> {
+            var node = nodeOf(k, slot, completions);
+
+            // If the current value matches, do not register the awaiter
+            if (node.value != null && predicate.test(node.value)) {
+                matchedValueRef.set(node.value);
+                return slot;
+            }
+
+            node.push(valueAwaiter);
+
+            return node;
+        });
+
+        complete(completions);
+        changePublisher.flush();
+
+        if (matchedValueRef.get() != null) {
+            return CompletableFuture.completedFuture(matchedValueRef.get());
+        }
+
+        if (timeout > 0 && unit != null) {
+            valueAwaiter.future.orTimeout(timeout, unit);
+        }
+
+        return valueAwaiter.future;
+    }
+
+
     /**
      * Returns a {@link CompletableFuture} instance to await the specified key is removed.
      * The returned future will be completed as soon as the specified key is removed.
@@ -192,37 +871,45 @@ public final class AwaitableHashMap<K, V> {
      */
     public CompletableFuture<Boolean> awaitRemove(K key, long timeout, TimeUnit unit) {
         // If the key does not exist, return a completed future immediately
-        if (!delegatedMap.containsKey(key)) {
+        if (get(key) == null) {
             return CompletableFutureUtil.completedFalse();
         }
 
-        var keyAwaiterRef = new ObjectRef<CompletableFuture<Boolean>>();
+        var keyAwaiterRef = new ObjectRef<CompletableFuture<Boolean>>(CompletableFutureUtil.completedFalse());
+        var completions = new ArrayList<Runnable>(0);
 
-        awaitersOnRemoved.compute(key, (k, awaiter) -> {
-            // If the key does not exist, return a completed future and remove the key awaiter
-            if (!delegatedMap.containsKey(k)) {
-                keyAwaiterRef.set(CompletableFutureUtil.completedFalse());
-                return null;
+        compute(key, (k, slot) -> {
+            var node = nodeOf(k, slot, completions);
+
+            // If the key does not exist, return a completed future
+            if (node.value == null) {
+                return compact(node);
             }
 
             // If the key awaiter already exists, return it
-            if (awaiter != null) {
-                keyAwaiterRef.set(awaiter);
-                return awaiter;
+            RemovedAwaiter existingAwaiter = node.find(RemovedAwaiter.class);
+
+            if (existingAwaiter != null) {
+                keyAwaiterRef.set(existingAwaiter.future);
+                return node;
             }
 
             // Create a new key awaiter which is removed automatically as soon as completed
-            CompletableFuture<Boolean> keyAwaiter = new FinalizableCompletableFuture<>(() -> awaitersOnRemoved.remove(k));
+            var keyAwaiter = new RemovedAwaiter(k);
 
             if (timeout > 0 && unit != null) {
-                keyAwaiter = keyAwaiter.orTimeout(timeout, unit);
+                keyAwaiter.future.orTimeout(timeout, unit);
             }
 
-            keyAwaiterRef.set(keyAwaiter);
+            node.push(keyAwaiter);
+            keyAwaiterRef.set(keyAwaiter.future);
 
-            return keyAwaiter;
+            return node;
         });
 
+        complete(completions);
+        changePublisher.flush();
+
         return keyAwaiterRef.get();
     }
 
@@ -231,9 +918,508 @@ public final class AwaitableHashMap<K, V> {
      * Clears this map and completes all key removal awaiters.
      */
     public void clear() {
-        delegatedMap.clear();
-        awaitersOnRemoved.values().forEach(awaiter -> awaiter.complete(true));
-        awaitersOnRemoved.clear();
+        var completions = new ArrayList<Runnable>();
+
+        var keys = (delegatedMap != null) ? new ArrayList<>(delegatedMap.keySet()) : table.keySet();
+
+        for (var key : keys) {
+            removeInternal(key, completions, false);
+        }
+
+        complete(completions);
+
+        if (changePublisher.hasSubscribers()) {
+            changePublisher.publish(new Change<>(Change.Type.CLEAR, null, null, null));
+        }
+    }
+
+
+    /**
+     * Returns the value of the slot; the expired value is invisible until it is evicted.
+     */
+    @SuppressWarnings("unchecked")
+    private V valueOf(Object slot) {
+        if (!(slot instanceof Node)) {
+            return (V) slot;
+        }
+
+        var node = (Node<K, V>) slot;
+        var value = node.value;
+
+        return (value != null && expireAfterWriteNanos > 0 && isExpired(node, System.nanoTime())) ? null : value;
+    }
+
+    /**
+     * Returns the node of the slot, creating it if the slot contains the value only. The expired value
+     * is evicted, so the key is treated as absent. Must be called inside the compute() method.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<K, V> nodeOf(K key, Object slot, List<Runnable> completions) {
+        if (slot instanceof Node) {
+            var node = (Node<K, V>) slot;
+            var expiredValue = node.value;
+
+            if (expiredValue != null && expireAfterWriteNanos > 0 && isExpired(node, System.nanoTime())) {
+                // The node is unlinked from the write order by the next write
+                node.value = null;
+                node.remove(completions);
+                bufferChange(key, null, expiredValue);
+                size.decrement();
+
+                if (evictionListener != null) {
+                    completions.add(() -> evictionListener.accept(key, expiredValue));
+                }
+            }
+        }
+
+        if (delegatedMap != null) {
+            var node = (slot instanceof Node) ? (Node<K, V>) slot : new Node<K, V>(key, null);
+
+            // The delegated map may be changed directly, so the value is read on each access
+            node.value = delegatedMap.get(key);
+
+            return node;
+        }
+
+        return (slot instanceof Node)
+                ? (Node<K, V>) slot
+                : new Node<>(key, (V) slot);
+    }
+
+    /**
+     * Returns the slot content: the node if the key is awaited or the map is bounded, otherwise the value.
+     * If the map is delegated, only the node of the awaited key is kept.
+     * Must be called inside the compute() method.
+     */
+    private Object compact(Node<K, V> node) {
+        if (delegatedMap != null) {
+            return (node.awaiters != null) ? node : null;
+        }
+
+        return (node.awaiters != null || (bounded && node.value != null)) ? node : node.value;
+    }
+
+    /**
+     * Computes the slot of the key; if the map is delegated, even the absent slot, since the key may exist
+     * in the delegated map only.
+     */
+    private void compute(K key, BiFunction<K, Object, Object> remapping) {
+        if (delegatedMap != null) {
+            table.compute(key, remapping);
+        } else {
+            table.computeIfPresent(key, remapping);
+        }
+    }
+
+    private void unregister(K key, Object awaiter) {
+        var completions = new ArrayList<Runnable>(0);
+
+        table.computeIfPresent(key, (k, slot) -> {
+            if (!(slot instanceof Node)) {
+                return slot;
+            }
+
+            var node = nodeOf(k, slot, completions);
+            node.unlink(awaiter);
+
+            return compact(node);
+        });
+
+        complete(completions);
+        changePublisher.flush();
+    }
+
+
+    /**
+     * Iterates the snapshot of the mappings and removes keys through this map.
+     */
+    private final class ViewIterator<T> implements Iterator<T> {
+
+        private final Iterator<Map.Entry<K, V>> entries;
+        private final Function<Map.Entry<K, V>, T> extractor;
+        private Map.Entry<K, V> last;
+
+
+        ViewIterator(Function<Map.Entry<K, V>, T> extractor) {
+            this.entries = entries();
+            this.extractor = extractor;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return entries.hasNext();
+        }
+
+        @Override
+        public T next() {
+            last = entries.next();
+            return extractor.apply(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+
+            AwaitableHashMap.this.remove(last.getKey());
+            last = null;
+        }
+    }
+
+
+    /**
+     * The table slot of an awaited key or of any key if the map is bounded.
+     *
+     * <p>
+     * All the methods must be called inside the compute() method of the table.
+     */
+    private static final class Node<K, V> {
+
+        private final K key;
+        private volatile V value;
+        private Awaiter<K, V> awaiters;
+
+        // Used only if the map is bounded
+        private long version;
+        private long writeTime;
+        private long weight;
+        private Node<K, V> older;
+        private Node<K, V> newer;
+
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+
+        void push(Awaiter<K, V> awaiter) {
+            awaiter.next = awaiters;
+            awaiters = awaiter;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T extends Awaiter<K, V>> T find(Class<?> type) {
+            for (var awaiter = awaiters; awaiter != null; awaiter = awaiter.next) {
+                if (type.isInstance(awaiter)) {
+                    return (T) awaiter;
+                }
+            }
+
+            return null;
+        }
+
+        void put(K key, V value, V previousValue, List<Runnable> completions) {
+            Awaiter<K, V> previous = null;
+
+            for (var awaiter = awaiters; awaiter != null; awaiter = awaiter.next) {
+                if (awaiter.put(key, value, previousValue, completions)) {
+                    unlink(previous, awaiter);
+                } else {
+                    previous = awaiter;
+                }
+            }
+        }
+
+        void remove(List<Runnable> completions) {
+            Awaiter<K, V> previous = null;
+
+            for (var awaiter = awaiters; awaiter != null; awaiter = awaiter.next) {
+                if (awaiter.remove(completions)) {
+                    unlink(previous, awaiter);
+                } else {
+                    previous = awaiter;
+                }
+            }
+        }
+
+        void unlink(Object owner) {
+            Awaiter<K, V> previous = null;
+
+            for (var awaiter = awaiters; awaiter != null; awaiter = awaiter.next) {
+                if (awaiter.belongsTo(owner)) {
+                    unlink(previous, awaiter);
+                    return;
+                }
+
+                previous = awaiter;
+            }
+        }
+
+        private void unlink(Awaiter<K, V> previous, Awaiter<K, V> awaiter) {
+            if (previous == null) {
+                awaiters = awaiter.next;
+            } else {
+                previous.next = awaiter.next;
+            }
+        }
+    }
+
+
+    /**
+     * The element of the awaiters stack of the key.
+     */
+    private abstract static class Awaiter<K, V> {
+
+        private Awaiter<K, V> next;
+
+
+        /**
+         * Is called when the value is put; returns {@code true} if the awaiter must be removed.
+         */
+        abstract boolean put(K key, V value, V previousValue, List<Runnable> completions);
+
+        /**
+         * Is called when the key is removed; returns {@code true} if the awaiter must be removed.
+         */
+        boolean remove(List<Runnable> completions) {
+            return false;
+        }
+
+        boolean belongsTo(Object owner) {
+            return owner == this;
+        }
+    }
+
+
+    /**
+     * Awaits adding the key.
+     */
+    private final class AddedAwaiter extends Awaiter<K, V> {
+
+        private final FinalizableCompletableFuture<V> future;
+
+
+        AddedAwaiter(K key) {
+            this.future = new FinalizableCompletableFuture<>(() -> unregister(key, this));
+        }
+
+
+        @Override
+        boolean put(K key, V value, V previousValue, List<Runnable> completions) {
+            if (previousValue == null) {
+                completions.add(() -> future.complete(value));
+                return true;
+            }
+
+            return false;
+        }
     }
 
+
+    /**
+     * Awaits removing the key.
+     */
+    private final class RemovedAwaiter extends Awaiter<K, V> {
+
+        private final FinalizableCompletableFuture<Boolean> future;
+
+
+        RemovedAwaiter(K key) {
+            this.future = new FinalizableCompletableFuture<>(() -> unregister(key, this));
+        }
+
+
+        @Override
+        boolean put(K key, V value, V previousValue, List<Runnable> completions) {
+            return false;
+        }
+
+        @Override
+        boolean remove(List<Runnable> completions) {
+            completions.add(() -> future.complete(true));
+            return true;
+        }
+    }
+
+
+    /**
+     * Awaits adding a set of keys by counting them down.
+     */
+    private final class KeysAwaiter {
+
+        private final Collection<K> keys;
+        private final Map<K, V> values;
+        private final boolean any;
+        private final AtomicInteger remaining;
+        private final FinalizableCompletableFuture<Map<K, V>> future;
+
+
+        KeysAwaiter(Collection<K> keys, Map<K, V> values, boolean any) {
+            this.keys = keys;
+            this.values = values;
+            this.any = any;
+            // One more until all the keys are registered
+            this.remaining = new AtomicInteger(any ? 1 : keys.size() + 1);
+            this.future = new FinalizableCompletableFuture<>(this::unregisterAll);
+        }
+
+
+        /**
+         * Is called when one of the keys is added or with {@code null} when all the keys are registered.
+         */
+        public void added(K key, V value) {
+            if (key != null) {
+                if (any) {
+                    future.complete(Map.of(key, value));
+                    return;
+                }
+                values.put(key, value);
+            }
+
+            if (remaining.decrementAndGet() == 0 && !any) {
+                future.complete(values);
+            }
+        }
+
+        private void unregisterAll() {
+            for (var key : keys) {
+                unregister(key, this);
+            }
+        }
+    }
+
+
+    /**
+     * Links the {@link KeysAwaiter} to one of its keys.
+     */
+    private final class KeyOfKeysAwaiter extends Awaiter<K, V> {
+
+        private final KeysAwaiter keysAwaiter;
+
+
+        KeyOfKeysAwaiter(KeysAwaiter keysAwaiter) {
+            this.keysAwaiter = keysAwaiter;
+        }
+
+
+        @Override
+        boolean put(K key, V value, V previousValue, List<Runnable> completions) {
+            if (previousValue == null) {
+                completions.add(() -> keysAwaiter.added(key, value));
+                return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        boolean belongsTo(Object owner) {
+            return owner == keysAwaiter;
+        }
+    }
+
+
+    /**
+     * Awaits a value matching the predicate.
+     */
+    private final class ValueAwaiter extends Awaiter<K, V> {
+
+        private final Predicate<? super V> predicate;
+        private final FinalizableCompletableFuture<V> future;
+
+
+        ValueAwaiter(K key, Predicate<? super V> predicate) {
+            this.predicate = predicate;
+            this.future = new FinalizableCompletableFuture<>(() -> unregister(key, this));
+        }
+
+
+        @Override
+        boolean put(K key, V value, V previousValue, List<Runnable> completions) {
+            if (!future.isDone() && predicate.test(value)) {
+                completions.add(() -> future.complete(value));
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+
+    /**
+     * The change of the map.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     */
+    public static final class Change<K, V> {
+
+        /**
+         * The type of the change.
+         */
+        public enum Type {
+
+            /**
+             * The key has been added.
+             */
+            PUT,
+
+            /**
+             * The value of the key has been replaced.
+             */
+            REPLACE,
+
+            /**
+             * The key has been removed.
+             */
+            REMOVE,
+
+            /**
+             * The map has been cleared.
+             */
+            CLEAR
+        }
+
+
+        private final Type type;
+        private final K key;
+        private final V value;
+        private final V previousValue;
+
+
+        Change(Type type, K key, V value, V previousValue) {
+            this.type = type;
+            this.key = key;
+            this.value = value;
+            this.previousValue = previousValue;
+        }
+
+
+        /**
+         * Returns the type of the change.
+         */
+        public Type type() {
+            return type;
+        }
+
+        /**
+         * Returns the changed key or {@code null} if the map has been cleared.
+         */
+        public K key() {
+            return key;
+        }
+
+        /**
+         * Returns the new value of the key or {@code null} if the key has been removed.
+         */
+        public V value() {
+            return value;
+        }
+
+        /**
+         * Returns the previous value of the key or {@code null} if the key has been added.
+         */
+        public V previousValue() {
+            return previousValue;
+        }
+
+
+        @Override
+        public String toString() {
+            return type + "(" + key + ", " + value + ", " + previousValue + ")";
+        }
+    }
 }
@@ -0,0 +1,733 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.StampedLock;
+
+import ru.asynchronizer.util.ObjectRef;
+
+/**
+ * Maps {@code long} keys to values and provides an ability to await adding and removing keys.
+ *
+ * <p>
+ * This class repeats the {@link AwaitableHashMap} functionality but is specialized for primitive keys,
+ * for example, correlation identifiers. Keys are not boxed, and each key occupies a single slot of
+ * an open-addressing hash table. The slot holds the value itself, or, only while the key is awaited,
+ * a small record with the value and its awaiters. The table is split into stripes which are locked
+ * independently; reading a value does not acquire a lock in the absence of concurrent writes.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see AwaitableHashMap
+ */
+public final class AwaitableLongHashMap<V> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private static final int MAX_SEGMENT_COUNT = 1 << 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+
+    public AwaitableLongHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of the map.
+     *
+     * @param initialCapacity the expected number of keys
+     * @param concurrencyLevel the expected number of concurrently updating threads
+     */
+    public AwaitableLongHashMap(int initialCapacity, int concurrencyLevel) {
+        var segmentCount = ceilingPowerOfTwo(Math.min(Math.max(concurrencyLevel, 1), MAX_SEGMENT_COUNT));
+        var segmentCapacity = ceilingPowerOfTwo((int) (Math.max(initialCapacity, 1) / (segmentCount * LOAD_FACTOR)) + 1);
+
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+
+        for (var i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+
+    /**
+     * Returns the number of keys in this map.
+     */
+    public int size() {
+        var size = 0L;
+
+        for (var segment : segments) {
+            size += segment.size;
+        }
+
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a snapshot of the keys contained in this map.
+     */
+    public long[] keys() {
+        var keys = new long[16];
+        var count = 0;
+
+        for (var segment : segments) {
+            var stamp = segment.lock.readLock();
+
+            try {
+                var table = segment.table;
+
+                for (var i = 0; i < table.slots.length; i++) {
+                    if (valueOf(table.slots[i]) != null) {
+                        if (count == keys.length) {
+                            keys = Arrays.copyOf(keys, 2 * count);
+                        }
+                        keys[count++] = table.keys[i];
+                    }
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        return Arrays.copyOf(keys, count);
+    }
+
+    /**
+     * Returns a snapshot of the values contained in this map.
+     */
+    public Collection<V> values() {
+        var values = new ArrayList<V>();
+
+        for (var segment : segments) {
+            var stamp = segment.lock.readLock();
+
+            try {
+                for (var slot : segment.table.slots) {
+                    V value = valueOf(slot);
+
+                    if (value != null) {
+                        values.add(value);
+                    }
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        return values;
+    }
+
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     */
+    public V get(long key) {
+        var hash = hash(key);
+        var segment = segmentFor(hash);
+
+        // Try to read without locking
+        var stamp = segment.lock.tryOptimisticRead();
+
+        if (stamp != 0) {
+            V value = valueOf(segment.table.find(key, hash));
+
+            if (segment.lock.validate(stamp)) {
+                return value;
+            }
+        }
+
+        stamp = segment.lock.readLock();
+
+        try {
+            return valueOf(segment.table.find(key, hash));
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old value
+     * is replaced by the specified value.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+
+        var hash = hash(key);
+        var segment = segmentFor(hash);
+
+        Object previousValue;
+        CompletableFuture<Object> keyAwaiter = null;
+
+        var stamp = segment.lock.writeLock();
+
+        try {
+            var table = segment.table;
+            var index = table.indexOf(key, hash);
+
+            if (index < 0) {
+                previousValue = null;
+                segment.insert(key, hash, value);
+            } else if (table.slots[index] instanceof KeyAwaiters) {
+                var awaiters = (KeyAwaiters) table.slots[index];
+                previousValue = awaiters.value;
+                awaiters.value = value;
+
+                // If the key is just added, not replaced
+                if (previousValue == null) {
+                    segment.size++;
+                    keyAwaiter = awaiters.onAdded;
+                    awaiters.onAdded = null;
+                    segment.compact(index);
+                }
+            } else {
+                previousValue = table.slots[index];
+                table.slots[index] = value;
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+
+        // The awaiter must be completed outside the lock
+        if (keyAwaiter != null) {
+            keyAwaiter.complete(value);
+        }
+
+        return (V) previousValue;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        var hash = hash(key);
+        var segment = segmentFor(hash);
+
+        Object previousValue;
+        CompletableFuture<Boolean> keyAwaiter = null;
+
+        var stamp = segment.lock.writeLock();
+
+        try {
+            var table = segment.table;
+            var index = table.indexOf(key, hash);
+
+            if (index < 0) {
+                return null;
+            }
+
+            if (table.slots[index] instanceof KeyAwaiters) {
+                var awaiters = (KeyAwaiters) table.slots[index];
+                previousValue = awaiters.value;
+
+                if (previousValue == null) {
+                    return null;
+                }
+
+                awaiters.value = null;
+                keyAwaiter = awaiters.onRemoved;
+                awaiters.onRemoved = null;
+                segment.compact(index);
+            } else {
+                previousValue = table.slots[index];
+                segment.delete(index);
+            }
+
+            segment.size--;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+
+        // The awaiter must be completed outside the lock
+        if (keyAwaiter != null) {
+            keyAwaiter.complete(true);
+        }
+
+        return (V) previousValue;
+    }
+
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key.
+     * The returned future will be completed as soon as the specified key is added.
+     * The future is completed with an added value. In case the key already exists,
+     * the method returns a completed future with a value of the specified key.
+     */
+    public CompletableFuture<V> await(long key) {
+        return await(key, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key.
+     * The returned future will be completed as soon as the specified key is added or
+     * the given timeout is expired. The future is completed normally with an added value
+     * if the specified key has been added before the given timeout; otherwise
+     * exceptionally with a {@link TimeoutException}. In case the key already exists,
+     * the method returns a completed future with a value of the specified key.
+     */
+    public CompletableFuture<V> await(long key, long timeout, TimeUnit unit) {
+        return awaitInternal(key, timeout, unit, null, false);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a value of the specified key.
+     * The returned future will be completed as soon as the specified key is added or
+     * the given timeout is expired. The future is completed normally with an added value
+     * if the specified key has been added before the given timeout; otherwise
+     * with the given default value. In case the key already exists,
+     * the method returns a completed future with a value of the specified key.
+     */
+    public CompletableFuture<V> awaitOrDefault(long key, V defaultValue, long timeout, TimeUnit unit) {
+        return awaitInternal(key, timeout, unit, defaultValue, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<V> awaitInternal(long key, long timeout, TimeUnit unit, V defaultValue, boolean withDefaultValue) {
+        var value = get(key);
+
+        // If the key already exists, return its value immediately
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        var hash = hash(key);
+        var segment = segmentFor(hash);
+
+        CompletableFuture<Object> keyAwaiter;
+
+        var stamp = segment.lock.writeLock();
+
+        try {
+            var table = segment.table;
+            var index = table.indexOf(key, hash);
+
+            if (index < 0) {
+                keyAwaiter = newAddedAwaiter(key);
+                var awaiters = new KeyAwaiters();
+                awaiters.onAdded = keyAwaiter;
+                segment.insert(key, hash, awaiters);
+            } else if (table.slots[index] instanceof KeyAwaiters) {
+                var awaiters = (KeyAwaiters) table.slots[index];
+
+                // If the key already exists, return its value
+                if (awaiters.value != null) {
+                    return CompletableFuture.completedFuture((V) awaiters.value);
+                }
+
+                // If the key awaiter already exists, return it
+                if (awaiters.onAdded != null) {
+                    return (CompletableFuture<V>) (CompletableFuture<?>) awaiters.onAdded;
+                }
+
+                keyAwaiter = newAddedAwaiter(key);
+                awaiters.onAdded = keyAwaiter;
+            } else {
+                return CompletableFuture.completedFuture((V) table.slots[index]);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+
+        if (timeout > 0 && unit != null) {
+            if (withDefaultValue) {
+                keyAwaiter.completeOnTimeout(defaultValue, timeout, unit);
+            } else {
+                keyAwaiter.orTimeout(timeout, unit);
+            }
+        }
+
+        return (CompletableFuture<V>) (CompletableFuture<?>) keyAwaiter;
+    }
+
+    private CompletableFuture<Object> newAddedAwaiter(long key) {
+        var keyAwaiterRef = new ObjectRef<CompletableFuture<Object>>();
+
+        // The key awaiter is removed automatically as soon as completed
+        keyAwaiterRef.set(new FinalizableCompletableFuture<>(() -> removeAddedAwaiter(key, keyAwaiterRef.get())));
+
+        return keyAwaiterRef.get();
+    }
+
+    private void removeAddedAwaiter(long key, CompletableFuture<Object> keyAwaiter) {
+        var hash = hash(key);
+        var segment = segmentFor(hash);
+        var stamp = segment.lock.writeLock();
+
+        try {
+            var index = segment.table.indexOf(key, hash);
+
+            if (index >= 0 && segment.table.slots[index] instanceof KeyAwaiters) {
+                var awaiters = (KeyAwaiters) segment.table.slots[index];
+
+                if (awaiters.onAdded == keyAwaiter) {
+                    awaiters.onAdded = null;
+                    segment.compact(index);
+                }
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await the specified key is removed.
+     * The returned future will be completed as soon as the specified key is removed.
+     * In case the key does not exist, the method returns a completed future.
+     */
+    public CompletableFuture<Boolean> awaitRemove(long key) {
+        return awaitRemove(key, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await the specified key is removed.
+     * The returned future will be completed as soon as the specified key is removed or
+     * the given timeout is expired. The future is completed normally if the specified key
+     * has been removed before the given timeout; otherwise exceptionally with a {@link TimeoutException}.
+     * In case the key does not exist, the method returns a completed future.
+     */
+    public CompletableFuture<Boolean> awaitRemove(long key, long timeout, TimeUnit unit) {
+        // If the key does not exist, return a completed future immediately
+        if (!containsKey(key)) {
+            return CompletableFutureUtil.completedFalse();
+        }
+
+        var hash = hash(key);
+        var segment = segmentFor(hash);
+
+        CompletableFuture<Boolean> keyAwaiter;
+
+        var stamp = segment.lock.writeLock();
+
+        try {
+            var table = segment.table;
+            var index = table.indexOf(key, hash);
+
+            if (index < 0) {
+                return CompletableFutureUtil.completedFalse();
+            }
+
+            KeyAwaiters awaiters;
+
+            if (table.slots[index] instanceof KeyAwaiters) {
+                awaiters = (KeyAwaiters) table.slots[index];
+
+                // If the key does not exist, return a completed future
+                if (awaiters.value == null) {
+                    return CompletableFutureUtil.completedFalse();
+                }
+
+                // If the key awaiter already exists, return it
+                if (awaiters.onRemoved != null) {
+                    return awaiters.onRemoved;
+                }
+            } else {
+                awaiters = new KeyAwaiters();
+                awaiters.value = table.slots[index];
+                table.slots[index] = awaiters;
+            }
+
+            keyAwaiter = newRemovedAwaiter(key);
+            awaiters.onRemoved = keyAwaiter;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+
+        if (timeout > 0 && unit != null) {
+            keyAwaiter.orTimeout(timeout, unit);
+        }
+
+        return keyAwaiter;
+    }
+
+    private CompletableFuture<Boolean> newRemovedAwaiter(long key) {
+        var keyAwaiterRef = new ObjectRef<CompletableFuture<Boolean>>();
+
+        // The key awaiter is removed automatically as soon as completed
+        keyAwaiterRef.set(new FinalizableCompletableFuture<>(() -> removeRemovedAwaiter(key, keyAwaiterRef.get())));
+
+        return keyAwaiterRef.get();
+    }
+
+    private void removeRemovedAwaiter(long key, CompletableFuture<Boolean> keyAwaiter) {
+        var hash = hash(key);
+        var segment = segmentFor(hash);
+        var stamp = segment.lock.writeLock();
+
+        try {
+            var index = segment.table.indexOf(key, hash);
+
+            if (index >= 0 && segment.table.slots[index] instanceof KeyAwaiters) {
+                var awaiters = (KeyAwaiters) segment.table.slots[index];
+
+                if (awaiters.onRemoved == keyAwaiter) {
+                    awaiters.onRemoved = null;
+                    segment.compact(index);
+                }
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Clears this map and completes all key removal awaiters.
+     */
+    public void clear() {
+        var keyAwaiters = new ArrayList<CompletableFuture<Boolean>>();
+
+        for (var segment : segments) {
+            var stamp = segment.lock.writeLock();
+
+            try {
+                segment.clear(keyAwaiters);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+
+        // The awaiters must be completed outside the lock
+        keyAwaiters.forEach(awaiter -> awaiter.complete(true));
+    }
+
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> 48) & segmentMask];
+    }
+
+    private static long hash(long key) {
+        // The MurmurHash3 finalizer
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V valueOf(Object slot) {
+        return (slot instanceof KeyAwaiters)
+                ? (V) ((KeyAwaiters) slot).value
+                : (V) slot;
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return (value <= 1) ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+
+    /**
+     * The slot content while the key is awaited.
+     */
+    private static final class KeyAwaiters {
+
+        private Object value;
+        private CompletableFuture<Object> onAdded;
+        private CompletableFuture<Boolean> onRemoved;
+    }
+
+
+    /**
+     * The open-addressing hash table with linear probing.
+     */
+    private static final class Table {
+
+        private final long[] keys;
+        private final Object[] slots;
+        private final int mask;
+
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.slots = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+
+
+        int indexOf(long key, long hash) {
+            var index = (int) hash & mask;
+
+            for (var i = 0; i <= mask; i++) {
+                if (slots[index] == null) {
+                    return -1;
+                }
+
+                if (keys[index] == key) {
+                    return index;
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            return -1;
+        }
+
+        Object find(long key, long hash) {
+            var index = indexOf(key, hash);
+            return (index >= 0) ? slots[index] : null;
+        }
+
+        void insert(long key, long hash, Object slot) {
+            var index = (int) hash & mask;
+
+            while (slots[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = key;
+            slots[index] = slot;
+        }
+    }
+
+
+    /**
+     * The independently locked part of the map.
+     */
+    private static final class Segment {
+
+        private final StampedLock lock;
+        private Table table;
+        private int used;
+        private volatile int size;
+
+
+        Segment(int capacity) {
+            this.lock = new StampedLock();
+            this.table = new Table(capacity);
+        }
+
+
+        /**
+         * Inserts a new key. Must be called under the write lock.
+         */
+        void insert(long key, long hash, Object slot) {
+            if (used + 1 > LOAD_FACTOR * table.slots.length) {
+                resize(2 * table.slots.length);
+            }
+
+            table.insert(key, hash, slot);
+            used++;
+
+            if (!(slot instanceof KeyAwaiters)) {
+                size++;
+            }
+        }
+
+        /**
+         * Deletes the slot with the given index. Must be called under the write lock.
+         */
+        void delete(int index) {
+            var keys = table.keys;
+            var slots = table.slots;
+            var mask = table.mask;
+
+            // Shift the following keys back instead of leaving a tombstone
+            var next = index;
+
+            while (true) {
+                next = (next + 1) & mask;
+
+                if (slots[next] == null) {
+                    break;
+                }
+
+                var home = (int) hash(keys[next]) & mask;
+
+                // If the home slot of the next key is cyclically in (index, next], it stays
+                if ((index <= next) ? (index < home && home <= next) : (index < home || home <= next)) {
+                    continue;
+                }
+
+                keys[index] = keys[next];
+                slots[index] = slots[next];
+                index = next;
+            }
+
+            keys[index] = 0;
+            slots[index] = null;
+            used--;
+        }
+
+        /**
+         * Replaces the awaiters record with the value if the key is not awaited anymore.
+         * Must be called under the write lock.
+         */
+        void compact(int index) {
+            var awaiters = (KeyAwaiters) table.slots[index];
+
+            if (awaiters.onAdded == null && awaiters.onRemoved == null) {
+                if (awaiters.value != null) {
+                    table.slots[index] = awaiters.value;
+                } else {
+                    delete(index);
+                }
+            }
+        }
+
+        /**
+         * Removes all the values and collects the removal awaiters. Must be called under the write lock.
+         */
+        void clear(List<CompletableFuture<Boolean>> removedAwaiters) {
+            var oldTable = table;
+            var newTable = new Table(oldTable.slots.length);
+            var newUsed = 0;
+
+            // Only the keys which are awaited to be added remain
+            for (var i = 0; i < oldTable.slots.length; i++) {
+                if (oldTable.slots[i] instanceof KeyAwaiters) {
+                    var awaiters = (KeyAwaiters) oldTable.slots[i];
+
+                    if (awaiters.onRemoved != null) {
+                        removedAwaiters.add(awaiters.onRemoved);
+                        awaiters.onRemoved = null;
+                    }
+
+                    awaiters.value = null;
+
+                    if (awaiters.onAdded != null) {
+                        newTable.insert(oldTable.keys[i], hash(oldTable.keys[i]), awaiters);
+                        newUsed++;
+                    }
+                }
+            }
+
+            table = newTable;
+            used = newUsed;
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            var oldTable = table;
+            var newTable = new Table(capacity);
+
+            for (var i = 0; i < oldTable.slots.length; i++) {
+                if (oldTable.slots[i] != null) {
+                    newTable.insert(oldTable.keys[i], hash(oldTable.keys[i]), oldTable.slots[i]);
+                }
+            }
+
+            table = newTable;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package ru.asynchronizer.util.concurrent;
 
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -37,22 +36,37 @@ import ru.asynchronizer.util.IDisposable;
  * is in active wait. On the other hand all tasks are awaited sequentially thus in case
  * of long queue fast tasks can await completion longer. This negative effect can be minimized
  * by decreasing the task poll timeout.
+ *
+ * <p>
+ * The number of tasks awaited at the same time can be limited with the queue capacity. When the queue is full
+ * a newly enqueued task is handled in accordance with the {@linkplain AdmissionPolicy admission policy}: it can be
+ * rejected, or it can wait for a free slot. Thus, the poll cycle does not grow infinitely when the tasks come faster
+ * than they are completed. The {@link #pendingSize()}, {@link #oldestTaskAge()} and {@link #pollCycleDuration()}
+ * methods can be used to observe the queue load.
  */
 public class AwaitableQueue implements IDisposable {
 
     public static final Duration DEFAULT_TASK_QUEUE_TIMEOUT = Duration.ofMillis(5000);
     public static final Duration DEFAULT_TASK_POLL_TIMEOUT = Duration.ofMillis(100);
     public static final Duration DEFAULT_TASK_AWAIT_TIMEOUT = Duration.ofMinutes(5);
+    public static final int DEFAULT_CAPACITY = Integer.MAX_VALUE;
+    public static final AdmissionPolicy DEFAULT_ADMISSION_POLICY = AdmissionPolicy.REJECT;
 
     private final long taskQueueTimeout;
     private final long taskPollTimeout;
     private final Duration taskAwaitTimeout;
+    private final int capacity;
+    private final AdmissionPolicy admissionPolicy;
     private final Object taskQueueSignal;
-    private final Map<Long, AwaitableTask<?>> taskQueue;
+    private final ConcurrentNavigableMap<Long, AwaitableTask<?>> taskQueue;
+    private final ConcurrentNavigableMap<Long, PendingTask<?>> pendingTasks;
+    private final Semaphore taskSlots;
     private final AtomicLong taskSequence;
     private final AtomicBoolean disposed;
     private final Future<?> taskQueueHandlerFuture;
 
+    private volatile long pollCycleDuration;
+
     /**
      * Creates a new instance of the queue with default settings.
      *
@@ -65,6 +79,22 @@ public class AwaitableQueue implements IDisposable {
                 taskQueueExecutor);
     }
 
+    /**
+     * Creates a new instance of the queue with the given capacity and default timeouts.
+     *
+     * @param capacity defines how many tasks can be awaited at the same time
+     * @param admissionPolicy defines what to do with a task enqueued when the queue is full
+     * @param taskQueueExecutor the executor to await tasks
+     */
+    public AwaitableQueue(int capacity, AdmissionPolicy admissionPolicy, ExecutorService taskQueueExecutor) {
+        this(DEFAULT_TASK_QUEUE_TIMEOUT,
+                DEFAULT_TASK_POLL_TIMEOUT,
+                DEFAULT_TASK_AWAIT_TIMEOUT,
+                capacity,
+                admissionPolicy,
+                taskQueueExecutor);
+    }
+
     /**
      * Creates a new instance of the queue with given timeouts.
      *
@@ -78,11 +108,44 @@ public class AwaitableQueue implements IDisposable {
      * @see #DEFAULT_TASK_AWAIT_TIMEOUT
      */
     public AwaitableQueue(Duration taskQueueTimeout, Duration taskPollTimeout, Duration taskAwaitTimeout, ExecutorService taskQueueExecutor) {
+        this(taskQueueTimeout,
+                taskPollTimeout,
+                taskAwaitTimeout,
+                DEFAULT_CAPACITY,
+                DEFAULT_ADMISSION_POLICY,
+                taskQueueExecutor);
+    }
+
+    /**
+     * Creates a new instance of the queue with given timeouts and capacity.
+     *
+     * @param taskQueueTimeout defines how long to sleep if the queue is empty
+     * @param taskPollTimeout defines how long to wait for a task completion during the poll cycle
+     * @param taskAwaitTimeout defines how long to wait for a task completion before it will be canceled by timeout
+     * @param capacity defines how many tasks can be awaited at the same time
+     * @param admissionPolicy defines what to do with a task enqueued when the queue is full
+     * @param taskQueueExecutor the executor to await tasks
+     *
+     * @see #DEFAULT_TASK_QUEUE_TIMEOUT
+     * @see #DEFAULT_TASK_POLL_TIMEOUT
+     * @see #DEFAULT_TASK_AWAIT_TIMEOUT
+     * @see #DEFAULT_CAPACITY
+     * @see #DEFAULT_ADMISSION_POLICY
+     */
+    public AwaitableQueue(Duration taskQueueTimeout, Duration taskPollTimeout, Duration taskAwaitTimeout, int capacity, AdmissionPolicy admissionPolicy, ExecutorService taskQueueExecutor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+
         this.taskQueueTimeout = taskQueueTimeout.toMillis();
         this.taskPollTimeout = taskPollTimeout.toMillis();
         this.taskAwaitTimeout = taskAwaitTimeout;
+        this.capacity = capacity;
+        this.admissionPolicy = admissionPolicy;
         this.taskQueueSignal = new Object();
         this.taskQueue = new ConcurrentSkipListMap<>();
+        this.pendingTasks = new ConcurrentSkipListMap<>();
+        this.taskSlots = new Semaphore(capacity);
         this.taskSequence = new AtomicLong(0);
         this.disposed = new AtomicBoolean(false);
         this.taskQueueHandlerFuture = taskQueueExecutor.submit(this::taskQueueHandler);
@@ -95,6 +158,44 @@ public class AwaitableQueue implements IDisposable {
         return taskQueue.size();
     }
 
+    /**
+     * Returns the maximum number of tasks which can be awaited at the same time.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of tasks waiting for a free slot in this queue.
+     *
+     * @see AdmissionPolicy#WAIT
+     * @see AdmissionPolicy#DEFER
+     */
+    public int pendingSize() {
+        return pendingTasks.size();
+    }
+
+    /**
+     * Returns how long the oldest task of this queue has been awaited including the time it waited for a free slot.
+     */
+    public Duration oldestTaskAge() {
+        var oldestTask = taskQueue.firstEntry();
+        var oldestPendingTask = pendingTasks.firstEntry();
+
+        var now = System.nanoTime();
+        var oldestTaskAge = (oldestTask != null) ? now - oldestTask.getValue().enqueueTime : 0;
+        var oldestPendingTaskAge = (oldestPendingTask != null) ? now - oldestPendingTask.getValue().enqueueTime : 0;
+
+        return Duration.ofNanos(Math.max(oldestTaskAge, oldestPendingTaskAge));
+    }
+
+    /**
+     * Returns the duration of the latest poll cycle i.e. how long it took to poll all the tasks once.
+     */
+    public Duration pollCycleDuration() {
+        return Duration.ofNanos(pollCycleDuration);
+    }
+
     /**
      * Adds the given task to the queue and returns an instance of the {@link CompletableFuture} to await the completion result.
      *
@@ -110,6 +211,10 @@ public class AwaitableQueue implements IDisposable {
     /**
      * Adds the given task to the queue and returns an instance of the {@link CompletableFuture} to await the completion result.
      *
+     * <p>
+     * If the queue is full the task is handled in accordance with the {@linkplain AdmissionPolicy admission policy}.
+     * The timeout includes the time the task waits for a free slot.
+     *
      * @param awaitable the task
      * @param timeout the task timeout which defines how long to wait for the task completion before it will be canceled
      * @param <T> the task result type
@@ -117,28 +222,133 @@ public class AwaitableQueue implements IDisposable {
      * @return the task future
      */
     public <T> CompletableFuture<T> enqueue(IAwaitable<T> awaitable, Duration timeout) {
+        var context = Asynchronizer.context();
+        var cancellationToken = context.cancellationToken();
+
+        if (cancellationToken.isCancelled()) {
+            return CompletableFutureUtil.failed(new CancellationException("The operation has been cancelled."));
+        }
+
         if (!disposed.get()) {
             var taskId = taskSequence.getAndIncrement();
-            var taskAwaiter = awaitable.getAwaiter();
-            var taskFuture = new FinalizableCompletableFuture<T>(() -> removeTask(taskId));
-            var task = new AwaitableTask<T>(taskAwaiter, taskFuture);
+            var enqueueTime = System.nanoTime();
+            var span = AsyncTracer.newChildSpan(context, awaitable, Span.Kind.AWAIT, enqueueTime);
 
-            if (timeout != null && !timeout.isNegative() && !timeout.isZero()) {
-                taskFuture.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
-            }
+            // If there is a free slot and nobody waits for it, add the task immediately
+            if (pendingTasks.isEmpty() && taskSlots.tryAcquire()) {
+                IAwaiter<T> taskAwaiter;
 
-            taskQueue.put(taskId, task);
+                try {
+                    taskAwaiter = awaitable.getAwaiter();
+                } catch (RuntimeException e) {
+                    taskSlots.release();
+                    throw e;
+                }
 
-            synchronized (taskQueueSignal) {
-                taskQueueSignal.notify();
+                var taskFuture = new FinalizableCompletableFuture<T>(() -> removeTask(taskId));
+                setTimeout(taskFuture, timeout);
+                setCancellation(taskFuture, cancellationToken);
+                setSpan(taskFuture, span);
+                startSpan(span);
+                addTask(taskId, new AwaitableTask<>(taskAwaiter, taskFuture, enqueueTime));
+
+                return taskFuture;
+            }
+
+            if (admissionPolicy == AdmissionPolicy.REJECT) {
+                return CompletableFutureUtil.failed(new RejectedExecutionException("The queue is full. Capacity: " + capacity + "."));
             }
 
+            // Otherwise, the task waits for a free slot
+            var taskAwaiter = (admissionPolicy == AdmissionPolicy.WAIT) ? awaitable.getAwaiter() : null;
+            var taskFuture = new FinalizableCompletableFuture<T>(() -> removeTask(taskId));
+            setTimeout(taskFuture, timeout);
+            setCancellation(taskFuture, cancellationToken);
+            setSpan(taskFuture, span);
+            pendingTasks.put(taskId, new PendingTask<>(awaitable, taskAwaiter, taskFuture, enqueueTime, span));
+
+            // The slot could be freed while the task was being added
+            admitPendingTasks();
+
             return taskFuture;
         }
 
         return CompletableFutureUtil.failed(new IllegalStateException());
     }
 
+    private static void setTimeout(CompletableFuture<?> taskFuture, Duration timeout) {
+        if (timeout != null && !timeout.isNegative() && !timeout.isZero()) {
+            taskFuture.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static void setCancellation(CompletableFuture<?> taskFuture, CancellationToken cancellationToken) {
+        if (cancellationToken != CancellationToken.NONE) {
+            var subscription = cancellationToken.onCancel(() -> taskFuture.cancel(true));
+            taskFuture.whenComplete((r, e) -> subscription.dispose());
+        }
+    }
+
+    private static void setSpan(CompletableFuture<?> taskFuture, Span span) {
+        if (span != null) {
+            taskFuture.whenComplete((r, e) -> span.end());
+        }
+    }
+
+    private static void startSpan(Span span) {
+        // The queue time of the task is the time it waited for a free slot
+        if (span != null) {
+            span.start();
+        }
+    }
+
+    private void addTask(long taskId, AwaitableTask<?> task) {
+        taskQueue.put(taskId, task);
+
+        // The task could be completed before it was added
+        if (task.future.isDone()) {
+            removeTask(taskId);
+            return;
+        }
+
+        synchronized (taskQueueSignal) {
+            taskQueueSignal.notify();
+        }
+    }
+
+    private void admitPendingTasks() {
+        while (!pendingTasks.isEmpty() && !disposed.get() && taskSlots.tryAcquire()) {
+            var pendingTask = pendingTasks.pollFirstEntry();
+
+            if (pendingTask != null) {
+                admitTask(pendingTask.getKey(), pendingTask.getValue());
+            } else {
+                taskSlots.release();
+            }
+        }
+    }
+
+    private <T> void admitTask(long taskId, PendingTask<T> pendingTask) {
+        if (pendingTask.future.isDone()) {
+            pendingTask.dispose();
+            taskSlots.release();
+            return;
+        }
+
+        IAwaiter<T> taskAwaiter;
+
+        try {
+            taskAwaiter = pendingTask.getAwaiter();
+        } catch (Throwable e) {
+            taskSlots.release();
+            pendingTask.future.completeExceptionally(e);
+            return;
+        }
+
+        startSpan(pendingTask.span);
+        addTask(taskId, new AwaitableTask<>(taskAwaiter, pendingTask.future, pendingTask.enqueueTime));
+    }
+
     private void taskQueueHandler() {
         while (true) {
             // Wait until the queue is empty
@@ -162,6 +372,8 @@ public class AwaitableQueue implements IDisposable {
             }
 
             // Await the tasks sequentially
+            var pollCycleStart = System.nanoTime();
+
             try {
                 for (var entry : taskQueue.entrySet()) {
                     if (disposed.get()) {
@@ -172,6 +384,8 @@ public class AwaitableQueue implements IDisposable {
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
+            } finally {
+                pollCycleDuration = System.nanoTime() - pollCycleStart;
             }
         }
 
@@ -183,16 +397,34 @@ public class AwaitableQueue implements IDisposable {
         var task = taskQueue.remove(taskId);
 
         if (task != null) {
-            task.dispose();
+            try {
+                task.dispose();
+            } finally {
+                // The slot is free, so the next pending task can be added
+                taskSlots.release();
+                admitPendingTasks();
+            }
+            return;
+        }
+
+        @SuppressWarnings("resource")
+        var pendingTask = pendingTasks.remove(taskId);
+
+        if (pendingTask != null) {
+            pendingTask.dispose();
         }
     }
 
     private void cancelAllTasks() {
         try {
+            for (var entry : new ArrayList<>(pendingTasks.entrySet())) {
+                entry.getValue().cancel();
+            }
             for (var entry : new ArrayList<>(taskQueue.entrySet())) {
                 entry.getValue().cancel();
             }
         } finally {
+            pendingTasks.clear();
             taskQueue.clear();
         }
     }
@@ -221,11 +453,36 @@ public class AwaitableQueue implements IDisposable {
     }
 
 
+    /**
+     * Defines what to do with a task enqueued when the queue is full.
+     */
+    public enum AdmissionPolicy {
+
+        /**
+         * The task is rejected, its future is completed exceptionally with a {@link RejectedExecutionException}.
+         */
+        REJECT,
+
+        /**
+         * The task waits for a free slot. The {@linkplain IAwaitable#getAwaiter() awaiter} is requested immediately.
+         */
+        WAIT,
+
+        /**
+         * The task waits for a free slot. The {@linkplain IAwaitable#getAwaiter() awaiter} is requested only when
+         * the slot is acquired, so an {@link IAwaitable} which starts the underlying operation lazily is not started
+         * until then.
+         */
+        DEFER
+    }
+
+
     @RequiredArgsConstructor
     private static class AwaitableTask<T> implements IDisposable {
 
         private final IAwaiter<T> awaiter;
         private final CompletableFuture<T> future;
+        private final long enqueueTime;
 
         public void await(long timeout, TimeUnit unit) throws InterruptedException {
             try {
@@ -254,4 +511,30 @@ public class AwaitableQueue implements IDisposable {
             awaiter.dispose();
         }
     }
+
+
+    @RequiredArgsConstructor
+    private static class PendingTask<T> implements IDisposable {
+
+        private final IAwaitable<T> awaitable;
+        private final IAwaiter<T> awaiter;
+        private final CompletableFuture<T> future;
+        private final long enqueueTime;
+        private final Span span;
+
+        public IAwaiter<T> getAwaiter() {
+            return (awaiter != null) ? awaiter : awaitable.getAwaiter();
+        }
+
+        public void cancel() {
+            future.cancel(true);
+        }
+
+        @Override
+        public void dispose() {
+            if (awaiter != null) {
+                awaiter.dispose();
+            }
+        }
+    }
 }
@@ -0,0 +1,514 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps sorted keys to values and provides an ability to await adding a key within a range.
+ *
+ * <p>
+ * Unlike {@link AwaitableHashMap} which awaits exact keys, this map awaits any key which is not less than
+ * the given one ({@link #awaitCeiling(Object)}), any key within the given range ({@link #awaitRange(Object, Object)})
+ * or any key with the given prefix ({@link #awaitPrefix(String)}). Ceiling awaiters are indexed by their
+ * lower bounds, so adding a key wakes up all the ceilings which are not greater than the key without checks.
+ * Range and prefix awaiters are kept in an interval tree, so adding a key visits only the ranges which
+ * contain the key, besides a logarithmic path.
+ *
+ * <p>
+ * Awaiters are completed using the completion executor, by default, the {@link Asynchronizer#commonPool()}.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class AwaitableSortedMap<K, V> {
+
+    private final ConcurrentSkipListMap<K, V> delegatedMap;
+    private final Comparator<? super K> comparator;
+    private final ConcurrentSkipListMap<AwaiterKey<K>, RangeAwaiter> ceilingAwaiters;
+    private final IntervalIndex rangeAwaiters;
+    private final AtomicLong awaiterSequence;
+    private final Executor completionExecutor;
+
+
+    public AwaitableSortedMap() {
+        this(null);
+    }
+
+    /**
+     * Creates a map sorted according to the given comparator.
+     *
+     * @param comparator the comparator of keys, or {@code null} for the natural ordering
+     */
+    public AwaitableSortedMap(Comparator<? super K> comparator) {
+        this(comparator, Asynchronizer.commonPool());
+    }
+
+    /**
+     * Creates a map sorted according to the given comparator.
+     *
+     * @param comparator the comparator of keys, or {@code null} for the natural ordering
+     * @param completionExecutor the executor to complete awaiters
+     */
+    @SuppressWarnings("unchecked")
+    public AwaitableSortedMap(Comparator<? super K> comparator, Executor completionExecutor) {
+        this.comparator = (comparator != null) ? comparator : (Comparator<? super K>) Comparator.naturalOrder();
+        this.delegatedMap = new ConcurrentSkipListMap<>(this.comparator);
+
+        Comparator<AwaiterKey<K>> awaiterComparator = (a, b) -> {
+            var result = this.comparator.compare(a.key, b.key);
+            return (result != 0) ? result : Long.compare(a.id, b.id);
+        };
+
+        this.ceilingAwaiters = new ConcurrentSkipListMap<>(awaiterComparator);
+        this.rangeAwaiters = new IntervalIndex(awaiterComparator);
+        this.awaiterSequence = new AtomicLong();
+        this.completionExecutor = completionExecutor;
+    }
+
+
+    /**
+     * Returns a {@link NavigableSet} view of the keys contained in this map.
+     */
+    public NavigableSet<K> keySet() {
+        return Collections.unmodifiableNavigableSet(delegatedMap.navigableKeySet());
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     */
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(delegatedMap.values());
+    }
+
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     */
+    public V get(K key) {
+        return delegatedMap.get(key);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old value
+     * is replaced by the specified value.
+     */
+    public V put(K key, V value) {
+        var previousValue = delegatedMap.put(key, value);
+
+        // If the key is just added, not replaced
+        if (previousValue == null) {
+            var matchedAwaiters = new ArrayList<RangeAwaiter>(0);
+            var bound = new AwaiterKey<>(key, Long.MAX_VALUE);
+
+            // All the ceilings which are not greater than the key match
+            if (!ceilingAwaiters.isEmpty()) {
+                for (var awaiter : ceilingAwaiters.headMap(bound, true).values()) {
+                    if (ceilingAwaiters.remove(awaiter.indexKey, awaiter)) {
+                        matchedAwaiters.add(awaiter);
+                    }
+                }
+            }
+
+            if (!rangeAwaiters.isEmpty()) {
+                rangeAwaiters.removeContaining(key, matchedAwaiters);
+            }
+
+            if (!matchedAwaiters.isEmpty()) {
+                complete(matchedAwaiters, Map.entry(key, value));
+            }
+        }
+
+        return previousValue;
+    }
+
+    private void complete(List<RangeAwaiter> awaiters, Map.Entry<K, V> entry) {
+        Runnable completeAll = () -> awaiters.forEach(a -> a.future.complete(entry));
+
+        try {
+            completionExecutor.execute(completeAll);
+        } catch (RejectedExecutionException e) {
+            // The executor is shut down, so complete the awaiters here
+            completeAll.run();
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     */
+    public V remove(K key) {
+        return delegatedMap.remove(key);
+    }
+
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a key which is greater than or equal to
+     * the specified one. The returned future will be completed as soon as such a key is added.
+     * The future is completed with the added key and its value. In case such a key already exists,
+     * the method returns a completed future with the least of such keys.
+     */
+    public CompletableFuture<Map.Entry<K, V>> awaitCeiling(K key) {
+        return awaitCeiling(key, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a key which is greater than or equal to
+     * the specified one. The returned future will be completed as soon as such a key is added or
+     * the given timeout is expired. The future is completed normally with the added key and its value
+     * if such a key has been added before the given timeout; otherwise exceptionally with
+     * a {@link TimeoutException}. In case such a key already exists, the method returns a completed
+     * future with the least of such keys.
+     */
+    public CompletableFuture<Map.Entry<K, V>> awaitCeiling(K key, long timeout, TimeUnit unit) {
+        return awaitInterval(key, null, timeout, unit);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a key within the specified range.
+     * The returned future will be completed as soon as such a key is added. The future is completed
+     * with the added key and its value. In case such a key already exists, the method returns
+     * a completed future with the least of such keys.
+     *
+     * @param fromKey the low endpoint (inclusive) of the range
+     * @param toKey the high endpoint (exclusive) of the range
+     */
+    public CompletableFuture<Map.Entry<K, V>> awaitRange(K fromKey, K toKey) {
+        return awaitRange(fromKey, toKey, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a key within the specified range.
+     * The returned future will be completed as soon as such a key is added or the given timeout
+     * is expired. The future is completed normally with the added key and its value if such a key
+     * has been added before the given timeout; otherwise exceptionally with a {@link TimeoutException}.
+     * In case such a key already exists, the method returns a completed future with the least of such keys.
+     *
+     * @param fromKey the low endpoint (inclusive) of the range
+     * @param toKey the high endpoint (exclusive) of the range
+     */
+    public CompletableFuture<Map.Entry<K, V>> awaitRange(K fromKey, K toKey, long timeout, TimeUnit unit) {
+        if (comparator.compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("The low endpoint of the range must not be greater than the high one.");
+        }
+
+        return awaitInterval(fromKey, toKey, timeout, unit);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a key which starts with the specified prefix.
+     * The returned future will be completed as soon as such a key is added. The future is completed
+     * with the added key and its value. In case such a key already exists, the method returns
+     * a completed future with the least of such keys.
+     *
+     * <p>
+     * The method is applicable only to a map of {@link String} keys in the natural ordering.
+     */
+    public CompletableFuture<Map.Entry<K, V>> awaitPrefix(String prefix) {
+        return awaitPrefix(prefix, 0, null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} instance to await a key which starts with the specified prefix.
+     * The returned future will be completed as soon as such a key is added or the given timeout
+     * is expired. The future is completed normally with the added key and its value if such a key
+     * has been added before the given timeout; otherwise exceptionally with a {@link TimeoutException}.
+     * In case such a key already exists, the method returns a completed future with the least of such keys.
+     *
+     * <p>
+     * The method is applicable only to a map of {@link String} keys in the natural ordering.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map.Entry<K, V>> awaitPrefix(String prefix, long timeout, TimeUnit unit) {
+        return awaitInterval((K) prefix, (K) prefixEnd(prefix), timeout, unit);
+    }
+
+    /**
+     * Returns the least string which is greater than all the strings with the given prefix,
+     * or {@code null} if there is no such a string.
+     */
+    private static String prefixEnd(String prefix) {
+        var chars = prefix.toCharArray();
+
+        for (var i = chars.length - 1; i >= 0; i--) {
+            if (chars[i] != Character.MAX_VALUE) {
+                chars[i]++;
+                return new String(chars, 0, i + 1);
+            }
+        }
+
+        return null;
+    }
+
+    private CompletableFuture<Map.Entry<K, V>> awaitInterval(K fromKey, K toKey, long timeout, TimeUnit unit) {
+        var entry = firstEntry(fromKey, toKey);
+
+        // If such a key already exists, return it immediately
+        if (entry != null) {
+            return CompletableFuture.completedFuture(Map.entry(entry.getKey(), entry.getValue()));
+        }
+
+        var awaiter = new RangeAwaiter(fromKey, toKey);
+
+        if (toKey != null) {
+            rangeAwaiters.add(awaiter);
+        } else {
+            ceilingAwaiters.put(awaiter.indexKey, awaiter);
+        }
+
+        if (timeout > 0 && unit != null) {
+            awaiter.future.orTimeout(timeout, unit);
+        }
+
+        // The key might be added while the awaiter was being registered
+        entry = firstEntry(fromKey, toKey);
+
+        if (entry != null && unregister(awaiter)) {
+            awaiter.future.complete(Map.entry(entry.getKey(), entry.getValue()));
+        }
+
+        return awaiter.future;
+    }
+
+    private Map.Entry<K, V> firstEntry(K fromKey, K toKey) {
+        var entry = delegatedMap.ceilingEntry(fromKey);
+        return (entry != null && (toKey == null || comparator.compare(entry.getKey(), toKey) < 0)) ? entry : null;
+    }
+
+    /**
+     * Removes the awaiter from its index; returns {@code true} if the awaiter has been there.
+     */
+    private boolean unregister(RangeAwaiter awaiter) {
+        return (awaiter.toKey != null)
+                ? rangeAwaiters.remove(awaiter)
+                : ceilingAwaiters.remove(awaiter.indexKey, awaiter);
+    }
+
+
+    /**
+     * The index key of an awaiter. Awaiters are ordered by the low endpoints of their ranges.
+     */
+    private static final class AwaiterKey<K> {
+
+        private final K key;
+        private final long id;
+
+
+        AwaiterKey(K key, long id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+
+    /**
+     * Awaits a key within the range.
+     */
+    private final class RangeAwaiter {
+
+        private final AwaiterKey<K> indexKey;
+        private final K toKey;
+        private final FinalizableCompletableFuture<Map.Entry<K, V>> future;
+
+        // Used only if the awaiter is kept in the interval index
+        private final int priority;
+        private boolean indexed;
+        private K maxToKey;
+        private RangeAwaiter left;
+        private RangeAwaiter right;
+
+
+        RangeAwaiter(K fromKey, K toKey) {
+            this.indexKey = new AwaiterKey<>(fromKey, awaiterSequence.incrementAndGet());
+            this.toKey = toKey;
+            this.priority = Long.hashCode(indexKey.id * 0x9E3779B97F4A7C15L);
+            // The awaiter is removed automatically as soon as completed
+            this.future = new FinalizableCompletableFuture<>(() -> unregister(this));
+        }
+
+
+        /**
+         * Returns {@code true} if the key is less than the high endpoint; the low endpoint is checked by the index.
+         */
+        boolean contains(K key) {
+            return toKey == null || comparator.compare(key, toKey) < 0;
+        }
+    }
+
+
+    /**
+     * Indexes range awaiters by their intervals. The index is a treap ordered by the low endpoints, each node
+     * of which keeps the greatest high endpoint of its subtree, so a lookup skips the subtrees which end before
+     * the key and the subtrees which start after it. The priorities of nodes are derived from the awaiter ids,
+     * so the tree is balanced on average.
+     *
+     * <p>
+     * All the methods but {@link #isEmpty()} are guarded by the monitor of the index.
+     */
+    private final class IntervalIndex {
+
+        private final Comparator<AwaiterKey<K>> awaiterComparator;
+        private volatile RangeAwaiter root;
+
+
+        IntervalIndex(Comparator<AwaiterKey<K>> awaiterComparator) {
+            this.awaiterComparator = awaiterComparator;
+        }
+
+
+        boolean isEmpty() {
+            return root == null;
+        }
+
+        synchronized void add(RangeAwaiter awaiter) {
+            awaiter.indexed = true;
+            root = insert(root, awaiter);
+        }
+
+        synchronized boolean remove(RangeAwaiter awaiter) {
+            if (!awaiter.indexed) {
+                return false;
+            }
+
+            awaiter.indexed = false;
+            root = delete(root, awaiter);
+
+            return true;
+        }
+
+        /**
+         * Removes the awaiters which ranges contain the key and adds them to the given list.
+         */
+        synchronized void removeContaining(K key, List<RangeAwaiter> matchedAwaiters) {
+            var first = matchedAwaiters.size();
+
+            collect(root, key, matchedAwaiters);
+
+            for (var i = first; i < matchedAwaiters.size(); i++) {
+                remove(matchedAwaiters.get(i));
+            }
+        }
+
+
+        private void collect(RangeAwaiter node, K key, List<RangeAwaiter> matchedAwaiters) {
+            // All the ranges of the subtree end before the key
+            if (node == null || comparator.compare(key, node.maxToKey) >= 0) {
+                return;
+            }
+
+            collect(node.left, key, matchedAwaiters);
+
+            // The range of the node and all the ranges of the right subtree start after the key
+            if (comparator.compare(node.indexKey.key, key) > 0) {
+                return;
+            }
+
+            if (node.contains(key)) {
+                matchedAwaiters.add(node);
+            }
+
+            collect(node.right, key, matchedAwaiters);
+        }
+
+        private RangeAwaiter insert(RangeAwaiter node, RangeAwaiter awaiter) {
+            if (node == null) {
+                awaiter.left = null;
+                awaiter.right = null;
+                update(awaiter);
+                return awaiter;
+            }
+
+            if (awaiterComparator.compare(awaiter.indexKey, node.indexKey) < 0) {
+                node.left = insert(node.left, awaiter);
+                update(node);
+                return (node.left.priority > node.priority) ? rotateRight(node) : node;
+            }
+
+            node.right = insert(node.right, awaiter);
+            update(node);
+            return (node.right.priority > node.priority) ? rotateLeft(node) : node;
+        }
+
+        private RangeAwaiter delete(RangeAwaiter node, RangeAwaiter awaiter) {
+            if (node == awaiter) {
+                var merged = merge(node.left, node.right);
+                node.left = null;
+                node.right = null;
+                return merged;
+            }
+
+            if (awaiterComparator.compare(awaiter.indexKey, node.indexKey) < 0) {
+                node.left = delete(node.left, awaiter);
+            } else {
+                node.right = delete(node.right, awaiter);
+            }
+
+            update(node);
+            return node;
+        }
+
+        private RangeAwaiter merge(RangeAwaiter left, RangeAwaiter right) {
+            if (left == null) {
+                return right;
+            }
+
+            if (right == null) {
+                return left;
+            }
+
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                update(left);
+                return left;
+            }
+
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+
+        private RangeAwaiter rotateRight(RangeAwaiter node) {
+            var left = node.left;
+            node.left = left.right;
+            left.right = node;
+            update(node);
+            update(left);
+            return left;
+        }
+
+        private RangeAwaiter rotateLeft(RangeAwaiter node) {
+            var right = node.right;
+            node.right = right.left;
+            right.left = node;
+            update(node);
+            update(right);
+            return right;
+        }
+
+        private void update(RangeAwaiter node) {
+            var maxToKey = node.toKey;
+
+            if (node.left != null && comparator.compare(node.left.maxToKey, maxToKey) > 0) {
+                maxToKey = node.left.maxToKey;
+            }
+
+            if (node.right != null && comparator.compare(node.right.maxToKey, maxToKey) > 0) {
+                maxToKey = node.right.maxToKey;
+            }
+
+            node.maxToKey = maxToKey;
+        }
+    }
+}
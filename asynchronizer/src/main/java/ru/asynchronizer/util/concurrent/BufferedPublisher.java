@@ -0,0 +1,221 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes items to subscribers asynchronously.
+ *
+ * <p>
+ * Each subscriber has its own bounded buffer and receives items according to its demand. Publishing never
+ * blocks: if a subscriber does not keep up and its buffer is overflowed, the subscription is terminated
+ * with an {@link IllegalStateException}, so the subscriber knows it has missed items. Items are delivered
+ * to each subscriber sequentially, in the publishing order, using the given executor.
+ *
+ * @param <T> the type of published items
+ */
+@Slf4j
+final class BufferedPublisher<T> implements Flow.Publisher<T> {
+
+    private final int bufferSize;
+    private final Executor executor;
+    private final List<BufferedSubscription> subscriptions;
+
+
+    BufferedPublisher(int bufferSize, Executor executor) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The buffer size must be positive.");
+        }
+
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+
+    /**
+     * Returns {@code true} if there is at least one subscriber, so items should be published.
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Offers the item to all the current subscribers.
+     */
+    public void publish(T item) {
+        buffer(item);
+        flush();
+    }
+
+    /**
+     * Adds the item to the buffers of all the current subscribers without delivering it. It allows to buffer
+     * items in the order of updates made under a lock, and deliver them with the {@link #flush()} method after
+     * the lock is released, since the subscribers may be invoked by the calling thread.
+     */
+    public void buffer(T item) {
+        for (var subscription : subscriptions) {
+            subscription.buffer(item);
+        }
+    }
+
+    /**
+     * Delivers the buffered items to the subscribers.
+     */
+    public void flush() {
+        for (var subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+
+        var subscription = new BufferedSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscription.signal();
+    }
+
+
+    private final class BufferedSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final ArrayBlockingQueue<T> buffer;
+        private final AtomicLong demand;
+        private final AtomicInteger signals;
+        private volatile boolean subscribed;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+
+        BufferedSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+            this.demand = new AtomicLong();
+            this.signals = new AtomicInteger();
+        }
+
+
+        void buffer(T item) {
+            if (cancelled || error != null) {
+                return;
+            }
+
+            // The subscription is terminated on delivery
+            if (!buffer.offer(item)) {
+                error = new IllegalStateException("The subscriber does not keep up, the buffer of " + bufferSize + " items is overflowed.");
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                terminate(new IllegalArgumentException("The number of requested items must be positive."));
+                return;
+            }
+
+            demand.getAndAccumulate(n, (current, added) -> {
+                var sum = current + added;
+                return (sum < 0) ? Long.MAX_VALUE : sum;
+            });
+
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            signal();
+        }
+
+        private void terminate(Throwable error) {
+            this.error = error;
+            subscriptions.remove(this);
+            signal();
+        }
+
+        void signal() {
+            // Only one thread delivers items at a time, the others just notify it
+            if (signals.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::deliver);
+                } catch (RejectedExecutionException e) {
+                    cancelled = true;
+                    subscriptions.remove(this);
+                    buffer.clear();
+                }
+            }
+        }
+
+        private void deliver() {
+            var missed = 1;
+
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+
+                    if (!invoke(() -> subscriber.onSubscribe(this))) {
+                        cancel();
+                    }
+                }
+
+                while (!cancelled) {
+                    if (error != null) {
+                        cancelled = true;
+                        subscriptions.remove(this);
+                        invoke(() -> subscriber.onError(error));
+                        break;
+                    }
+
+                    if (demand.get() == 0) {
+                        break;
+                    }
+
+                    var item = buffer.poll();
+
+                    if (item == null) {
+                        break;
+                    }
+
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+
+                    if (!invoke(() -> subscriber.onNext(item))) {
+                        cancel();
+                    }
+                }
+
+                if (cancelled) {
+                    buffer.clear();
+                }
+
+                missed = signals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private boolean invoke(Runnable method) {
+            try {
+                method.run();
+                return true;
+            } catch (Throwable e) {
+                log.atError()
+                        .setMessage("The subscriber has thrown an exception. The subscription has been cancelled.")
+                        .setCause(e)
+                        .log();
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.*;
+
+import ru.asynchronizer.util.IDisposable;
+
+/**
+ * Propagates a notification that the operation should be canceled.
+ *
+ * <p>
+ * The token is cancelled explicitly with the {@link #cancel()} method, when its deadline is passed,
+ * or when its parent token is cancelled. The token set to {@linkplain IAsyncContext#setCancellationToken(CancellationToken)
+ * the async context} is inherited by all the asynchronous work started in this context: the executors created by
+ * {@link IExecutorFactory} skip the tasks which token has been cancelled before they started, the {@link AwaitableQueue}
+ * and the {@link RepeatedCompletableFuture} stop waiting, and the {@link AsyncPipeline} stops between stages.
+ * Thus, the abandoned work, for example, of a client request which has timed out, does not waste resources.
+ *
+ * <pre>{@code
+ * var token = new CancellationToken(Duration.ofSeconds(5));
+ * context.setCancellationToken(token);
+ * ...
+ * token.throwIfCancelled();
+ * }</pre>
+ *
+ * <p>
+ * A token which is no longer needed should be {@linkplain #dispose() disposed} to release the deadline timer
+ * and the subscription to its parent.
+ */
+@Slf4j
+public final class CancellationToken implements IDisposable {
+
+    /**
+     * The token which is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken(null, null, false);
+
+    /**
+     * The key of the token in the async context.
+     */
+    static final ContextKey<CancellationToken> CONTEXT_KEY = new ContextKey<>("cancellationToken");
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final IDisposable NO_SUBSCRIPTION = () -> { };
+
+    private final boolean cancellable;
+    private final long deadline;
+    private final Set<Runnable> callbacks;
+    private final IDisposable parentSubscription;
+    private final CompletableFuture<Void> deadlineFuture;
+
+    private volatile boolean cancelled;
+
+
+    /**
+     * Creates a token which is cancelled explicitly only.
+     */
+    public CancellationToken() {
+        this(null, null, true);
+    }
+
+    /**
+     * Creates a token which is cancelled as soon as the given timeout is expired.
+     */
+    public CancellationToken(Duration timeout) {
+        this(null, timeout, true);
+    }
+
+    /**
+     * Creates a token which is cancelled as soon as the given parent is cancelled.
+     */
+    public CancellationToken(CancellationToken parent) {
+        this(parent, null, true);
+    }
+
+    /**
+     * Creates a token which is cancelled as soon as the given parent is cancelled or the given timeout is expired.
+     */
+    public CancellationToken(CancellationToken parent, Duration timeout) {
+        this(parent, timeout, true);
+    }
+
+    private CancellationToken(CancellationToken parent, Duration timeout, boolean cancellable) {
+        this.cancellable = cancellable;
+        this.callbacks = cancellable ? ConcurrentHashMap.newKeySet() : Set.of();
+
+        var deadline = (timeout != null) ? System.nanoTime() + Math.max(timeout.toNanos(), 0) : NO_DEADLINE;
+        var ownDeadline = (deadline != NO_DEADLINE);
+
+        // The child cannot live longer than its parent, and the parent timer cancels both;
+        // the deadlines are compared only if both exist, since their difference with NO_DEADLINE can overflow
+        if (parent != null && parent.deadline != NO_DEADLINE && (deadline == NO_DEADLINE || parent.deadline - deadline <= 0)) {
+            deadline = parent.deadline;
+            ownDeadline = false;
+        }
+
+        this.deadline = deadline;
+        this.parentSubscription = (parent != null) ? parent.onCancel(this::cancel) : null;
+
+        // The timer does not use the context-aware executors, since they skip the tasks of cancelled tokens
+        if (ownDeadline && !cancelled) {
+            this.deadlineFuture = new CompletableFuture<Void>().completeOnTimeout(null, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            this.deadlineFuture.thenRun(this::cancel);
+        } else {
+            this.deadlineFuture = null;
+        }
+    }
+
+
+    /**
+     * Returns {@code true} if the operation should be canceled.
+     */
+    public boolean isCancelled() {
+        return cancelled || (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0);
+    }
+
+    /**
+     * Throws a {@link CancellationException} if the operation should be canceled.
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("The operation has been cancelled.");
+        }
+    }
+
+    /**
+     * Returns the time left before the deadline, or {@code null} if the token has no deadline.
+     */
+    public Duration remaining() {
+        return (deadline != NO_DEADLINE) ? Duration.ofNanos(Math.max(deadline - System.nanoTime(), 0)) : null;
+    }
+
+
+    /**
+     * Cancels the token and invokes all its callbacks.
+     *
+     * @return {@code true} if the token has been cancelled by this call
+     */
+    public boolean cancel() {
+        if (!cancellable || cancelled) {
+            return false;
+        }
+
+        synchronized (callbacks) {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+        }
+
+        try {
+            for (var callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    log.atError().setMessage("The cancellation callback has failed.").setCause(e).log();
+                }
+            }
+        } finally {
+            callbacks.clear();
+            dispose();
+        }
+
+        return true;
+    }
+
+    /**
+     * Registers the callback invoked as soon as the token is cancelled. If the token has already been cancelled,
+     * the callback is invoked immediately. The callback should be short, since it can be invoked by the timer thread.
+     *
+     * @return the subscription to unregister the callback
+     */
+    public IDisposable onCancel(Runnable callback) {
+        if (!cancellable) {
+            return NO_SUBSCRIPTION;
+        }
+
+        // The callback instance must be unique to be removed properly
+        Runnable uniqueCallback = callback::run;
+
+        synchronized (callbacks) {
+            if (!cancelled) {
+                callbacks.add(uniqueCallback);
+                return () -> callbacks.remove(uniqueCallback);
+            }
+        }
+
+        callback.run();
+
+        return NO_SUBSCRIPTION;
+    }
+
+
+    /**
+     * Releases the deadline timer and the subscription to the parent token. The token is not cancelled.
+     */
+    @Override
+    public void dispose() {
+        if (parentSubscription != null) {
+            parentSubscription.dispose();
+        }
+
+        // Cancelling the timer future removes the scheduled timeout
+        if (deadlineFuture != null) {
+            deadlineFuture.cancel(false);
+        }
+    }
+}
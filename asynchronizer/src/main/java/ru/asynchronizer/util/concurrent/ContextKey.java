@@ -0,0 +1,113 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The typed key of a value stored in the {@link IAsyncContext}.
+ *
+ * <p>
+ * Unlike named properties, keys are compared by identity, so two components cannot collide even if
+ * they choose the same name. Each key gets a dense index when created, and its value is stored
+ * in the corresponding slot of the context, so reading the value is just an array load.
+ * Keys are meant to be created once and kept in static fields:
+ *
+ * <pre>{@code
+ * static final ContextKey<String> TENANT = new ContextKey<>("tenant");
+ *
+ * Asynchronizer.context().set(TENANT, "acme");
+ * var tenant = Asynchronizer.context().get(TENANT); // "acme"
+ * }</pre>
+ *
+ * @param <T> the type of the value
+ */
+public final class ContextKey<T> {
+
+    private static final Object REGISTRY_LOCK = new Object();
+    private static volatile ContextKey<?>[] registry = new ContextKey<?>[0];
+
+    private final String name;
+    private final Inheritance inheritance;
+    private final int index;
+
+
+    /**
+     * Creates a key which value is passed to asynchronous tasks.
+     *
+     * @param name the name of the key, used for diagnostics only
+     */
+    public ContextKey(String name) {
+        this(name, Inheritance.COPY);
+    }
+
+    /**
+     * Creates a key with the given inheritance rule.
+     *
+     * @param name the name of the key, used for diagnostics only
+     * @param inheritance the rule defining whether the value is passed to asynchronous tasks
+     */
+    public ContextKey(String name, Inheritance inheritance) {
+        this.name = Objects.requireNonNull(name);
+        this.inheritance = Objects.requireNonNull(inheritance);
+
+        synchronized (REGISTRY_LOCK) {
+            var keys = registry;
+            this.index = keys.length;
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            keys[index] = this;
+            registry = keys;
+        }
+    }
+
+
+    /**
+     * Returns the name of the key.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the rule defining whether the value is passed to asynchronous tasks.
+     */
+    public Inheritance inheritance() {
+        return inheritance;
+    }
+
+    /**
+     * Returns the index of the slot which keeps the value.
+     */
+    int index() {
+        return index;
+    }
+
+    /**
+     * Returns the key with the given index.
+     */
+    static ContextKey<?> byIndex(int index) {
+        return registry[index];
+    }
+
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+
+    /**
+     * Defines whether the value of a key is passed to asynchronous tasks.
+     */
+    public enum Inheritance {
+
+        /**
+         * The value is captured with the context and passed to asynchronous tasks.
+         */
+        COPY,
+
+        /**
+         * The value is visible in the current thread only and is cleared in asynchronous tasks.
+         */
+        CLEAR
+    }
+}
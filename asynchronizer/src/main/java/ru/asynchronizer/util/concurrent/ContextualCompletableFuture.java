@@ -0,0 +1,374 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The {@link AsyncCompletableFuture} which passes {@linkplain IAsyncContext the async context} to all its continuations.
+ *
+ * <p>
+ * Each dependent stage captures the context of the thread which registers it, and uses that context while
+ * the stage runs, regardless of the thread which completes the future or the executor given to the stage.
+ * The capture is reused while the context is not changed, and applying the context the thread already has
+ * does nothing, so the stages completed inline are not moved to another thread just to get the context back.
+ *
+ * @param <T> the result type returned by this future's join and get methods
+ *
+ * @see IAsyncContext
+ */
+public class ContextualCompletableFuture<T> extends AsyncCompletableFuture<T> {
+
+    private final IAsyncContext context;
+
+
+    public ContextualCompletableFuture() {
+        this(Asynchronizer.commonPool());
+    }
+
+    public ContextualCompletableFuture(Executor defaultExecutor) {
+        this(Asynchronizer.context(), defaultExecutor);
+    }
+
+    public ContextualCompletableFuture(IAsyncContext context, Executor defaultExecutor) {
+        super(defaultExecutor);
+        this.context = context;
+    }
+
+
+    public static <R> CompletableFuture<R> completedFuture(R value) {
+        var result = new ContextualCompletableFuture<R>();
+        result.complete(value);
+        return result;
+    }
+
+    public static <R> CompletionStage<R> completedStage(R value) {
+        return completedFuture(value);
+    }
+
+
+    public static <R> CompletableFuture<R> failedFuture(Throwable e) {
+        var result = new ContextualCompletableFuture<R>();
+        result.completeExceptionally(e);
+        return result;
+    }
+
+    public static <R> CompletionStage<R> failedStage(Throwable e) {
+        return failedFuture(e);
+    }
+
+
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new ContextualCompletableFuture<>(context, defaultExecutor());
+    }
+
+
+    // APPLY
+
+
+    @Override
+    public <U> CompletableFuture<U> thenApply(Function<? super T, ? extends U> fn) {
+        return super.thenApply(withContextFn(fn));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return super.thenApplyAsync(withContextFn(fn));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        return super.thenApplyAsync(withContextFn(fn), executor);
+    }
+
+    @Override
+    public <U, V> CompletableFuture<V> thenCombine(CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn) {
+        return super.thenCombine(other, withContextBiFn(fn));
+    }
+
+    @Override
+    public <U, V> CompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn) {
+        return super.thenCombineAsync(other, withContextBiFn(fn));
+    }
+
+    @Override
+    public <U, V> CompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
+        return super.thenCombineAsync(other, withContextBiFn(fn), executor);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> applyToEither(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return super.applyToEither(other, withContextFn(fn));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return super.applyToEitherAsync(other, withContextFn(fn));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn, Executor executor) {
+        return super.applyToEitherAsync(other, withContextFn(fn), executor);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return super.thenCompose(withContextFn(fn));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return super.thenComposeAsync(withContextFn(fn));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn, Executor executor) {
+        return super.thenComposeAsync(withContextFn(fn), executor);
+    }
+
+
+    // ACCEPT
+
+
+    @Override
+    public CompletableFuture<Void> thenAccept(Consumer<? super T> action) {
+        return super.thenAccept(withContextAction(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return super.thenAcceptAsync(withContextAction(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
+        return super.thenAcceptAsync(withContextAction(action), executor);
+    }
+
+    @Override
+    public <U> CompletableFuture<Void> thenAcceptBoth(CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action) {
+        return super.thenAcceptBoth(other, withContextBiAction(action));
+    }
+
+    @Override
+    public <U> CompletableFuture<Void> thenAcceptBothAsync(CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action) {
+        return super.thenAcceptBothAsync(other, withContextBiAction(action));
+    }
+
+    @Override
+    public <U> CompletableFuture<Void> thenAcceptBothAsync(CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action, Executor executor) {
+        return super.thenAcceptBothAsync(other, withContextBiAction(action), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptEither(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return super.acceptEither(other, withContextAction(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return super.acceptEitherAsync(other, withContextAction(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action, Executor executor) {
+        return super.acceptEitherAsync(other, withContextAction(action), executor);
+    }
+
+
+    // RUN
+
+
+    @Override
+    public CompletableFuture<Void> thenRun(Runnable action) {
+        return super.thenRun(withContext(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> thenRunAsync(Runnable action) {
+        return super.thenRunAsync(withContext(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> thenRunAsync(Runnable action, Executor executor) {
+        return super.thenRunAsync(withContext(action), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterBoth(CompletionStage<?> other, Runnable action) {
+        return super.runAfterBoth(other, withContext(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return super.runAfterBothAsync(other, withContext(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return super.runAfterBothAsync(other, withContext(action), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterEither(CompletionStage<?> other, Runnable action) {
+        return super.runAfterEither(other, withContext(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action) {
+        return super.runAfterEitherAsync(other, withContext(action));
+    }
+
+    @Override
+    public CompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return super.runAfterEitherAsync(other, withContext(action), executor);
+    }
+
+
+    // HANDLE
+
+
+    @Override
+    public <U> CompletableFuture<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return super.handle(withContextBiFn(fn));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return super.handleAsync(withContextBiFn(fn));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        return super.handleAsync(withContextBiFn(fn), executor);
+    }
+
+    @Override
+    public CompletableFuture<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return super.whenComplete(withContextBiAction(action));
+    }
+
+    @Override
+    public CompletableFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return super.whenCompleteAsync(withContextBiAction(action));
+    }
+
+    @Override
+    public CompletableFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action, Executor executor) {
+        return super.whenCompleteAsync(withContextBiAction(action), executor);
+    }
+
+    @Override
+    public CompletableFuture<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return super.exceptionally(withContextFn(fn));
+    }
+
+    @Override
+    public CompletableFuture<T> exceptionallyAsync(Function<Throwable, ? extends T> fn) {
+        return super.exceptionallyAsync(withContextFn(fn));
+    }
+
+    @Override
+    public CompletableFuture<T> exceptionallyAsync(Function<Throwable, ? extends T> fn, Executor executor) {
+        return super.exceptionallyAsync(withContextFn(fn), executor);
+    }
+
+    @Override
+    public CompletableFuture<T> exceptionallyCompose(Function<Throwable, ? extends CompletionStage<T>> fn) {
+        return super.exceptionallyCompose(withContextFn(fn));
+    }
+
+    @Override
+    public CompletableFuture<T> exceptionallyComposeAsync(Function<Throwable, ? extends CompletionStage<T>> fn) {
+        return super.exceptionallyComposeAsync(withContextFn(fn));
+    }
+
+    @Override
+    public CompletableFuture<T> exceptionallyComposeAsync(Function<Throwable, ? extends CompletionStage<T>> fn, Executor executor) {
+        return super.exceptionallyComposeAsync(withContextFn(fn), executor);
+    }
+
+
+    // COMPLETE
+
+
+    @Override
+    public CompletableFuture<T> completeAsync(Supplier<? extends T> supplier) {
+        return completeAsync(supplier, defaultExecutor());
+    }
+
+    @Override
+    public CompletableFuture<T> completeAsync(Supplier<? extends T> supplier, Executor executor) {
+        return super.completeAsync(withContextSupplier(supplier), executor);
+    }
+
+
+    // CONTEXT
+
+
+    private <A, R> Function<A, R> withContextFn(Function<? super A, ? extends R> fn) {
+        var capture = context.capture();
+
+        return a -> {
+            try (var ignored = capture.use()) {
+                return fn.apply(a);
+            }
+        };
+    }
+
+    private <A, B, R> BiFunction<A, B, R> withContextBiFn(BiFunction<? super A, ? super B, ? extends R> fn) {
+        var capture = context.capture();
+
+        return (a, b) -> {
+            try (var ignored = capture.use()) {
+                return fn.apply(a, b);
+            }
+        };
+    }
+
+    private <A> Consumer<A> withContextAction(Consumer<? super A> action) {
+        var capture = context.capture();
+
+        return a -> {
+            try (var ignored = capture.use()) {
+                action.accept(a);
+            }
+        };
+    }
+
+    private <A, B> BiConsumer<A, B> withContextBiAction(BiConsumer<? super A, ? super B> action) {
+        var capture = context.capture();
+
+        return (a, b) -> {
+            try (var ignored = capture.use()) {
+                action.accept(a, b);
+            }
+        };
+    }
+
+    private <R> Supplier<R> withContextSupplier(Supplier<? extends R> supplier) {
+        var capture = context.capture();
+
+        return () -> {
+            try (var ignored = capture.use()) {
+                return supplier.get();
+            }
+        };
+    }
+
+        private Runnable withContext(Runnable action) {
+        var capture = context.capture();
+
+        return () -> {
+            try (var ignored = capture.use()) {
+                action.run();
+            }
+        };
+    }
+}
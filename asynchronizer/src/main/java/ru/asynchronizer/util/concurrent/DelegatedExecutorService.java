@@ -55,12 +55,12 @@ public abstract class DelegatedExecutorService implements ExecutorService {
 
     @Override
     public <T> Future<T> submit(Runnable task, T result) {
-        return target.submit(wrapTask(task), result);
+        return target.submit(wrapSubmittedTask(task), result);
     }
 
     @Override
     public Future<?> submit(Runnable task) {
-        return target.submit(wrapTask(task));
+        return target.submit(wrapSubmittedTask(task));
     }
 
 
@@ -89,6 +89,14 @@ public abstract class DelegatedExecutorService implements ExecutorService {
         return task;
     }
 
+    /**
+     * Wraps the task which outcome is observed through the returned {@link Future}, unlike the tasks
+     * passed to the {@link #execute(Runnable)} method.
+     */
+    protected Runnable wrapSubmittedTask(Runnable task) {
+        return wrapTask(task);
+    }
+
     protected <T> Callable<T> wrapTask(Callable<T> task) {
         return task;
     }
@@ -19,23 +19,38 @@ public abstract class DelegatedScheduledExecutorService extends DelegatedExecuto
     }
 
 
+    /**
+     * Wraps the task which is run after the given delay. By default, it is wrapped as a submitted one.
+     */
+    protected Runnable wrapScheduledTask(Runnable task, long delay, TimeUnit unit) {
+        return wrapSubmittedTask(task);
+    }
+
+    /**
+     * Wraps the task which is run after the given delay. By default, it is wrapped as a submitted one.
+     */
+    protected <T> Callable<T> wrapScheduledTask(Callable<T> task, long delay, TimeUnit unit) {
+        return wrapTask(task);
+    }
+
+
     @Override
     public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
-        return target.schedule(wrapTask(task), delay, unit);
+        return target.schedule(wrapScheduledTask(task, delay, unit), delay, unit);
     }
 
     @Override
     public <T> ScheduledFuture<T> schedule(Callable<T> task, long delay, TimeUnit unit) {
-        return target.schedule(wrapTask(task), delay, unit);
+        return target.schedule(wrapScheduledTask(task, delay, unit), delay, unit);
     }
 
     @Override
     public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
-        return target.scheduleAtFixedRate(wrapTask(task), initialDelay, period, unit);
+        return target.scheduleAtFixedRate(wrapScheduledTask(task, initialDelay, unit), initialDelay, period, unit);
     }
 
     @Override
     public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
-        return target.scheduleWithFixedDelay(wrapTask(task), initialDelay, delay, unit);
+        return target.scheduleWithFixedDelay(wrapScheduledTask(task, initialDelay, unit), initialDelay, delay, unit);
     }
 }
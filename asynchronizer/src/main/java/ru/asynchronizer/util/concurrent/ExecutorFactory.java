@@ -1,5 +1,6 @@
 package ru.asynchronizer.util.concurrent;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.*;
@@ -16,6 +17,7 @@ public final class ExecutorFactory implements IExecutorFactory, IDisposable {
     private final Thread.UncaughtExceptionHandler threadExceptionHandler;
     private final IUncaughtExceptionHandler taskExceptionHandler;
     private volatile IUncaughtExceptionHandler userExceptionHandler;
+    private volatile TaskDecoratorChain taskDecorators;
 
 
     public ExecutorFactory(IAsyncContext context) {
@@ -24,6 +26,7 @@ public final class ExecutorFactory implements IExecutorFactory, IDisposable {
         this.threadExceptionHandler = this::handleThreadUncaughtException;
         this.taskExceptionHandler = this::handleTaskUncaughtException;
         this.userExceptionHandler = NULL_ERROR_HANDLER;
+        this.taskDecorators = TaskDecoratorChain.EMPTY;
     }
 
 
@@ -37,6 +40,16 @@ public final class ExecutorFactory implements IExecutorFactory, IDisposable {
         return createExecutor(owner, daemon, f -> Executors.newCachedThreadPool(f));
     }
 
+    @Override
+    public ExecutorService newBoundedElasticPool(Class<?> owner, int maxPoolSize, int queueCapacity, Duration keepAlive, SaturationPolicy saturationPolicy, boolean daemon) {
+        return createExecutor(owner, daemon, f -> {
+            // All the threads are core ones to start a new thread before queueing the task, and they time out when idle
+            var executor = new ThreadPoolExecutor(maxPoolSize, maxPoolSize, keepAlive.toNanos(), TimeUnit.NANOSECONDS, new LinkedBlockingQueue<>(queueCapacity), f, saturationPolicy.handler());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
     @Override
     public ExecutorService newFixedThreadPool(Class<?> owner, int poolSize, boolean daemon) {
         return createExecutor(owner, daemon, f -> Executors.newFixedThreadPool(poolSize, f));
@@ -49,7 +62,20 @@ public final class ExecutorFactory implements IExecutorFactory, IDisposable {
 
     @Override
     public ExecutorService newSingleThreadExecutor(Class<?> owner, boolean daemon) {
-        return createExecutor(owner, daemon, f -> Executors.newSingleThreadExecutor(f));
+        // Not Executors.newSingleThreadExecutor() since its wrapper hides the pool from the metrics;
+        // the context executor does not expose the pool, so it cannot be reconfigured anyway
+        return createExecutor(owner, daemon, f -> new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), f));
+    }
+
+    @Override
+    public ExecutorService newAdaptiveThreadPool(Class<?> owner, int minPoolSize, int maxPoolSize, boolean daemon) {
+        return createAdaptiveExecutor(owner, minPoolSize, maxPoolSize, daemon, f -> new ThreadPoolExecutor(minPoolSize, minPoolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), f));
+    }
+
+    @Override
+    public IPriorityExecutorService newPriorityAdaptiveThreadPool(Class<?> owner, int minPoolSize, int maxPoolSize, boolean daemon) {
+        var contextExecutor = createAdaptiveExecutor(owner, minPoolSize, maxPoolSize, daemon, f -> new PriorityExecutorService(minPoolSize, f));
+        return new DelegatedPriorityExecutorService(contextExecutor);
     }
 
     @Override
@@ -57,6 +83,43 @@ public final class ExecutorFactory implements IExecutorFactory, IDisposable {
         return createPriorityExecutor(owner, daemon, f -> new PriorityExecutorService(1, f));
     }
 
+    @Override
+    public ExecutorService newWorkStealingPool(Class<?> owner, int parallelism, boolean daemon) {
+        // The FIFO mode as in Executors.newWorkStealingPool() since the submitted tasks are never joined
+        return createExecutor(owner, daemon, f -> new ForkJoinPool(parallelism, f, null, true));
+    }
+
+    @Override
+    public ExecutorService newVirtualThreadPerTaskExecutor(Class<?> owner) {
+        return createExecutor(owner, true, true, f -> f.isVirtual() ? VirtualThreadSupport.newThreadPerTaskExecutor(f) : Executors.newCachedThreadPool(f));
+    }
+
+    @Override
+    public ExecutorService newVirtualThreadPool(Class<?> owner, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("The maximum concurrency must be positive.");
+        }
+
+        return createExecutor(owner, true, true, f -> {
+            if (!f.isVirtual()) {
+                return Executors.newFixedThreadPool(maxConcurrency, f);
+            }
+
+            // The tasks beyond the limit wait in their own virtual threads, which are cheap to park
+            var permits = new Semaphore(maxConcurrency);
+
+            return VirtualThreadSupport.newThreadPerTaskExecutor(task -> f.newThread(() -> {
+                permits.acquireUninterruptibly();
+
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            }));
+        });
+    }
+
     @Override
     public ScheduledExecutorService newScheduledThreadPool(Class<?> owner, int poolSize, boolean daemon) {
         return createScheduledExecutor(owner, daemon, f -> Executors.newScheduledThreadPool(poolSize, f));
@@ -64,7 +127,8 @@ public final class ExecutorFactory implements IExecutorFactory, IDisposable {
 
     @Override
     public ScheduledExecutorService newSingleThreadScheduledExecutor(Class<?> owner, boolean daemon) {
-        return createScheduledExecutor(owner, daemon, f -> Executors.newSingleThreadScheduledExecutor(f));
+        // Not Executors.newSingleThreadScheduledExecutor() since its wrapper hides the pool from the metrics
+        return createScheduledExecutor(owner, daemon, f -> new ScheduledThreadPoolExecutor(1, f));
     }
 
     @Override
@@ -77,6 +141,16 @@ public final class ExecutorFactory implements IExecutorFactory, IDisposable {
         this.userExceptionHandler = (exceptionHandler != null) ? exceptionHandler : NULL_ERROR_HANDLER;
     }
 
+    @Override
+    public synchronized void addTaskDecorator(ITaskDecorator decorator) {
+        taskDecorators = taskDecorators.with(decorator);
+    }
+
+    @Override
+    public synchronized void removeTaskDecorator(ITaskDecorator decorator) {
+        taskDecorators = taskDecorators.without(decorator);
+    }
+
     @Override
     public void dispose() {
 
@@ -88,24 +162,52 @@ public final class ExecutorFactory implements IExecutorFactory, IDisposable {
     }
 
 
-    private ExecutorService createExecutor(Class<?> owner, boolean daemon, Function<ThreadFactory, ? extends ExecutorService> supplier) {
-        var threadFactory = newThreadFactory(owner, daemon);
+    private ExecutorService createExecutor(Class<?> owner, boolean daemon, Function<AsyncContextThreadFactory, ? extends ExecutorService> supplier) {
+        return createExecutor(owner, daemon, false, supplier);
+    }
+
+    private ExecutorService createExecutor(Class<?> owner, boolean daemon, boolean virtual, Function<AsyncContextThreadFactory, ? extends ExecutorService> supplier) {
+        var threadFactory = new AsyncContextThreadFactory(owner, daemon, virtual, threadExceptionHandler);
         var innerExecutor = supplier.apply(threadFactory);
-        var contextExecutor = new AsyncContextExecutorService(innerExecutor, owner, context, executors::remove, taskExceptionHandler);
+        var metrics = new ExecutorMetrics(owner, threadFactory.poolNumber(), innerExecutor);
+        return registerExecutor(owner, innerExecutor, metrics, metrics::unregister);
+    }
+
+    private ExecutorService createAdaptiveExecutor(Class<?> owner, int minPoolSize, int maxPoolSize, boolean daemon, Function<AsyncContextThreadFactory, ? extends ThreadPoolExecutor> supplier) {
+        var threadFactory = new AsyncContextThreadFactory(owner, daemon, threadExceptionHandler);
+        var innerExecutor = supplier.apply(threadFactory);
+        var metrics = new ExecutorMetrics(owner, threadFactory.poolNumber(), innerExecutor);
+        var controller = new ThreadCountController(owner, threadFactory.poolNumber(), innerExecutor, metrics, minPoolSize, maxPoolSize);
+        var contextExecutor = registerExecutor(owner, innerExecutor, metrics, controller.andThen(metrics::unregister));
+        controller.start();
+        return contextExecutor;
+    }
+
+    private ExecutorService registerExecutor(Class<?> owner, ExecutorService innerExecutor, ExecutorMetrics metrics, IDisposable resources) {
+        var contextExecutor = new AsyncContextExecutorService(innerExecutor, owner, context, e -> {
+            resources.dispose();
+            return executors.remove(e);
+        }, taskExceptionHandler, metrics, () -> taskDecorators);
         executors.add(contextExecutor);
+        metrics.register();
         return contextExecutor;
     }
 
-    private IPriorityExecutorService createPriorityExecutor(Class<?> owner, boolean daemon, Function<ThreadFactory, IPriorityExecutorService> supplier) {
+    private IPriorityExecutorService createPriorityExecutor(Class<?> owner, boolean daemon, Function<AsyncContextThreadFactory, IPriorityExecutorService> supplier) {
         var contextExecutor = createExecutor(owner, daemon, supplier);
         return new DelegatedPriorityExecutorService(contextExecutor);
     }
 
     private ScheduledExecutorService createScheduledExecutor(Class<?> owner, boolean daemon, Function<ThreadFactory, ScheduledExecutorService> supplier) {
-        var threadFactory = newThreadFactory(owner, daemon);
+        var threadFactory = new AsyncContextThreadFactory(owner, daemon, threadExceptionHandler);
         var innerExecutor = supplier.apply(threadFactory);
-        var contextExecutor = new AsyncContextScheduledExecutorService(innerExecutor, owner, context, executors::remove, taskExceptionHandler);
+        var metrics = new ExecutorMetrics(owner, threadFactory.poolNumber(), innerExecutor);
+        var contextExecutor = new AsyncContextScheduledExecutorService(innerExecutor, owner, context, e -> {
+            metrics.unregister();
+            return executors.remove(e);
+        }, taskExceptionHandler, metrics, () -> taskDecorators);
         executors.add(contextExecutor);
+        metrics.register();
         return contextExecutor;
     }
 
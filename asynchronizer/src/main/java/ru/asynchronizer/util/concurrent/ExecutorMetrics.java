@@ -0,0 +1,238 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the metrics of an executor created by the {@link ExecutorFactory}.
+ *
+ * <p>
+ * The task counters and histograms are updated by the {@link AsyncContextRunnable} and {@link AsyncContextCallable}
+ * wrappers with striped counters, so the tasks do not contend on the metrics. The pool state is read from
+ * the underlying executor when requested.
+ */
+final class ExecutorMetrics implements IExecutorMetrics {
+
+    private final Class<?> owner;
+    private final ExecutorService executor;
+    private final String objectName;
+    private final LongAdder submitted;
+    private final LongAdder completed;
+    private final LongAdder failed;
+    private final LongAdder rejected;
+    private final LongAdder running;
+    private final LatencyHistogram queueTime;
+    private final LongAdder queueTimeTotal;
+    private final LongAdder queuedTasks;
+    private final LatencyHistogram runTime;
+
+
+    /**
+     * @param owner the class which uses the executor
+     * @param poolNumber the number of the pool of the owner
+     * @param executor the underlying executor
+     */
+    ExecutorMetrics(Class<?> owner, int poolNumber, ExecutorService executor) {
+        this.owner = owner;
+        this.executor = executor;
+        this.objectName = JmxUtil.objectName("Executor", owner, poolNumber);
+        this.submitted = new LongAdder();
+        this.completed = new LongAdder();
+        this.failed = new LongAdder();
+        this.rejected = new LongAdder();
+        this.running = new LongAdder();
+        this.queueTime = new LatencyHistogram();
+        this.queueTimeTotal = new LongAdder();
+        this.queuedTasks = new LongAdder();
+        this.runTime = new LatencyHistogram();
+
+        if (executor instanceof ThreadPoolExecutor) {
+            var pool = (ThreadPoolExecutor) executor;
+            pool.setRejectedExecutionHandler(countRejections(pool.getRejectedExecutionHandler()));
+        }
+    }
+
+
+    @Override
+    public String getOwner() {
+        return owner.getName();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return (int) running.sum();
+    }
+
+    @Override
+    public int getPoolSize() {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getPoolSize();
+        }
+
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getPoolSize();
+        }
+
+        // The executor starts a thread per task
+        return getActiveThreads();
+    }
+
+    @Override
+    public long getQueueSize() {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getQueuedSubmissionCount();
+        }
+
+        return 0;
+    }
+
+    @Override
+    public long getSubmittedTasks() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getFailedTasks() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getRejectedTasks() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long[] getQueueTimeHistogram() {
+        return queueTime.counts();
+    }
+
+    @Override
+    public long[] getRunTimeHistogram() {
+        return runTime.counts();
+    }
+
+    @Override
+    public long getQueueTimeMedianMicros() {
+        return queueTime.percentile(50);
+    }
+
+    @Override
+    public long getQueueTime99thPercentileMicros() {
+        return queueTime.percentile(99);
+    }
+
+    @Override
+    public long getRunTimeMedianMicros() {
+        return runTime.percentile(50);
+    }
+
+    @Override
+    public long getRunTime99thPercentileMicros() {
+        return runTime.percentile(99);
+    }
+
+
+    /**
+     * Returns the name of the MBean.
+     */
+    String objectName() {
+        return objectName;
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server.
+     */
+    void register() {
+        JmxUtil.register(this, objectName, owner);
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server.
+     */
+    void unregister() {
+        JmxUtil.unregister(objectName, owner);
+    }
+
+
+    /**
+     * Returns the total time in nanoseconds the started tasks waited in the queue.
+     */
+    long queueTimeTotal() {
+        return queueTimeTotal.sum();
+    }
+
+    /**
+     * Returns the number of the started tasks whose queue time has been recorded.
+     */
+    long queuedTasks() {
+        return queuedTasks.sum();
+    }
+
+
+    /**
+     * Counts the task passed to the executor.
+     */
+    void taskSubmitted() {
+        submitted.increment();
+    }
+
+    /**
+     * Counts the started task.
+     *
+     * @param submitTime the value of {@link System#nanoTime()} when the task was submitted, or {@code 0}
+     * if the queue time should not be recorded
+     *
+     * @return the value of {@link System#nanoTime()} when the task was started
+     */
+    long taskStarted(long submitTime) {
+        var startTime = System.nanoTime();
+
+        if (submitTime != 0) {
+            queueTime.record(startTime - submitTime);
+            queueTimeTotal.add(startTime - submitTime);
+            queuedTasks.increment();
+        }
+
+        running.increment();
+
+        return startTime;
+    }
+
+    /**
+     * Counts the ended task.
+     *
+     * @param startTime the value returned by the {@link #taskStarted(long)} method
+     * @param success {@code true} if the task has completed normally
+     */
+    void taskEnded(long startTime, boolean success) {
+        runTime.record(System.nanoTime() - startTime);
+        running.decrement();
+        (success ? completed : failed).increment();
+    }
+
+    /**
+     * Counts the task which has been skipped without running since it is cancelled; such a task is failed.
+     */
+    void taskSkipped() {
+        failed.increment();
+    }
+
+    private RejectedExecutionHandler countRejections(RejectedExecutionHandler handler) {
+        return (task, pool) -> {
+            rejected.increment();
+            handler.rejectedExecution(task, pool);
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends spans to a local file, one JSON object per line.
+ *
+ * <pre>{@code
+ * {"traceId":"5f0c...","spanId":"9a1e...","parentSpanId":"77d2...","kind":"TASK","name":"...","timestamp":"2024-01-01T00:00:00Z","queueTimeMicros":15,"runTimeMicros":230}
+ * }</pre>
+ */
+public class FileSpanSink implements ISpanSink {
+
+    private final Path file;
+
+
+    public FileSpanSink(Path file) {
+        this.file = file;
+    }
+
+
+    /**
+     * Returns the file the spans are appended to.
+     */
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public void export(List<Span> spans) throws IOException {
+        var lines = new StringBuilder(spans.size() * 200);
+
+        for (var span : spans) {
+            lines.append("{\"traceId\":\"").append(Long.toHexString(span.traceId()))
+                    .append("\",\"spanId\":\"").append(Long.toHexString(span.spanId()))
+                    .append("\",\"parentSpanId\":\"").append(Long.toHexString(span.parentSpanId()))
+                    .append("\",\"kind\":\"").append(span.kind())
+                    .append("\",\"name\":\"");
+            appendEscaped(lines, span.name());
+            lines.append("\",\"timestamp\":\"").append(span.timestamp())
+                    .append("\",\"queueTimeMicros\":").append(span.queueTime().toNanos() / 1000)
+                    .append(",\"runTimeMicros\":").append(span.runTime().toNanos() / 1000)
+                    .append("}\n");
+        }
+
+        Files.writeString(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void appendEscaped(StringBuilder builder, String value) {
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+}
@@ -30,6 +30,52 @@ public interface IAsyncContext {
      */
     void setProperty(String name, Object value);
 
+    /**
+     * Gets the value of the key. The default implementation supports no keys and returns {@code null}.
+     */
+    default <T> T get(ContextKey<T> key) {
+        return null;
+    }
+
+    /**
+     * Sets the value of the key. Unlike properties, the values of keys are not reported to observers.
+     * The default implementation supports no keys and throws an {@link UnsupportedOperationException}.
+     */
+    default <T> void set(ContextKey<T> key, T value) {
+        throw new UnsupportedOperationException("The context does not support keys. Key: " + key + ".");
+    }
+
+    /**
+     * Gets the cancellation token of the current operation, or {@link CancellationToken#NONE} if it is not set.
+     */
+    default CancellationToken cancellationToken() {
+        var token = get(CancellationToken.CONTEXT_KEY);
+        return (token != null) ? token : CancellationToken.NONE;
+    }
+
+    /**
+     * Sets the cancellation token of the current operation. The token is inherited by the asynchronous tasks.
+     */
+    default void setCancellationToken(CancellationToken token) {
+        set(CancellationToken.CONTEXT_KEY, token);
+    }
+
+    /**
+     * Opens the span of an operation which is a child of the current one and makes it current until it is closed.
+     * The asynchronous tasks passed within the span get child spans. If {@linkplain AsyncTracer tracing} is disabled,
+     * returns {@link Span#NONE}.
+     */
+    default Span openSpan(String name) {
+        return AsyncTracer.openSpan(this, name);
+    }
+
+    /**
+     * Gets the current span, or {@code null} if there is no such.
+     */
+    default Span currentSpan() {
+        return get(Span.CONTEXT_KEY);
+    }
+
     /**
      * Subscribes to the context changes.
      */
@@ -1,5 +1,6 @@
 package ru.asynchronizer.util.concurrent;
 
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -64,6 +65,55 @@ public interface IExecutorFactory {
     ExecutorService newCachedThreadPool(Class<?> owner, boolean daemon);
 
 
+    /**
+     * Creates a thread pool that creates new threads as needed up to the given limit, and reaps the threads
+     * which are idle longer than the given time.
+     *
+     * <p>
+     * Unlike the {@linkplain #newCachedThreadPool(Class) cached thread pool}, the number of threads and the number
+     * of waiting tasks are limited, so a load spike cannot exhaust the memory with threads. When all the threads
+     * are busy the tasks wait in the queue, and when the queue is full the tasks are handled in accordance with
+     * the {@linkplain SaturationPolicy saturation policy}. All threads in the pool will be
+     * {@linkplain Thread#isDaemon() daemons}.
+     *
+     * @param owner the class which will use the created thread pool
+     * @param maxPoolSize the maximum number of threads in the pool
+     * @param queueCapacity the maximum number of tasks waiting for a free thread
+     * @param keepAlive defines how long an idle thread lives
+     * @param saturationPolicy defines what to do with a task when the queue is full
+     *
+     * @return the newly created thread pool
+     *
+     * @see #newBoundedElasticPool(Class, int, int, Duration, SaturationPolicy, boolean)
+     */
+    default ExecutorService newBoundedElasticPool(Class<?> owner, int maxPoolSize, int queueCapacity, Duration keepAlive, SaturationPolicy saturationPolicy) {
+        return newBoundedElasticPool(owner, maxPoolSize, queueCapacity, keepAlive, saturationPolicy, true);
+    }
+
+    /**
+     * Creates a thread pool that creates new threads as needed up to the given limit, and reaps the threads
+     * which are idle longer than the given time.
+     *
+     * <p>
+     * Unlike the {@linkplain #newCachedThreadPool(Class, boolean) cached thread pool}, the number of threads and
+     * the number of waiting tasks are limited, so a load spike cannot exhaust the memory with threads. When all
+     * the threads are busy the tasks wait in the queue, and when the queue is full the tasks are handled
+     * in accordance with the {@linkplain SaturationPolicy saturation policy}.
+     *
+     * @param owner the class which will use the created thread pool
+     * @param maxPoolSize the maximum number of threads in the pool
+     * @param queueCapacity the maximum number of tasks waiting for a free thread
+     * @param keepAlive defines how long an idle thread lives
+     * @param saturationPolicy defines what to do with a task when the queue is full
+     * @param daemon if {@code true}, all threads in the pool will be {@linkplain Thread#isDaemon() daemons}
+     *
+     * @return the newly created thread pool
+     *
+     * @see #newBoundedElasticPool(Class, int, int, Duration, SaturationPolicy)
+     */
+    ExecutorService newBoundedElasticPool(Class<?> owner, int maxPoolSize, int queueCapacity, Duration keepAlive, SaturationPolicy saturationPolicy, boolean daemon);
+
+
     /**
      * Creates a thread pool that reuses a fixed number of threads operating off a shared unbounded queue.
      *
@@ -146,6 +196,87 @@ public interface IExecutorFactory {
     IPriorityExecutorService newPriorityFixedThreadPool(Class<?> owner, int poolSize, boolean daemon);
 
 
+    /**
+     * Creates a thread pool operating off a shared unbounded queue which adjusts its size to the load.
+     *
+     * <p>
+     * The pool starts with {@code minPoolSize} threads. Then the controller samples the throughput, the queue time
+     * and the CPU load twice a second and adds or releases a thread with hill climbing, so the pool size follows
+     * the load within the bounds. The decisions are published with the {@link IThreadCountController} MBean.
+     * All threads in the pool will be {@linkplain Thread#isDaemon() daemons}.
+     *
+     * @param owner the class which will use the created thread pool
+     * @param minPoolSize the minimum number of threads in the pool
+     * @param maxPoolSize the maximum number of threads in the pool
+     *
+     * @return the newly created thread pool
+     *
+     * @see #newAdaptiveThreadPool(Class, int, int, boolean)
+     */
+    default ExecutorService newAdaptiveThreadPool(Class<?> owner, int minPoolSize, int maxPoolSize) {
+        return newAdaptiveThreadPool(owner, minPoolSize, maxPoolSize, true);
+    }
+
+    /**
+     * Creates a thread pool operating off a shared unbounded queue which adjusts its size to the load.
+     *
+     * <p>
+     * The pool starts with {@code minPoolSize} threads. Then the controller samples the throughput, the queue time
+     * and the CPU load twice a second and adds or releases a thread with hill climbing, so the pool size follows
+     * the load within the bounds. The decisions are published with the {@link IThreadCountController} MBean.
+     *
+     * @param owner the class which will use the created thread pool
+     * @param minPoolSize the minimum number of threads in the pool
+     * @param maxPoolSize the maximum number of threads in the pool
+     * @param daemon if {@code true}, all threads in the pool will be {@linkplain Thread#isDaemon() daemons}
+     *
+     * @return the newly created thread pool
+     *
+     * @see #newAdaptiveThreadPool(Class, int, int)
+     */
+    ExecutorService newAdaptiveThreadPool(Class<?> owner, int minPoolSize, int maxPoolSize, boolean daemon);
+
+    /**
+     * Creates a priority thread pool operating off a shared unbounded queue which adjusts its size to the load.
+     *
+     * <p>
+     * The pool size is adjusted in the same way as in the {@link #newAdaptiveThreadPool(Class, int, int)} method.
+     * All added tasks are sorted and processed in accordance with their {@linkplain IPriorityTask priorities}.
+     * All threads in the pool will be {@linkplain Thread#isDaemon() daemons}.
+     *
+     * @param owner the class which will use the created thread pool
+     * @param minPoolSize the minimum number of threads in the pool
+     * @param maxPoolSize the maximum number of threads in the pool
+     *
+     * @return the newly created thread pool
+     *
+     * @see #newPriorityAdaptiveThreadPool(Class, int, int, boolean)
+     * @see IPriorityTask
+     */
+    default IPriorityExecutorService newPriorityAdaptiveThreadPool(Class<?> owner, int minPoolSize, int maxPoolSize) {
+        return newPriorityAdaptiveThreadPool(owner, minPoolSize, maxPoolSize, true);
+    }
+
+    /**
+     * Creates a priority thread pool operating off a shared unbounded queue which adjusts its size to the load.
+     *
+     * <p>
+     * The pool size is adjusted in the same way as in the {@link #newAdaptiveThreadPool(Class, int, int)} method.
+     * All added tasks are sorted and processed in accordance with their {@linkplain IPriorityTask priorities}.
+     *
+     * @param owner the class which will use the created thread pool
+     * @param minPoolSize the minimum number of threads in the pool
+     * @param maxPoolSize the maximum number of threads in the pool
+     * @param daemon if {@code true}, all threads in the pool will be {@linkplain Thread#isDaemon() daemons}
+     *
+     * @return the newly created thread pool
+     *
+     * @see #newPriorityAdaptiveThreadPool(Class, int, int)
+     * @see IPriorityTask
+     */
+    IPriorityExecutorService newPriorityAdaptiveThreadPool(Class<?> owner, int minPoolSize, int maxPoolSize, boolean daemon);
+
+
     /**
      * Creates an executor that uses a single worker thread operating off an unbounded queue.
      *
@@ -220,6 +351,84 @@ public interface IExecutorFactory {
     IPriorityExecutorService newPrioritySingleThreadExecutor(Class<?> owner, boolean daemon);
 
 
+    /**
+     * Creates a work-stealing thread pool that maintains enough threads to support the given parallelism level.
+     *
+     * <p>
+     * The pool is backed by a {@link java.util.concurrent.ForkJoinPool}, so the
+     * {@linkplain java.util.concurrent.ForkJoinTask fork/join tasks} and parallel streams started
+     * by the submitted tasks are executed in this pool. The submitted tasks get the context of the caller;
+     * to pass the context to the forked subtasks use {@link AsyncContextRecursiveTask}
+     * and {@link ParallelStreamUtil}. All threads in the pool will be {@linkplain Thread#isDaemon() daemons}.
+     *
+     * @param owner the class which will use the created thread pool
+     * @param parallelism the targeted parallelism level
+     *
+     * @return the newly created thread pool
+     *
+     * @see #newWorkStealingPool(Class, int, boolean)
+     */
+    default ExecutorService newWorkStealingPool(Class<?> owner, int parallelism) {
+        return newWorkStealingPool(owner, parallelism, true);
+    }
+
+    /**
+     * Creates a work-stealing thread pool that maintains enough threads to support the given parallelism level.
+     *
+     * <p>
+     * The pool is backed by a {@link java.util.concurrent.ForkJoinPool}, so the
+     * {@linkplain java.util.concurrent.ForkJoinTask fork/join tasks} and parallel streams started
+     * by the submitted tasks are executed in this pool. The submitted tasks get the context of the caller;
+     * to pass the context to the forked subtasks use {@link AsyncContextRecursiveTask}
+     * and {@link ParallelStreamUtil}.
+     *
+     * @param owner the class which will use the created thread pool
+     * @param parallelism the targeted parallelism level
+     * @param daemon if {@code true}, all threads in the pool will be {@linkplain Thread#isDaemon() daemons}
+     *
+     * @return the newly created thread pool
+     *
+     * @see #newWorkStealingPool(Class, int)
+     */
+    ExecutorService newWorkStealingPool(Class<?> owner, int parallelism, boolean daemon);
+
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * <p>
+     * The executor suits tasks which spend most of their time in blocking I/O. The threads are named after
+     * the owner as in other pools. If the runtime does not support virtual threads, the executor starts
+     * platform {@linkplain Thread#isDaemon() daemon} threads as a cached thread pool does.
+     *
+     * @param owner the class which will use the created executor
+     *
+     * @return the newly created executor
+     *
+     * @see #newVirtualThreadPool(Class, int)
+     */
+    ExecutorService newVirtualThreadPerTaskExecutor(Class<?> owner);
+
+    /**
+     * Creates an executor that runs tasks in virtual threads, at most the given number of tasks at the same time.
+     *
+     * <p>
+     * The executor suits tasks which spend most of their time in blocking I/O, but must not overload the underlying
+     * resource, for example, a database. Each task gets its own virtual thread, and the tasks beyond the limit
+     * wait for a permit in their threads. If the runtime does not support virtual threads, the executor uses
+     * platform {@linkplain Thread#isDaemon() daemon} threads as a fixed thread pool does, and the tasks beyond
+     * the limit wait in an unbounded queue.
+     *
+     * @param owner the class which will use the created executor
+     * @param maxConcurrency the maximum number of tasks running at the same time
+     *
+     * @return the newly created executor
+     *
+     * @see #newVirtualThreadPerTaskExecutor(Class)
+     */
+    ExecutorService newVirtualThreadPool(Class<?> owner, int maxConcurrency);
+
+
     /**
      * Creates a thread pool that can schedule commands to run after a given delay, or to execute periodically.
      *
@@ -293,4 +502,18 @@ public interface IExecutorFactory {
      * Sets the handler invoked when a thread faced with an uncaught exception.
      */
     void setUncaughtExceptionHandler(IUncaughtExceptionHandler exceptionHandler);
+
+
+    /**
+     * Adds the decorator applied to the tasks passed to the executors of this factory, including the existing ones.
+     *
+     * @see ITaskDecorator
+     */
+    void addTaskDecorator(ITaskDecorator decorator);
+
+    /**
+     * Removes the decorator added with the {@link #addTaskDecorator(ITaskDecorator)} method.
+     * The tasks submitted before are still decorated.
+     */
+    void removeTaskDecorator(ITaskDecorator decorator);
 }
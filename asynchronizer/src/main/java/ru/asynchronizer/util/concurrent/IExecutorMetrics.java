@@ -0,0 +1,92 @@
+package ru.asynchronizer.util.concurrent;
+
+import javax.management.MXBean;
+
+/**
+ * The metrics of an executor created by the {@link IExecutorFactory}.
+ *
+ * <p>
+ * Each executor publishes its metrics as an MBean named
+ * {@code ru.asynchronizer:type=Executor,owner=<owner class>,pool=<pool number>}, so the executors
+ * of each component can be observed, for example, with JConsole. The MBean is unregistered when
+ * the executor is shut down.
+ *
+ * <p>
+ * The time histograms have exponential buckets: the bucket {@code i} counts the tasks which took less than
+ * {@code 2^i} microseconds, but not less than the previous bucket bound.
+ */
+@MXBean
+public interface IExecutorMetrics {
+
+    /**
+     * Returns the name of the class which uses the executor.
+     */
+    String getOwner();
+
+    /**
+     * Returns the number of threads which are running tasks now.
+     */
+    int getActiveThreads();
+
+    /**
+     * Returns the number of threads in the pool.
+     */
+    int getPoolSize();
+
+    /**
+     * Returns the number of tasks waiting for a free thread.
+     */
+    long getQueueSize();
+
+    /**
+     * Returns the number of tasks passed to the executor, including the rejected ones.
+     */
+    long getSubmittedTasks();
+
+    /**
+     * Returns the number of tasks which have completed normally.
+     */
+    long getCompletedTasks();
+
+    /**
+     * Returns the number of tasks which have thrown an exception.
+     */
+    long getFailedTasks();
+
+    /**
+     * Returns the number of tasks which have been handled by the saturation policy of the pool,
+     * e.g. rejected or run by the calling thread.
+     */
+    long getRejectedTasks();
+
+    /**
+     * Returns the histogram of the time the tasks waited for a free thread. For scheduled tasks, the time
+     * includes the delay.
+     */
+    long[] getQueueTimeHistogram();
+
+    /**
+     * Returns the histogram of the time the tasks were running.
+     */
+    long[] getRunTimeHistogram();
+
+    /**
+     * Returns the upper bound of the median of the queue time in microseconds.
+     */
+    long getQueueTimeMedianMicros();
+
+    /**
+     * Returns the upper bound of the 99th percentile of the queue time in microseconds.
+     */
+    long getQueueTime99thPercentileMicros();
+
+    /**
+     * Returns the upper bound of the median of the run time in microseconds.
+     */
+    long getRunTimeMedianMicros();
+
+    /**
+     * Returns the upper bound of the 99th percentile of the run time in microseconds.
+     */
+    long getRunTime99thPercentileMicros();
+}
@@ -0,0 +1,21 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the spans recorded by the {@link AsyncTracer}.
+ *
+ * <p>
+ * The spans are exported in batches by a single thread, so the implementation does not need to be thread-safe.
+ *
+ * @see FileSpanSink
+ */
+@FunctionalInterface
+public interface ISpanSink {
+
+    /**
+     * Exports the batch of ended spans.
+     */
+    void export(List<Span> spans) throws IOException;
+}
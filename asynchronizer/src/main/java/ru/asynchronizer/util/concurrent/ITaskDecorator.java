@@ -0,0 +1,57 @@
+package ru.asynchronizer.util.concurrent;
+
+/**
+ * Intercepts the tasks run by the executors created by the {@link IExecutorFactory}.
+ *
+ * <p>
+ * A decorator is registered with the {@link IExecutorFactory#addTaskDecorator(ITaskDecorator)} method and applies
+ * to the tasks passed to all the executors of the factory, including the common pools. The decorators are not
+ * nested around the task: the whole chain is invoked by the wrapper which already restores the async context,
+ * so a decorator costs a method call per stage and the state it returns on submit.
+ *
+ * <p>
+ * For a periodic task, the {@link #onSubmit(Object)} method is invoked once, while the other methods are invoked
+ * on each run. The decorators are invoked in the order of registration before a task and in the reverse order
+ * after it. The methods should be fast and should not throw exceptions, since they run on each task.
+ *
+ * <p>
+ * A task which is skipped since its {@linkplain IAsyncContext#cancellationToken() cancellation token} is cancelled
+ * is not run, so only the {@link #afterRun(Object, Throwable)} method is invoked with
+ * a {@link java.util.concurrent.CancellationException}. A task which is rejected by the executor, discarded
+ * by its saturation policy or drained by {@link java.util.concurrent.ExecutorService#shutdownNow()} gets only
+ * the {@link #onSubmit(Object)} call, so the state returned on submit must not hold resources which only
+ * the {@link #afterRun(Object, Throwable)} method releases.
+ */
+public interface ITaskDecorator {
+
+    /**
+     * Invoked in the submitting thread when the task is passed to an executor.
+     *
+     * @param task the original {@link Runnable} or {@link java.util.concurrent.Callable}
+     *
+     * @return the state passed to the {@link #beforeRun(Object)} and {@link #afterRun(Object, Throwable)} methods
+     */
+    default Object onSubmit(Object task) {
+        return null;
+    }
+
+    /**
+     * Invoked in the executor thread right before the task, with the async context of the submitter.
+     *
+     * @param state the value returned by the {@link #onSubmit(Object)} method
+     */
+    default void beforeRun(Object state) {
+
+    }
+
+    /**
+     * Invoked in the executor thread right after the task, even if it has failed or has been skipped
+     * since it is cancelled.
+     *
+     * @param state the value returned by the {@link #onSubmit(Object)} method
+     * @param error the exception thrown by the task, or {@code null} if the task has completed normally
+     */
+    default void afterRun(Object state, Throwable error) {
+
+    }
+}
@@ -0,0 +1,62 @@
+package ru.asynchronizer.util.concurrent;
+
+import javax.management.MXBean;
+
+/**
+ * The state of the controller adjusting the size of an adaptive thread pool.
+ *
+ * <p>
+ * Each adaptive pool publishes its controller as an MBean named
+ * {@code ru.asynchronizer:type=ThreadCountController,owner=<owner class>,pool=<pool number>}, next to
+ * the {@linkplain IExecutorMetrics metrics} of the pool, so the decisions can be compared with the load.
+ *
+ * @see IExecutorFactory#newAdaptiveThreadPool(Class, int, int)
+ */
+@MXBean
+public interface IThreadCountController {
+
+    /**
+     * Returns the name of the class which uses the pool.
+     */
+    String getOwner();
+
+    /**
+     * Returns the lower bound of the pool size.
+     */
+    int getMinPoolSize();
+
+    /**
+     * Returns the upper bound of the pool size.
+     */
+    int getMaxPoolSize();
+
+    /**
+     * Returns the pool size chosen by the controller.
+     */
+    int getPoolSize();
+
+    /**
+     * Returns the number of tasks completed per second during the last sampling period.
+     */
+    double getThroughput();
+
+    /**
+     * Returns the average time in microseconds the tasks waited in the queue during the last sampling period.
+     */
+    double getQueueTimeMicros();
+
+    /**
+     * Returns the system CPU load from 0 to 1 during the last sampling period, or a negative value if it is unavailable.
+     */
+    double getCpuLoad();
+
+    /**
+     * Returns the description of the last change of the pool size.
+     */
+    String getLastDecision();
+
+    /**
+     * Returns the number of changes of the pool size.
+     */
+    long getDecisionCount();
+}
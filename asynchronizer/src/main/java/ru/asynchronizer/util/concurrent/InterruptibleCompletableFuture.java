@@ -24,6 +24,14 @@ public final class InterruptibleCompletableFuture<T> extends CompletableFuture<T
                 super.completeExceptionally(exception);
             }
         });
+
+        var cancellationToken = Asynchronizer.context().cancellationToken();
+
+        // The task is skipped or interrupted as soon as the operation is cancelled
+        if (cancellationToken != CancellationToken.NONE) {
+            var subscription = cancellationToken.onCancel(() -> completeExceptionally(new CancellationException("The operation has been cancelled.")));
+            whenComplete((v, e) -> subscription.dispose());
+        }
     }
 
 
@@ -0,0 +1,65 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import lombok.extern.slf4j.*;
+
+/**
+ * Registers the MBeans of the executors in the platform MBean server.
+ */
+@Slf4j
+final class JmxUtil {
+
+    private static final String DOMAIN = "ru.asynchronizer";
+
+
+    private JmxUtil() {
+        // Static only class
+    }
+
+
+    /**
+     * Returns the name of the MBean of the given type describing the pool of the owner.
+     */
+    static String objectName(String type, Class<?> owner, int poolNumber) {
+        return DOMAIN + ":type=" + type + ",owner=" + owner.getName() + ",pool=" + poolNumber;
+    }
+
+    /**
+     * Registers the MBean. The errors are logged, since the executor can work without its MBean.
+     */
+    static void register(Object mbean, String objectName, Class<?> owner) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(objectName));
+        } catch (JMException | RuntimeException e) {
+            log.atWarn()
+                    .setMessage("The MBean cannot be registered. Name: {name}. Owner: {owner}.")
+                    .addKeyValue("name", objectName)
+                    .addKeyValue("owner", owner)
+                    .setCause(e)
+                    .log();
+        }
+    }
+
+    /**
+     * Unregisters the MBean if it is registered.
+     */
+    static void unregister(String objectName, Class<?> owner) {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName(objectName);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | RuntimeException e) {
+            log.atWarn()
+                    .setMessage("The MBean cannot be unregistered. Name: {name}. Owner: {owner}.")
+                    .addKeyValue("name", objectName)
+                    .addKeyValue("owner", owner)
+                    .setCause(e)
+                    .log();
+        }
+    }
+}
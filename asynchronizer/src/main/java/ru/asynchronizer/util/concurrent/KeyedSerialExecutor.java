@@ -0,0 +1,153 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the tasks with the same key strictly one after another in the order they were added, while the tasks
+ * with different keys run in parallel on a shared executor.
+ *
+ * <p>
+ * The tasks of a key form a chain: the map keeps only the last task of each key, a new task is linked
+ * to the previous one, and the finished task passes the next one to the executor. The chain is linked with
+ * an atomic swap of the map entry and a compare-and-set of the link, so adding a task never blocks, and the entry
+ * is removed as soon as the last task of the key has finished. Thus the ordering does not cost a thread per key.
+ *
+ * <p>
+ * The tasks run in the {@linkplain IAsyncContext async context} of the threads which have added them.
+ * If the executor rejects a task, the task is skipped, so the next tasks of the key still run.
+ *
+ * @param <K> the type of keys
+ */
+public final class KeyedSerialExecutor<K> {
+
+    private static final VarHandle NEXT;
+    private static final Object DONE = new Object();
+
+    static {
+        try {
+            NEXT = MethodHandles.lookup().findVarHandle(KeyedSerialExecutor.Node.class, "next", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final IAsyncContext context;
+    private final Executor executor;
+    private final ConcurrentMap<K, Node> tails;
+
+
+    /**
+     * Creates an executor which runs tasks in the {@link Asynchronizer#commonPool()}.
+     */
+    public KeyedSerialExecutor() {
+        this(Asynchronizer.commonPool());
+    }
+
+    /**
+     * Creates an executor which runs tasks in the given executor.
+     */
+    public KeyedSerialExecutor(Executor executor) {
+        this(Asynchronizer.context(), executor);
+    }
+
+    /**
+     * Creates an executor which runs tasks in the given executor.
+     *
+     * @param context the context passed to the tasks
+     * @param executor the executor to run tasks
+     */
+    public KeyedSerialExecutor(IAsyncContext context, Executor executor) {
+        this.context = context;
+        this.executor = executor;
+        this.tails = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Runs the task after all the tasks previously added with the same key.
+     *
+     * @throws RejectedExecutionException if the executor rejects the task which is the first in the chain
+     */
+    public void execute(K key, Runnable task) {
+        var node = new Node(key, task, context.capture());
+        var previous = tails.put(key, node);
+
+        // The previous task passes this one to the executor unless it has already finished
+        if (previous == null || !NEXT.compareAndSet(previous, null, node)) {
+            schedule(node);
+        }
+    }
+
+    /**
+     * Returns the executor which runs the tasks with the given key.
+     */
+    public Executor forKey(K key) {
+        return task -> execute(key, task);
+    }
+
+    /**
+     * Returns the number of keys which have unfinished tasks.
+     */
+    public int activeKeys() {
+        return tails.size();
+    }
+
+
+    private void schedule(Node node) {
+        try {
+            executor.execute(node);
+        } catch (RejectedExecutionException e) {
+            // The chain must not stall on the rejected task
+            node.release();
+            throw e;
+        }
+    }
+
+
+    private final class Node implements Runnable {
+
+        private final K key;
+        private final Runnable task;
+        private final IAsyncContextCapture taskContext;
+
+        @SuppressWarnings("unused")
+        private volatile Object next;
+
+
+        Node(K key, Runnable task, IAsyncContextCapture taskContext) {
+            this.key = key;
+            this.task = task;
+            this.taskContext = taskContext;
+        }
+
+
+        @Override
+        public void run() {
+            try (var ignored = taskContext.use()) {
+                task.run();
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Passes the next task of the key to the executor, or removes the chain if there are no more tasks.
+         */
+        @SuppressWarnings("unchecked")
+        void release() {
+            if (tails.remove(key, this)) {
+                return;
+            }
+
+            // A next task has replaced this one in the map, but it may have not linked itself yet
+            if (!NEXT.compareAndSet(this, null, DONE)) {
+                schedule((Node) next);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The concurrent histogram of durations with exponential buckets.
+ *
+ * <p>
+ * The bucket {@code i} counts the durations less than {@code 2^i} microseconds and not less than the upper bound
+ * of the previous bucket; the last bucket counts all the longer durations. Each bucket is a striped counter,
+ * so recording a duration from many threads does not contend.
+ */
+final class LatencyHistogram {
+
+    static final int BUCKET_COUNT = 32;
+
+    private final LongAdder[] buckets;
+
+
+    LatencyHistogram() {
+        this.buckets = new LongAdder[BUCKET_COUNT];
+
+        for (var i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+
+    /**
+     * Records the duration given in nanoseconds.
+     */
+    void record(long nanos) {
+        var micros = Math.max(nanos / 1000, 0);
+        var index = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+        buckets[index].increment();
+    }
+
+    /**
+     * Returns the number of durations in each bucket.
+     */
+    long[] counts() {
+        var counts = new long[BUCKET_COUNT];
+
+        for (var i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile in microseconds,
+     * or {@code 0} if there are no durations.
+     *
+     * @param percentile the percentile from 0 to 100
+     */
+    long percentile(double percentile) {
+        var counts = counts();
+        var total = 0L;
+
+        for (var count : counts) {
+            total += count;
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        var rank = (long) Math.ceil(total * percentile / 100);
+        var sum = 0L;
+
+        for (var i = 0; i < BUCKET_COUNT; i++) {
+            sum += counts[i];
+
+            if (sum >= rank) {
+                return (i < BUCKET_COUNT - 1) ? (1L << i) : Long.MAX_VALUE;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,115 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs parallel streams keeping {@linkplain IAsyncContext the async context}.
+ *
+ * <p>
+ * Parts of a parallel stream are executed by the threads of a {@link java.util.concurrent.ForkJoinPool}
+ * which do not have the context of the caller. The methods of this class make the stream pipeline
+ * use the context of the caller in any thread.
+ *
+ * <pre>{@code
+ * var pool = Asynchronizer.executorFactory().newWorkStealingPool(MyService.class, 8);
+ *
+ * var result = ParallelStreamUtil.invoke(pool, items.stream(), s -> s.map(this::process).collect(toList()));
+ * }</pre>
+ */
+public final class ParallelStreamUtil {
+
+    private ParallelStreamUtil() {
+
+    }
+
+
+    /**
+     * Returns the stream which operations use the current context of {@link Asynchronizer#context()}.
+     */
+    public static <T> Stream<T> withContext(Stream<T> source) {
+        return withContext(source, Asynchronizer.context());
+    }
+
+    /**
+     * Returns the stream which operations use the current context.
+     */
+    public static <T> Stream<T> withContext(Stream<T> source, IAsyncContext context) {
+        var spliterator = new AsyncContextSpliterator<>(source.spliterator(), context.capture());
+        return StreamSupport.stream(spliterator, source.isParallel()).onClose(source::close);
+    }
+
+
+    /**
+     * Runs the pipeline over the given source as a parallel stream in the given pool keeping the current context
+     * of {@link Asynchronizer#context()}.
+     *
+     * @param pool the pool created by {@link IExecutorFactory#newWorkStealingPool(Class, int)}
+     * @param source the source of the stream without intermediate operations
+     * @param pipeline the operations of the stream, including the terminal one
+     *
+     * @return the result of the terminal operation
+     */
+    public static <T, R> R invoke(ExecutorService pool, Stream<T> source, Function<? super Stream<T>, ? extends R> pipeline) {
+        return invoke(pool, source, pipeline, Asynchronizer.context());
+    }
+
+    /**
+     * Runs the pipeline over the given source as a parallel stream in the given pool keeping the current context.
+     *
+     * <p>
+     * The calling thread is blocked until the pipeline completes. If it is a worker of the given pool itself,
+     * the pipeline is run directly in it, so the worker does not wait for another task of its own pool.
+     *
+     * @param pool the pool created by {@link IExecutorFactory#newWorkStealingPool(Class, int)}
+     * @param source the source of the stream without intermediate operations
+     * @param pipeline the operations of the stream, including the terminal one
+     * @param context the context to keep
+     *
+     * @return the result of the terminal operation
+     */
+    public static <T, R> R invoke(ExecutorService pool, Stream<T> source, Function<? super Stream<T>, ? extends R> pipeline, IAsyncContext context) {
+        var stream = withContext(source.parallel(), context);
+
+        // The parallel stream started by a worker is already executed in its pool
+        if (isWorkerOf(pool)) {
+            return pipeline.apply(stream);
+        }
+
+        try {
+            // The parallel stream is executed in the pool of the thread which starts it
+            return pool.submit(() -> pipeline.apply(stream)).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            var cancellation = new CancellationException("The parallel stream has been interrupted.");
+            cancellation.initCause(e);
+            throw cancellation;
+        }
+    }
+
+
+    private static boolean isWorkerOf(ExecutorService pool) {
+        var thread = Thread.currentThread();
+
+        if (!(thread instanceof ForkJoinWorkerThread)) {
+            return false;
+        }
+
+        var workerPool = ((ForkJoinWorkerThread) thread).getPool();
+
+        // The pools created by the executor factory wrap the fork-join pool
+        return workerPool == pool
+                || (pool instanceof DelegatedExecutorService && ((DelegatedExecutorService) pool).target == workerPool);
+    }
+}
@@ -24,7 +24,7 @@ public final class RepeatedCompletableFuture<T> extends AsyncCompletableFuture<T
     private final AtomicReference<T> valueRef;
     private final CompletableFuture<T> lastError;
 
-    private Future<?> attemptFuture;
+    private volatile Future<?> attemptFuture;
 
 
     public RepeatedCompletableFuture(ThrowableSupplier<T> valueSupplier, Consumer<Exception> errorHandler, Duration attemptDelay, ScheduledExecutorService executor) {
@@ -77,7 +77,17 @@ public final class RepeatedCompletableFuture<T> extends AsyncCompletableFuture<T
 
     public void start() {
         if (!started.getAndSet(true)) {
-            attemptFuture = executor.submit(this::performAttempt);
+            var cancellationToken = Asynchronizer.context().cancellationToken();
+
+            // Stop the attempts as soon as the operation is cancelled
+            if (cancellationToken != CancellationToken.NONE) {
+                var subscription = cancellationToken.onCancel(() -> completeExceptionally(new CancellationException("The operation has been cancelled.")));
+                whenComplete((v, e) -> subscription.dispose());
+            }
+
+            if (!isDone()) {
+                attemptFuture = executor.submit(this::performAttempt);
+            }
         }
     }
 
@@ -91,7 +101,11 @@ public final class RepeatedCompletableFuture<T> extends AsyncCompletableFuture<T
         } catch (Exception e) {
             lastError.obtrudeException(e);
             errorHandler.accept(e);
-            attemptFuture = executor.schedule(this::performAttempt, attemptDelay.toNanos(), TimeUnit.NANOSECONDS);
+
+            // The future can be completed or cancelled during the attempt
+            if (!isDone()) {
+                attemptFuture = executor.schedule(this::performAttempt, attemptDelay.toNanos(), TimeUnit.NANOSECONDS);
+            }
         }
     }
 
@@ -138,12 +152,14 @@ public final class RepeatedCompletableFuture<T> extends AsyncCompletableFuture<T
 
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-        var cancelled = cancelAttempt(attemptFuture, mayInterruptIfRunning);
-
-        if (cancelled) {
-            super.obtrudeException(new CancellationException());
+        if (isDone()) {
+            return false;
         }
 
+        // The attempt can be just finished, so the future is cancelled regardless of the attempt state
+        var cancelled = super.completeExceptionally(new CancellationException());
+        cancelAttempt(attemptFuture, mayInterruptIfRunning);
+
         return cancelled;
     }
 
@@ -0,0 +1,50 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Defines what to do with a task passed to a bounded executor when all its threads are busy and its queue is full.
+ *
+ * @see IExecutorFactory#newBoundedElasticPool(Class, int, int, java.time.Duration, SaturationPolicy)
+ */
+public enum SaturationPolicy {
+
+    /**
+     * The task is rejected with a {@link RejectedExecutionException}.
+     */
+    REJECT(new ThreadPoolExecutor.AbortPolicy()),
+
+    /**
+     * The task is run by the thread which has passed it. This slows down the producers of the tasks
+     * until the executor catches up.
+     *
+     * <p>Once the executor is shut down, the task is rejected with a {@link RejectedExecutionException}
+     * as with {@link #REJECT}, unlike {@link ThreadPoolExecutor.CallerRunsPolicy} which silently drops it
+     * and leaves its future incomplete forever.
+     */
+    CALLER_RUNS((task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Task " + task + " rejected from " + executor);
+        }
+
+        task.run();
+    });
+
+
+    private final RejectedExecutionHandler handler;
+
+
+    SaturationPolicy(RejectedExecutionHandler handler) {
+        this.handler = handler;
+    }
+
+
+    /**
+     * Returns the handler implementing the policy.
+     */
+    RejectedExecutionHandler handler() {
+        return handler;
+    }
+}
@@ -0,0 +1,228 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+import ru.asynchronizer.util.IDisposable;
+
+/**
+ * The span of the asynchronous control flow traced by the {@link AsyncTracer}.
+ *
+ * <p>
+ * A span covers a piece of work: an operation {@linkplain IAsyncContext#openSpan(String) opened explicitly},
+ * a task passed to an executor or a task awaited by the {@link AwaitableQueue}. The span keeps the time it was
+ * created, started and ended, so its latency is divided into the {@linkplain #queueTime() queue time}
+ * and the {@linkplain #runTime() run time}.
+ *
+ * <p>
+ * An operation span must be closed by the thread which has opened it:
+ *
+ * <pre>{@code
+ * try (var span = context.openSpan("handleRequest")) {
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class Span implements IDisposable {
+
+    /**
+     * The span returned when tracing is disabled. It is not recorded.
+     */
+    public static final Span NONE = new Span(0, 0, 0, "none", Kind.OPERATION, 0);
+
+    /**
+     * The key of the current span in the async context.
+     */
+    static final ContextKey<Span> CONTEXT_KEY = new ContextKey<>("span");
+
+    private final long traceId;
+    private final long spanId;
+    private final long parentSpanId;
+    private final String name;
+    private final Kind kind;
+    private final long createTime;
+
+    private long startTime;
+    private long endTime;
+    private IAsyncContext context;
+    private Span previous;
+
+
+    private Span(long traceId, long spanId, long parentSpanId, String name, Kind kind, long createTime) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.createTime = createTime;
+    }
+
+    /**
+     * Creates a child of the given span.
+     */
+    Span(Span parent, String name, Kind kind, long createTime) {
+        this(parent.traceId, nextId(), parent.spanId, name, kind, createTime);
+    }
+
+    /**
+     * Creates a root span.
+     */
+    Span(String name, Kind kind, long createTime) {
+        this(nextId(), nextId(), 0, name, kind, createTime);
+    }
+
+    /**
+     * Creates a span of the next run of the same work, e.g. of a periodic task. The span has the same parent.
+     */
+    Span nextRun(long createTime) {
+        return new Span(traceId, nextId(), parentSpanId, name, kind, createTime);
+    }
+
+    private static long nextId() {
+        long id;
+
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+
+        return id;
+    }
+
+
+    /**
+     * Returns the identifier of the trace, i.e. of the root span.
+     */
+    public long traceId() {
+        return traceId;
+    }
+
+    /**
+     * Returns the identifier of the span.
+     */
+    public long spanId() {
+        return spanId;
+    }
+
+    /**
+     * Returns the identifier of the parent span, or {@code 0} if this span is the root one.
+     */
+    public long parentSpanId() {
+        return parentSpanId;
+    }
+
+    /**
+     * Returns the name of the span.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the kind of the span.
+     */
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Returns the time when the span was created.
+     */
+    public Instant timestamp() {
+        return AsyncTracer.toInstant(createTime);
+    }
+
+    /**
+     * Returns how long the work waited before it was started, e.g. in the executor queue.
+     */
+    public Duration queueTime() {
+        return Duration.ofNanos(startTime() - createTime);
+    }
+
+    /**
+     * Returns how long the work was running, or awaited by the {@link AwaitableQueue}.
+     */
+    public Duration runTime() {
+        return Duration.ofNanos(Math.max(endTime - startTime(), 0));
+    }
+
+    private long startTime() {
+        // The work could be ended without start, e.g. when it was cancelled in a queue
+        return (startTime != 0) ? startTime : endTime;
+    }
+
+
+    /**
+     * Marks the work as started.
+     */
+    void start() {
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Marks the work as started and makes the span current in the given context until it is disposed.
+     */
+    Span begin(IAsyncContext context) {
+        start();
+        this.context = context;
+        this.previous = context.get(CONTEXT_KEY);
+        context.set(CONTEXT_KEY, this);
+        return this;
+    }
+
+    /**
+     * Marks the work as ended and records the span.
+     */
+    void end() {
+        if (endTime == 0) {
+            endTime = System.nanoTime();
+            AsyncTracer.record(this);
+        }
+    }
+
+    /**
+     * Ends the span and restores the previous current span.
+     */
+    @Override
+    public void dispose() {
+        if (this == NONE) {
+            return;
+        }
+
+        if (context != null) {
+            context.set(CONTEXT_KEY, previous);
+            context = null;
+            previous = null;
+        }
+
+        end();
+    }
+
+
+    @Override
+    public String toString() {
+        return kind + " " + name + " " + Long.toHexString(spanId);
+    }
+
+
+    /**
+     * Defines what kind of work a span covers.
+     */
+    public enum Kind {
+
+        /**
+         * The operation {@linkplain IAsyncContext#openSpan(String) opened explicitly}.
+         */
+        OPERATION,
+
+        /**
+         * The task passed to an executor. The queue time is the time spent in the executor queue.
+         */
+        TASK,
+
+        /**
+         * The task awaited by the {@link AwaitableQueue}. The queue time is the time spent waiting for a free slot.
+         */
+        AWAIT
+    }
+}
@@ -0,0 +1,122 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+
+/**
+ * The lock-free ring buffer of the spans recorded by a single thread.
+ *
+ * <p>
+ * Only the owner thread adds spans, and only the exporting thread drains them, so publishing a span
+ * is just a plain store and an ordered store of the tail. When the buffer is full the span is dropped
+ * rather than blocking the owner.
+ *
+ * <p>
+ * The buffer starts small and is doubled by the owner up to the capacity, so a thread which records a few
+ * spans, e.g. a virtual thread, does not allocate the whole capacity. The owner publishes the grown array
+ * before the tail, so the exporting thread reads the array which holds all the spans up to the tail.
+ */
+final class SpanBuffer {
+
+    private static final int INITIAL_SIZE = 16;
+
+    private static final VarHandle SPANS;
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            SPANS = lookup.findVarHandle(SpanBuffer.class, "spans", Span[].class);
+            HEAD = lookup.findVarHandle(SpanBuffer.class, "head", long.class);
+            TAIL = lookup.findVarHandle(SpanBuffer.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Thread owner;
+    private final int capacity;
+    private Span[] spans;
+
+    @SuppressWarnings("unused")
+    private volatile long head;
+    @SuppressWarnings("unused")
+    private volatile long tail;
+
+
+    SpanBuffer(Thread owner, int capacity) {
+        var size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+
+        this.owner = owner;
+        this.capacity = size;
+        this.spans = new Span[Math.min(size, INITIAL_SIZE)];
+    }
+
+
+    /**
+     * Returns {@code true} if the owner thread is alive and can add spans.
+     */
+    boolean isAlive() {
+        return owner.isAlive();
+    }
+
+    /**
+     * Adds the span. Must be invoked by the owner thread only.
+     *
+     * @return {@code false} if the buffer is full and the span is dropped
+     */
+    boolean add(Span span) {
+        var t = (long) TAIL.getOpaque(this);
+        var h = (long) HEAD.getAcquire(this);
+        var array = spans;
+
+        if (t - h >= array.length) {
+            if (array.length >= capacity) {
+                return false;
+            }
+
+            array = grow(array, h, t);
+        }
+
+        array[(int) t & (array.length - 1)] = span;
+        TAIL.setRelease(this, t + 1);
+
+        return true;
+    }
+
+    /**
+     * Copies the spans which are not drained yet to a twice larger array. Must be invoked by the owner thread only.
+     */
+    private Span[] grow(Span[] array, long h, long t) {
+        var grown = new Span[array.length << 1];
+
+        for (var i = h; i < t; i++) {
+            grown[(int) i & (grown.length - 1)] = array[(int) i & (array.length - 1)];
+        }
+
+        SPANS.setRelease(this, grown);
+
+        return grown;
+    }
+
+    /**
+     * Moves all the spans to the given list. Must be invoked by a single thread at a time.
+     */
+    void drainTo(List<Span> destination) {
+        var h = (long) HEAD.getOpaque(this);
+        var t = (long) TAIL.getAcquire(this);
+        // The array is read after the tail, so it holds all the spans up to the tail
+        var array = (Span[]) SPANS.getAcquire(this);
+        var mask = array.length - 1;
+
+        for (var i = h; i < t; i++) {
+            var index = (int) i & mask;
+            destination.add(array[index]);
+            array[index] = null;
+        }
+
+        HEAD.setRelease(this, t);
+    }
+}
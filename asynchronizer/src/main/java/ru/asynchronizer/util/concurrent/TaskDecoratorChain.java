@@ -0,0 +1,80 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.Arrays;
+
+/**
+ * The immutable list of the {@link ITaskDecorator} instances applied to a task by a single wrapper.
+ *
+ * <p>
+ * The chain keeps the decorators in an array and the wrapper keeps their states in another one,
+ * so the decorators do not allocate nested wrappers; an empty chain allocates nothing at all.
+ */
+final class TaskDecoratorChain {
+
+    static final TaskDecoratorChain EMPTY = new TaskDecoratorChain(new ITaskDecorator[0]);
+
+    private final ITaskDecorator[] decorators;
+
+
+    private TaskDecoratorChain(ITaskDecorator[] decorators) {
+        this.decorators = decorators;
+    }
+
+
+    /**
+     * Returns a new chain with the given decorator added to the end.
+     */
+    TaskDecoratorChain with(ITaskDecorator decorator) {
+        var result = Arrays.copyOf(decorators, decorators.length + 1);
+        result[decorators.length] = decorator;
+        return new TaskDecoratorChain(result);
+    }
+
+    /**
+     * Returns a new chain without the given decorator.
+     */
+    TaskDecoratorChain without(ITaskDecorator decorator) {
+        var result = Arrays.stream(decorators)
+                .filter(d -> d != decorator)
+                .toArray(ITaskDecorator[]::new);
+
+        return (result.length != decorators.length) ? new TaskDecoratorChain(result) : this;
+    }
+
+    /**
+     * Invokes the {@link ITaskDecorator#onSubmit(Object)} method of the decorators.
+     *
+     * @return the states of the decorators, or {@code null} if the chain is empty
+     */
+    Object[] onSubmit(Object task) {
+        if (decorators.length == 0) {
+            return null;
+        }
+
+        var states = new Object[decorators.length];
+
+        for (var i = 0; i < decorators.length; i++) {
+            states[i] = decorators[i].onSubmit(task);
+        }
+
+        return states;
+    }
+
+    /**
+     * Invokes the {@link ITaskDecorator#beforeRun(Object)} method of the decorators in the order of registration.
+     */
+    void beforeRun(Object[] states) {
+        for (var i = 0; i < decorators.length; i++) {
+            decorators[i].beforeRun(states[i]);
+        }
+    }
+
+    /**
+     * Invokes the {@link ITaskDecorator#afterRun(Object, Throwable)} method of the decorators in the reverse order.
+     */
+    void afterRun(Object[] states, Throwable error) {
+        for (var i = decorators.length - 1; i >= 0; i--) {
+            decorators[i].afterRun(states[i], error);
+        }
+    }
+}
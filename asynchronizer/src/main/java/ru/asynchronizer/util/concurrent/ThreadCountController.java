@@ -0,0 +1,300 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.*;
+
+import ru.asynchronizer.util.IDisposable;
+
+/**
+ * Adjusts the size of a thread pool to its load with hill climbing.
+ *
+ * <p>
+ * Once per sampling period, the controller measures the throughput of the pool, the average time the tasks waited
+ * in the queue and the system CPU load, and moves the pool size by one thread within the bounds:
+ *
+ * <ul>
+ *     <li>if there is no backlog, it releases a thread;</li>
+ *     <li>if the CPU is saturated, it does not add threads, and releases one if the throughput has dropped;</li>
+ *     <li>otherwise, it keeps moving in the same direction while the throughput grows or stays the same,
+ *     and reverses the direction when the throughput drops.</li>
+ * </ul>
+ *
+ * <p>
+ * The throughput changes less than {@link #TOLERANCE} are treated as noise. The decisions are logged at the debug
+ * level and published with the {@link IThreadCountController} MBean.
+ */
+@Slf4j
+final class ThreadCountController implements IThreadCountController, IDisposable {
+
+    static final Duration SAMPLING_PERIOD = Duration.ofMillis(500);
+    static final double TOLERANCE = 0.05;
+    static final double CPU_SATURATION = 0.9;
+    static final double QUEUE_TIME_THRESHOLD_MICROS = 1000;
+
+    private final Class<?> owner;
+    private final String objectName;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorMetrics metrics;
+    private final int minPoolSize;
+    private final int maxPoolSize;
+
+    private int direction;
+    private double previousThroughput;
+    private long lastSampleTime;
+    private long lastCompleted;
+    private long lastQueueTimeTotal;
+    private long lastQueuedTasks;
+    private ScheduledFuture<?> sampling;
+
+    private volatile int poolSize;
+    private volatile double throughput;
+    private volatile double queueTimeMicros;
+    private volatile double cpuLoad;
+    private volatile String lastDecision;
+    private volatile long decisionCount;
+
+
+    /**
+     * @param owner the class which uses the pool
+     * @param poolNumber the number of the pool of the owner
+     * @param pool the controlled pool, its core size is the initial size
+     * @param metrics the metrics of the pool
+     */
+    ThreadCountController(Class<?> owner, int poolNumber, ThreadPoolExecutor pool, ExecutorMetrics metrics, int minPoolSize, int maxPoolSize) {
+        if (minPoolSize <= 0 || maxPoolSize < minPoolSize) {
+            throw new IllegalArgumentException("The pool size bounds are invalid: " + minPoolSize + ".." + maxPoolSize);
+        }
+
+        this.owner = owner;
+        this.objectName = JmxUtil.objectName("ThreadCountController", owner, poolNumber);
+        this.pool = pool;
+        this.metrics = metrics;
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.direction = 1;
+        this.previousThroughput = -1;
+        this.poolSize = pool.getCorePoolSize();
+        this.cpuLoad = -1;
+        this.lastDecision = "";
+    }
+
+
+    @Override
+    public String getOwner() {
+        return owner.getName();
+    }
+
+    @Override
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    @Override
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public double getThroughput() {
+        return throughput;
+    }
+
+    @Override
+    public double getQueueTimeMicros() {
+        return queueTimeMicros;
+    }
+
+    @Override
+    public double getCpuLoad() {
+        return cpuLoad;
+    }
+
+    @Override
+    public String getLastDecision() {
+        return lastDecision;
+    }
+
+    @Override
+    public long getDecisionCount() {
+        return decisionCount;
+    }
+
+
+    /**
+     * Registers the MBean and starts sampling the pool.
+     */
+    synchronized void start() {
+        JmxUtil.register(this, objectName, owner);
+
+        lastSampleTime = System.nanoTime();
+        lastCompleted = completedTasks();
+        lastQueueTimeTotal = metrics.queueTimeTotal();
+        lastQueuedTasks = metrics.queuedTasks();
+
+        var period = SAMPLING_PERIOD.toNanos();
+        sampling = Scheduler.INSTANCE.scheduleAtFixedRate(this::sample, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops sampling the pool and unregisters the MBean.
+     */
+    @Override
+    public synchronized void dispose() {
+        if (sampling != null) {
+            sampling.cancel(false);
+            sampling = null;
+        }
+
+        JmxUtil.unregister(objectName, owner);
+    }
+
+
+    /**
+     * Measures the pool since the previous sample and adjusts its size.
+     */
+    synchronized void sample() {
+        try {
+            var now = System.nanoTime();
+            var completed = completedTasks();
+            var queueTimeTotal = metrics.queueTimeTotal();
+            var queuedTasks = metrics.queuedTasks();
+
+            var seconds = Math.max(now - lastSampleTime, 1) / 1e9;
+            var started = queuedTasks - lastQueuedTasks;
+
+            decide((completed - lastCompleted) / seconds,
+                    (started > 0) ? (queueTimeTotal - lastQueueTimeTotal) / 1e3 / started : 0,
+                    pool.getQueue().size(),
+                    getSystemCpuLoad());
+
+            lastSampleTime = now;
+            lastCompleted = completed;
+            lastQueueTimeTotal = queueTimeTotal;
+            lastQueuedTasks = queuedTasks;
+        } catch (RuntimeException e) {
+            // The sampling must go on
+            log.atError()
+                    .setMessage("The pool size cannot be adjusted. Owner: {owner}.")
+                    .addKeyValue("owner", owner)
+                    .setCause(e)
+                    .log();
+        }
+    }
+
+    /**
+     * Chooses the pool size for the given measurements and applies it to the pool.
+     *
+     * @param throughput the number of tasks completed per second
+     * @param queueTimeMicros the average time the started tasks waited in the queue
+     * @param queueSize the number of tasks in the queue now
+     * @param cpuLoad the system CPU load from 0 to 1, or a negative value if it is unavailable
+     *
+     * @return the new pool size
+     */
+    synchronized int decide(double throughput, double queueTimeMicros, int queueSize, double cpuLoad) {
+        this.throughput = throughput;
+        this.queueTimeMicros = queueTimeMicros;
+        this.cpuLoad = cpuLoad;
+
+        int step;
+        String reason;
+
+        if (queueSize == 0 && queueTimeMicros < QUEUE_TIME_THRESHOLD_MICROS) {
+            // Probe upwards again as soon as a backlog appears
+            step = -1;
+            reason = "no backlog";
+            direction = 1;
+            previousThroughput = -1;
+        } else if (cpuLoad >= CPU_SATURATION) {
+            step = isLess(throughput, previousThroughput) ? -1 : 0;
+            reason = "CPU saturated";
+            previousThroughput = throughput;
+        } else {
+            if (isLess(throughput, previousThroughput)) {
+                direction = -direction;
+                reason = "throughput dropped";
+            } else {
+                reason = (previousThroughput < 0) ? "backlog" : "throughput held";
+            }
+
+            step = direction;
+            previousThroughput = throughput;
+        }
+
+        var size = Math.max(minPoolSize, Math.min(maxPoolSize, poolSize + step));
+
+        if (size == poolSize && step == direction) {
+            // The bound is reached, so the next probe goes the other way
+            direction = -direction;
+        }
+
+        if (size != poolSize) {
+            resize(size);
+            decisionCount++;
+            lastDecision = String.format("%d -> %d: %s (throughput %.1f/s, queue time %.0f us, CPU %.2f)",
+                    poolSize, size, reason, throughput, queueTimeMicros, cpuLoad);
+
+            log.atDebug()
+                    .setMessage("The pool size is changed. Owner: {owner}. Decision: {decision}.")
+                    .addKeyValue("owner", owner)
+                    .addKeyValue("decision", lastDecision)
+                    .log();
+
+            poolSize = size;
+        }
+
+        return size;
+    }
+
+
+    private void resize(int size) {
+        // The core size cannot exceed the maximum one
+        if (size > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+    }
+
+    private long completedTasks() {
+        return metrics.getCompletedTasks() + metrics.getFailedTasks();
+    }
+
+    private static boolean isLess(double value, double previousValue) {
+        return previousValue >= 0 && value < previousValue * (1 - TOLERANCE);
+    }
+
+    private static double getSystemCpuLoad() {
+        var os = ManagementFactory.getOperatingSystemMXBean();
+
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getCpuLoad();
+        }
+
+        var loadAverage = os.getSystemLoadAverage();
+        return (loadAverage >= 0) ? Math.min(loadAverage / os.getAvailableProcessors(), 1) : -1;
+    }
+
+
+    /**
+     * The thread sampling all the adaptive pools; it is started with the first pool.
+     */
+    private static final class Scheduler {
+
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+                new AsyncContextThreadFactory(ThreadCountController.class, true, null));
+    }
+}
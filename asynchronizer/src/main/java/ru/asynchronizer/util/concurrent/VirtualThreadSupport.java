@@ -0,0 +1,98 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provides access to virtual threads when the runtime supports them.
+ *
+ * <p>
+ * The library is compiled for Java 17, so the virtual thread API is accessed reflectively. If the runtime does not
+ * support virtual threads, the callers fall back to platform daemon threads.
+ */
+final class VirtualThreadSupport {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method UNCAUGHT_EXCEPTION_HANDLER;
+    private static final Method FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method uncaughtExceptionHandler = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+
+        try {
+            var builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            uncaughtExceptionHandler = builderClass.getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class);
+            factory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            // Virtual threads are a preview feature in Java 19-20, so they may be disabled
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNCAUGHT_EXCEPTION_HANDLER = uncaughtExceptionHandler;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+
+    private VirtualThreadSupport() {
+        // Static only class
+    }
+
+
+    /**
+     * Returns {@code true} if the runtime supports virtual threads.
+     */
+    static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a factory of virtual threads named with the given prefix and a sequential number starting from 1.
+     */
+    static ThreadFactory newThreadFactory(String threadNamePrefix, Thread.UncaughtExceptionHandler exceptionHandler) {
+        checkSupported();
+
+        try {
+            var builder = OF_VIRTUAL.invoke(null);
+            builder = NAME.invoke(builder, threadNamePrefix, 1L);
+            builder = UNCAUGHT_EXCEPTION_HANDLER.invoke(builder, exceptionHandler);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates an executor that starts a new thread for each task.
+     */
+    static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        checkSupported();
+
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void checkSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported.");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncContextCodecTest {
+
+    @Test
+    public void shouldEncodeAndDecodeProperties() {
+
+        // Given
+        var context = new AsyncContext();
+        var codec = new AsyncContextCodec(context, List.of("s", "b", "i", "l", "d", "u", "n"));
+        var buffer = ByteBuffer.allocate(256);
+        var requestId = UUID.randomUUID();
+
+        context.setProperty("s", "значение");
+        context.setProperty("b", true);
+        context.setProperty("i", -123);
+        context.setProperty("l", Long.MAX_VALUE);
+        context.setProperty("d", 1.5);
+        context.setProperty("u", requestId);
+        context.setProperty("other", "not propagated");
+
+        // When
+        var size = codec.encode(context.capture(), buffer);
+        buffer.flip();
+        var decoded = codec.decode(buffer);
+        var properties = new HashMap<String, Object>();
+        decoded.copyTo(properties);
+
+        // Then
+        assertThat(size).isEqualTo(buffer.limit());
+        assertThat(buffer.remaining()).isEqualTo(0);
+        assertThat(properties).isEqualTo(Map.of(
+                "s", "значение",
+                "b", true,
+                "i", -123,
+                "l", Long.MAX_VALUE,
+                "d", 1.5,
+                "u", requestId));
+    }
+
+    @Test
+    public void shouldUseDecodedContext() {
+
+        // Given
+        var context = new AsyncContext();
+        var codec = new AsyncContextCodec(context, List.of("userId"));
+        var buffer = ByteBuffer.allocate(16);
+
+        context.setProperty("userId", 123);
+        codec.encode(context.capture(), buffer);
+        context.setProperty("userId", null);
+        buffer.flip();
+
+        // When
+        Object userId;
+
+        try (var ignored = codec.decode(buffer).use()) {
+            userId = context.getProperty("userId");
+        }
+
+        // Then
+        assertThat(userId).isEqualTo(123);
+        assertThat(context.getProperty("userId")).isNull();
+    }
+
+    @Test
+    public void shouldSkipUnknownProperties() {
+
+        // Given
+        var context = new AsyncContext();
+        var sender = new AsyncContextCodec(context, List.of("p1", "p2"));
+        var receiver = new AsyncContextCodec(context, List.of("p1"));
+        var buffer = ByteBuffer.allocate(64);
+
+        context.setProperty("p1", "v1");
+        context.setProperty("p2", "v2");
+
+        // When
+        sender.encode(context.capture(), buffer);
+        buffer.flip();
+        var properties = new HashMap<String, Object>();
+        receiver.decode(buffer).copyTo(properties);
+
+        // Then
+        assertThat(properties).isEqualTo(Map.of("p1", "v1"));
+    }
+
+    @Test
+    public void shouldRejectInvalidData() {
+
+        // Given
+        var context = new AsyncContext();
+        var codec = new AsyncContextCodec(context, List.of("p1", "p2"));
+
+        context.setProperty("p1", "a long value which does not fit the buffer");
+        context.setProperty("p2", new Object());
+
+        // When
+        var overflowError = getError(() -> codec.encode(context.capture(), ByteBuffer.allocate(8)));
+        var typeError = getError(() -> codec.encode(context.capture(), ByteBuffer.allocate(256)));
+        var truncationError = getError(() -> codec.decode(ByteBuffer.wrap(new byte[] { 1, 1, 6, 10 })));
+        var negativeIdError = getError(() -> codec.decode(ByteBuffer.wrap(new byte[] { 1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1, 0, 0 })));
+        var intRangeError = getError(() -> codec.decode(ByteBuffer.wrap(new byte[] { 1, 1, 3, -128, -128, -128, -128, 16, 0 })));
+
+        // Then
+        assertThat(overflowError).isInstanceOf(BufferOverflowException.class);
+        assertThat(typeError).isInstanceOf(IllegalArgumentException.class);
+        assertThat(truncationError).isInstanceOf(IllegalArgumentException.class);
+        assertThat(negativeIdError).isInstanceOf(IllegalArgumentException.class);
+        assertThat(intRangeError).isInstanceOf(IllegalArgumentException.class);
+    }
+
+
+    private static Throwable getError(Runnable action) {
+        try {
+            action.run();
+            return null;
+        } catch (Throwable e) {
+            return e;
+        }
+    }
+}
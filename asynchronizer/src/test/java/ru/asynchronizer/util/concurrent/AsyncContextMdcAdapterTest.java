@@ -0,0 +1,189 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.BasicMDCAdapter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncContextMdcAdapterTest {
+
+    @Test
+    public void shouldNotUpdateMdcWhenSwitchingToAppliedContext() {
+
+        // Given
+        var mdc = new CountingMdcAdapter();
+        var observer = new AsyncContextMdcAdapter.MdcAsyncContextObserver(mdc);
+        var context = Map.<String, Object>of("p1", "v1", "p2", "v2");
+        observer.contextSwitch(context);
+        var puts = mdc.puts;
+
+        // When
+        observer.contextSwitch(context);
+
+        // Then
+        assertThat(puts).isEqualTo(2);
+        assertThat(mdc.puts).isEqualTo(2);
+        assertThat(mdc.get("p1")).isEqualTo("v1");
+        assertThat(mdc.get("p2")).isEqualTo("v2");
+    }
+
+    @Test
+    public void shouldUpdateOnlyChangedProperties() {
+
+        // Given
+        var mdc = new CountingMdcAdapter();
+        var observer = new AsyncContextMdcAdapter.MdcAsyncContextObserver(mdc);
+        var value = "v1";
+        observer.contextSwitch(Map.of("p1", value, "p2", "v2"));
+
+        // When
+        observer.contextSwitch(Map.of("p1", value, "p2", "v3"));
+
+        // Then
+        assertThat(mdc.puts).isEqualTo(3);
+        assertThat(mdc.get("p1")).isEqualTo("v1");
+        assertThat(mdc.get("p2")).isEqualTo("v3");
+    }
+
+    @Test
+    public void shouldRemoveAbsentProperties() {
+
+        // Given
+        var mdc = new CountingMdcAdapter();
+        var observer = new AsyncContextMdcAdapter.MdcAsyncContextObserver(mdc);
+        observer.contextSwitch(Map.of("p1", "v1", "p2", "v2"));
+
+        // When
+        observer.contextSwitch(Map.of("p1", "v1"));
+
+        // Then
+        assertThat(mdc.get("p1")).isEqualTo("v1");
+        assertThat(mdc.get("p2")).isNull();
+    }
+
+    @Test
+    public void shouldReapplyContextAfterPropertyChange() {
+
+        // Given
+        var mdc = new CountingMdcAdapter();
+        var observer = new AsyncContextMdcAdapter.MdcAsyncContextObserver(mdc);
+        var context = Map.<String, Object>of("p1", "v1");
+        observer.contextSwitch(context);
+
+        // When
+        observer.contextChange("p1", "v2");
+
+        // Then
+        assertThat(mdc.get("p1")).isEqualTo("v2");
+
+        // When
+        observer.contextSwitch(context);
+
+        // Then
+        assertThat(mdc.get("p1")).isEqualTo("v1");
+    }
+
+    @Test
+    public void shouldPreserveOtherMdcEntries() {
+
+        // Given
+        var mdc = new CountingMdcAdapter();
+        var observer = new AsyncContextMdcAdapter.MdcAsyncContextObserver(mdc);
+        mdc.put("requestId", "r1");
+
+        // When
+        observer.contextSwitch(Map.of("p1", "v1"));
+        observer.contextSwitch(Map.of("p2", "v2"));
+        observer.contextSwitch(Map.of());
+
+        // Then
+        assertThat(mdc.get("requestId")).isEqualTo("r1");
+        assertThat(mdc.get("p1")).isNull();
+        assertThat(mdc.get("p2")).isNull();
+    }
+
+    @Test
+    public void shouldKeepStateBetweenTasks() {
+
+        // Given
+        var mdc = new CountingMdcAdapter();
+        var observer = new AsyncContextMdcAdapter.MdcAsyncContextObserver(mdc);
+        var context = Map.<String, Object>of("p1", "v1", "p2", "v2");
+        observer.contextSwitch(context);
+        var threadState = observer.state.get();
+
+        // When
+        observer.contextSwitch(Map.of()); // the first task is over
+        observer.contextSwitch(context);
+        observer.contextSwitch(Map.of()); // the second task is over
+
+        // Then
+        assertThat(observer.state.get()).isSameAs(threadState);
+        assertThat(mdc.puts).isEqualTo(4);
+        assertThat(mdc.get("p1")).isNull();
+        assertThat(mdc.get("p2")).isNull();
+    }
+
+    @Test
+    public void shouldNotCreateStateForEmptyContext() {
+
+        // Given
+        var mdc = new CountingMdcAdapter();
+        var observer = new AsyncContextMdcAdapter.MdcAsyncContextObserver(mdc);
+
+        // When
+        observer.contextSwitch(Map.of());
+
+        // Then
+        assertThat(observer.state.get()).isNull();
+        assertThat(mdc.puts).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldApplyContextOfTask() throws Exception {
+
+        // Given
+        var mdc = new CountingMdcAdapter();
+        var context = new AsyncContext();
+        var adapter = new AsyncContextMdcAdapter(context, mdc);
+        adapter.run();
+        context.setProperty("p1", "v1");
+        var capture = context.capture();
+
+        try {
+
+            // When
+            var taskValue = new String[1];
+            var thread = new Thread(() -> {
+                try (var ignored = capture.use()) {
+                    taskValue[0] = mdc.get("p1");
+                }
+                taskValue[0] += "/" + mdc.get("p1");
+            });
+            thread.start();
+            thread.join(5000);
+
+            // Then
+            assertThat(mdc.get("p1")).isEqualTo("v1");
+            assertThat(taskValue[0]).isEqualTo("v1/null");
+
+        } finally {
+            adapter.dispose();
+        }
+    }
+
+
+    private static class CountingMdcAdapter extends BasicMDCAdapter {
+
+        private int puts;
+
+
+        @Override
+        public void put(String key, String val) {
+            puts++;
+            super.put(key, val);
+        }
+    }
+}
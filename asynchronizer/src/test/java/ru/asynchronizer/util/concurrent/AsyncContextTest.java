@@ -9,6 +9,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
+import ru.asynchronizer.util.IDisposable;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class AsyncContextTest {
@@ -227,6 +229,248 @@ public class AsyncContextTest {
         assertThat(contextSwitches.get()).isEqualTo(2);
     }
 
+    @Test
+    public void shouldNotSwitchToSameState() throws Exception {
+
+        // Given
+
+        var context = new AsyncContext();
+        var contextSwitches = new AtomicInteger(0);
+
+        context.subscribeToChange(new IAsyncContextObserver() {
+
+            @Override
+            public void contextChange(String name, Object value) {
+            }
+
+            @Override
+            public void contextSwitch(Map<String, Object> context) {
+                contextSwitches.incrementAndGet();
+            }
+        });
+
+        // When
+
+        context.setProperty("p1", "v1");
+        var capture1 = context.capture();
+
+        context.setProperty("p1", "v1"); // the same value
+        var capture2 = context.capture();
+
+        capture2.use().dispose();
+
+        // Then
+        assertThat(capture2).isSameAs(capture1);
+        assertThat(contextSwitches.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldKeepManyProperties() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+
+        // When
+
+        var parentState = new HashMap<String, Object>();
+        var threadState = new HashMap<String, Object>();
+
+        for (var i = 0; i < 100; i++) {
+            context.setProperty("p" + i, "v" + i);
+        }
+
+        var capture = context.capture();
+
+        await(async(() -> {
+            capture.use(); // apply capture
+
+            for (var i = 0; i < 100; i += 2) {
+                context.setProperty("p" + i, null);
+            }
+
+            context.capture().copyTo(threadState);
+        }));
+
+        context.capture().copyTo(parentState);
+
+        // Then
+
+        assertThat(parentState.size()).isEqualTo(100);
+        assertThat(parentState.get("p0")).isEqualTo("v0");
+        assertThat(parentState.get("p99")).isEqualTo("v99");
+        assertThat(context.getProperty("p42")).isEqualTo("v42");
+
+        assertThat(threadState.size()).isEqualTo(100);
+        assertThat(threadState.get("p0")).isNull();
+        assertThat(threadState.get("p1")).isEqualTo("v1");
+        assertThat(threadState.get("p99")).isEqualTo("v99");
+    }
+
+    @Test
+    public void shouldPassKeyValues() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var tenantKey = new ContextKey<String>("tenant");
+        var sameNameKey = new ContextKey<Integer>("tenant");
+
+        // When
+
+        context.set(tenantKey, "t1");
+        context.set(sameNameKey, 1);
+        context.setProperty("tenant", "p1");
+
+        var capture = context.capture();
+        var threadTenant = new CompletableFuture<String>();
+        var threadSameName = new CompletableFuture<Integer>();
+
+        await(async(() -> {
+            capture.use(); // apply capture
+            threadTenant.complete(context.get(tenantKey));
+            threadSameName.complete(context.get(sameNameKey));
+            context.set(tenantKey, "t2");
+        }));
+
+        var propertiesState = new HashMap<String, Object>();
+        context.capture().copyTo(propertiesState);
+
+        // Then
+        assertThat(threadTenant.getNow(null)).isEqualTo("t1");
+        assertThat(threadSameName.getNow(null)).isEqualTo(1);
+        assertThat(context.get(tenantKey)).isEqualTo("t1");
+        assertThat(context.getProperty("tenant")).isEqualTo("p1");
+        assertThat(propertiesState).isEqualTo(Map.of("tenant", "p1"));
+    }
+
+    @Test
+    public void shouldClearLocalKeyValues() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var localKey = new ContextKey<String>("local", ContextKey.Inheritance.CLEAR);
+        var inheritedKey = new ContextKey<String>("inherited");
+
+        // When
+
+        context.set(localKey, "l1");
+        context.set(inheritedKey, "i1");
+
+        var capture = context.capture();
+        var threadLocal = new CompletableFuture<String>();
+        var threadInherited = new CompletableFuture<String>();
+
+        await(async(() -> {
+            capture.use(); // apply capture
+            threadLocal.complete(context.get(localKey));
+            threadInherited.complete(context.get(inheritedKey));
+        }));
+
+        String capturedLocal;
+
+        try (var ignored = capture.use()) {
+            capturedLocal = context.get(localKey);
+        }
+
+        var restoredLocal = context.get(localKey);
+
+        // Then
+        assertThat(threadLocal.getNow("")).isNull();
+        assertThat(threadInherited.getNow(null)).isEqualTo("i1");
+        assertThat(capturedLocal).isNull();
+        assertThat(restoredLocal).isEqualTo("l1");
+    }
+
+    @Test
+    public void shouldRestoreEmptyState() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        context.setProperty("p1", "v1");
+        var capture = context.capture();
+
+        // When
+
+        var threadState = new HashMap<String, Object>();
+
+        await(async(() -> {
+            var captureUsage = capture.use(); // apply capture to the thread without context
+            context.setProperty("p2", "v2");
+            captureUsage.dispose(); // restore the empty state
+
+            context.capture().copyTo(threadState);
+        }));
+
+        // Then
+        assertThat(threadState).isEmpty();
+        assertThat(context.getProperty("p1")).isEqualTo("v1");
+        assertThat(context.getProperty("p2")).isNull();
+    }
+
+
+    @Test
+    public void shouldRestoreSameStateChangedInScope() {
+
+        // Given
+        var context = new AsyncContext();
+        context.setProperty("p1", "v1");
+        var capture = context.capture();
+
+        // When
+
+        try (var ignored = capture.use()) { // the thread already has the same context
+            context.setProperty("p2", "v2");
+        }
+
+        new AsyncContextRunnable(() -> context.setProperty("p3", "v3"), context, e -> { }).run();
+
+        // Then
+        assertThat(context.getProperty("p1")).isEqualTo("v1");
+        assertThat(context.getProperty("p2")).isNull();
+        assertThat(context.getProperty("p3")).isNull();
+    }
+
+    @Test
+    public void shouldSupportContextWithoutKeys() {
+
+        // Given
+        var context = new IAsyncContext() { // implements only the methods which are not default
+
+            @Override
+            public IAsyncContextCapture capture() {
+                return null;
+            }
+
+            @Override
+            public Object getProperty(String name) {
+                return null;
+            }
+
+            @Override
+            public void setProperty(String name, Object value) {
+            }
+
+            @Override
+            public IDisposable subscribeToChange(IAsyncContextObserver observer) {
+                return null;
+            }
+        };
+
+        // When
+        var cancellationToken = context.cancellationToken();
+        var span = context.currentSpan();
+        Throwable setError = null;
+
+        try {
+            context.setCancellationToken(CancellationToken.NONE);
+        } catch (UnsupportedOperationException e) {
+            setError = e;
+        }
+
+        // Then
+        assertThat(cancellationToken).isSameAs(CancellationToken.NONE);
+        assertThat(span).isNull();
+        assertThat(setError).isNotNull();
+    }
 
     private static CompletableFuture<Void> async(Runnable action) {
 
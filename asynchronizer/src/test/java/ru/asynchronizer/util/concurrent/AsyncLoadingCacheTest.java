@@ -0,0 +1,208 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncLoadingCacheTest {
+
+    @Test
+    public void shouldLoadValueOnce() throws Exception {
+
+        // Given
+        var cache = new AsyncLoadingCache<Integer, String>();
+        var loadCount = new AtomicInteger();
+        var loadLatch = new CountDownLatch(1);
+
+        // When
+
+        var future1 = cache.computeIfAbsentAsync(1, k -> {
+            loadCount.incrementAndGet();
+            loadLatch.await();
+            return "A";
+        });
+
+        var future2 = cache.computeIfAbsentAsync(1, k -> {
+            loadCount.incrementAndGet();
+            return "B";
+        });
+
+        loadLatch.countDown();
+
+        // Then
+        assertThat(future1).isNotSameAs(future2);
+        assertThat(await(future1)).isEqualTo("A");
+        assertThat(await(future2)).isEqualTo("A");
+        assertThat(await(cache.computeIfAbsentAsync(1, k -> "C"))).isEqualTo("A");
+        assertThat(loadCount.get()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1L);
+        assertThat(cache.hitCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldNotShareCancellationBetweenCallers() throws Exception {
+
+        // Given
+        var cache = new AsyncLoadingCache<Integer, String>();
+        var loadLatch = new CountDownLatch(1);
+        var cancelledFuture = cache.computeIfAbsentAsync(1, k -> {
+            loadLatch.await();
+            return "A";
+        });
+        var future = cache.computeIfAbsentAsync(1, k -> "B");
+
+        // When
+        cancelledFuture.cancel(false);
+        loadLatch.countDown();
+
+        // Then
+        assertThat(cancelledFuture.isCancelled()).isEqualTo(true);
+        assertThat(await(future)).isEqualTo("A");
+        assertThat(await(cache.getIfPresent(1))).isEqualTo("A");
+        assertThat(cache.loadSuccessCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldPassContextToLoader() throws Exception {
+
+        // Given
+        var cache = new AsyncLoadingCache<Integer, Object>();
+        Asynchronizer.context().setProperty("cacheCaller", "someCaller");
+
+        // When
+        var future = cache.computeIfAbsentAsync(1, k -> Asynchronizer.context().getProperty("cacheCaller"));
+
+        // Then
+        assertThat(await(future)).isEqualTo("someCaller");
+    }
+
+    @Test
+    public void shouldNotCacheFailedLoad() throws Exception {
+
+        // Given
+        var cache = new AsyncLoadingCache<Integer, String>();
+        var error = new RuntimeException("Some error.");
+
+        // When
+        var failedFuture = cache.computeIfAbsentAsync(1, k -> { throw error; });
+        Throwable actualError = null;
+
+        try {
+            await(failedFuture);
+        } catch (ExecutionException e) {
+            actualError = e.getCause();
+        }
+
+        var future = cache.computeIfAbsentAsync(1, k -> "A");
+
+        // Then
+        assertThat(actualError).isEqualTo(error);
+        assertThat(await(future)).isEqualTo("A");
+        assertThat(cache.loadFailureCount()).isEqualTo(1L);
+        assertThat(cache.loadSuccessCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedKeys() throws Exception {
+
+        // Given
+        var cache = new AsyncLoadingCache<Integer, String>(3, null, null);
+        cache.put(1, "A");
+        cache.put(2, "B");
+        cache.put(3, "C");
+
+        // When
+        cache.getIfPresent(1);
+        cache.put(4, "D");
+        cache.put(5, "E");
+
+        // Then
+        assertThat(cache.size()).isEqualTo(3L);
+        assertThat(cache.evictionCount()).isEqualTo(2L);
+        assertThat(await(cache.getIfPresent(1))).isEqualTo("A");
+        assertThat(cache.getIfPresent(2)).isNull();
+        assertThat(cache.getIfPresent(3)).isNull();
+    }
+
+    @Test
+    public void shouldExpireValueAfterWrite() throws Exception {
+
+        // Given
+        var cache = new AsyncLoadingCache<Integer, String>(100, Duration.ofMillis(100), null);
+        var loadCount = new AtomicInteger();
+
+        // When
+        var value1 = await(cache.computeIfAbsentAsync(1, k -> "A" + loadCount.incrementAndGet()));
+        Thread.sleep(200);
+        var value2 = await(cache.computeIfAbsentAsync(1, k -> "A" + loadCount.incrementAndGet()));
+
+        // Then
+        assertThat(value1).isEqualTo("A1");
+        assertThat(value2).isEqualTo("A2");
+    }
+
+    @Test
+    public void shouldReturnStaleValueWhileRefreshing() throws Exception {
+
+        // Given
+        var cache = new AsyncLoadingCache<Integer, String>(100, null, Duration.ofMillis(100));
+        var loadCount = new AtomicInteger();
+        var refreshed = new CompletableFuture<Void>();
+
+        // When
+
+        var value1 = await(cache.computeIfAbsentAsync(1, k -> {
+            var n = loadCount.incrementAndGet();
+            if (n > 1) {
+                refreshed.complete(null);
+            }
+            return "A" + n;
+        }));
+
+        Thread.sleep(200);
+
+        var value2 = await(cache.computeIfAbsentAsync(1, k -> "X"));
+        await(refreshed);
+        Thread.sleep(100);
+        var value3 = await(cache.computeIfAbsentAsync(1, k -> "X"));
+
+        // Then
+        assertThat(value1).isEqualTo("A1");
+        assertThat(value2).isEqualTo("A1");
+        assertThat(value3).isEqualTo("A2");
+    }
+
+    @Test
+    public void shouldInvalidateKeys() throws Exception {
+
+        // Given
+        var cache = new AsyncLoadingCache<Integer, String>(100, null, null);
+        cache.put(1, "A");
+        cache.put(2, "B");
+
+        // When
+        cache.invalidate(1);
+
+        // Then
+        assertThat(cache.getIfPresent(1)).isNull();
+        assertThat(await(cache.getIfPresent(2))).isEqualTo("B");
+
+        // When
+        cache.invalidateAll();
+
+        // Then
+        assertThat(cache.size()).isEqualTo(0L);
+    }
+
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS); // prevent an infinite execution of the test
+    }
+}
@@ -0,0 +1,216 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncTracerTest {
+
+    private static final Class<?> owner = AsyncTracerTest.class;
+
+    private final List<Span> spans = new ArrayList<>();
+
+
+    @AfterEach
+    public void afterEach() {
+        AsyncTracer.disable();
+    }
+
+
+    @Test
+    public void shouldTraceSubmittedTasks() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var executor = factory.newSingleThreadExecutor(owner);
+
+        AsyncTracer.enable(spans::addAll, Duration.ofMinutes(1), 16);
+
+        try {
+
+            // When
+
+            Span operation;
+            Span taskParent;
+
+            try (var span = context.openSpan("operation")) {
+                operation = span;
+                taskParent = executor.submit(() -> {
+                    TimeUnit.MILLISECONDS.sleep(20);
+                    return context.currentSpan();
+                }).get();
+            }
+
+            var currentSpan = context.currentSpan();
+            AsyncTracer.flush();
+
+            // Then
+            assertThat(currentSpan).isNull();
+            assertThat(spans).hasSize(2);
+
+            var task = spans.stream().filter(s -> s.kind() == Span.Kind.TASK).findFirst().orElseThrow();
+            assertThat(task).isSameAs(taskParent);
+            assertThat(task.parentSpanId()).isEqualTo(operation.spanId());
+            assertThat(task.traceId()).isEqualTo(operation.traceId());
+            assertThat(task.runTime()).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+            assertThat(operation.runTime()).isGreaterThanOrEqualTo(task.runTime());
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldTraceEachRunOfPeriodicTask() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var executor = factory.newSingleThreadScheduledExecutor(owner);
+        var runs = new CountDownLatch(3);
+
+        AsyncTracer.enable(spans::addAll, Duration.ofMinutes(1), 16);
+
+        try {
+
+            // When
+
+            Span operation;
+
+            try (var span = context.openSpan("operation")) {
+                operation = span;
+                var future = executor.scheduleAtFixedRate(runs::countDown, 0, 10, TimeUnit.MILLISECONDS);
+                runs.await(5, TimeUnit.SECONDS);
+                future.cancel(false);
+            }
+
+            // The last run might be in progress while it is cancelled
+            executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+            AsyncTracer.flush();
+
+            // Then
+            var tasks = spans.stream().filter(s -> s.kind() == Span.Kind.TASK).collect(Collectors.toList());
+            assertThat(tasks.size()).isGreaterThanOrEqualTo(3);
+            assertThat(tasks.stream().map(Span::spanId).distinct().count()).isEqualTo((long) tasks.size());
+
+            for (var task : tasks) {
+                assertThat(task.parentSpanId()).isEqualTo(operation.spanId());
+                assertThat(task.traceId()).isEqualTo(operation.traceId());
+                assertThat(task.runTime()).isLessThan(Duration.ofSeconds(1));
+            }
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldNotTraceTasksOutsideSpan() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var executor = factory.newSingleThreadExecutor(owner);
+
+        AsyncTracer.enable(spans::addAll, Duration.ofMinutes(1), 16);
+
+        try {
+
+            // When
+            executor.submit(() -> { }).get();
+            AsyncTracer.flush();
+
+            // Then
+            assertThat(spans).isEmpty();
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldTraceAwaitableQueue() throws Exception {
+
+        // Given
+        var context = Asynchronizer.context();
+        var executor = Executors.newSingleThreadExecutor();
+        var queue = new AwaitableQueue(executor);
+        var task = new AwaitableQueueTest.SomeTask<Integer>();
+
+        AsyncTracer.enable(spans::addAll, Duration.ofMinutes(1), 16);
+
+        try {
+
+            // When
+
+            try (var ignored = context.openSpan("operation")) {
+                var taskFuture = queue.enqueue(task);
+                task.complete(1);
+                taskFuture.get(5, TimeUnit.SECONDS);
+            }
+
+            AsyncTracer.flush();
+
+            // Then
+            assertThat(spans).hasSize(2);
+            assertThat(spans.stream().anyMatch(s -> s.kind() == Span.Kind.AWAIT)).isEqualTo(true);
+
+        } finally {
+            queue.dispose();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotTraceWhenDisabled() {
+
+        // Given
+        var context = new AsyncContext();
+
+        // When
+        var span = context.openSpan("operation");
+
+        // Then
+        assertThat(AsyncTracer.isEnabled()).isEqualTo(false);
+        assertThat(span).isSameAs(Span.NONE);
+        assertThat(context.currentSpan()).isNull();
+    }
+
+    @Test
+    public void shouldExportSpansToFile() throws Exception {
+
+        // Given
+        var file = Files.createTempFile(owner.getSimpleName(), ".jsonl");
+        var context = new AsyncContext();
+
+        AsyncTracer.enable(new FileSpanSink(file));
+
+        try {
+
+            // When
+            context.openSpan("first \"operation\"").dispose();
+            context.openSpan("second").dispose();
+            AsyncTracer.disable();
+
+            // Then
+            var lines = Files.readAllLines(file);
+            assertThat(lines).hasSize(2);
+            assertThat(lines.get(0)).contains("\"name\":\"first \\\"operation\\\"\"", "\"kind\":\"OPERATION\"");
+            assertThat(lines.get(1)).contains("\"name\":\"second\"");
+
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
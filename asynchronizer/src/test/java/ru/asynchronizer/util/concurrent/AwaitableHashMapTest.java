@@ -1,8 +1,18 @@
 package ru.asynchronizer.util.concurrent;
 
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
@@ -17,7 +27,7 @@ public class AwaitableHashMapTest {
     public void shouldPutValue() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
 
         // When
         map.put(1, "A");
@@ -33,11 +43,58 @@ public class AwaitableHashMapTest {
         assertThat(map.values()).containsExactlyInAnyOrder("A", "B", "C");
     }
 
+    @Test
+    public void shouldNotExposeAwaitedKeys() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        map.put(1, "A");
+
+        // When
+        map.await(2);
+        map.awaitRemove(1);
+        map.awaitMatch(3, v -> true);
+
+        // Then
+        assertThat(map.get(2)).isNull();
+        assertThat(map.get(3)).isNull();
+        assertThat(map.keySet()).containsExactlyInAnyOrder(1);
+        assertThat(map.keySet().size()).isEqualTo(1);
+        assertThat(map.values()).containsExactlyInAnyOrder("A");
+    }
+
+    @Test
+    public void shouldAwaitValuesConcurrently() throws Exception {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, Integer>();
+        var futures = new ArrayList<CompletableFuture<Integer>>();
+
+        // When
+
+        var producer = CompletableFuture.runAsync(() -> {
+            for (var key = 0; key < 1_000; key++) {
+                map.put(key, key);
+            }
+        });
+
+        for (var key = 0; key < 1_000; key++) {
+            futures.add(map.await(key, 5, TimeUnit.SECONDS));
+        }
+
+        producer.get(5, TimeUnit.SECONDS);
+
+        // Then
+        for (var key = 0; key < 1_000; key++) {
+            assertThat(futures.get(key).get(5, TimeUnit.SECONDS)).isEqualTo(key);
+        }
+    }
+
     @Test
     public void shouldAwaitValueInfinitely() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
 
         // When
         var futureValue1 = map.await(1);
@@ -67,7 +124,7 @@ public class AwaitableHashMapTest {
     public void shouldAwaitValueWithTimeout() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
 
         // When
         var futureValue1 = map.await(1, 5, TimeUnit.SECONDS);
@@ -97,7 +154,7 @@ public class AwaitableHashMapTest {
     public void shouldAwaitValueOrGetDefaultByTimeout() throws Exception {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
 
         // When
         var futureValue1 = map.awaitOrDefault(1, "X", 1, TimeUnit.SECONDS);
@@ -131,7 +188,7 @@ public class AwaitableHashMapTest {
     public void shouldNotAwaitExistingValue() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
         map.put(1, "A");
         map.put(2, "B");
         map.put(3, "C");
@@ -154,7 +211,7 @@ public class AwaitableHashMapTest {
     public void shouldThrowExceptionByTimeout() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
 
         // When
 
@@ -175,6 +232,232 @@ public class AwaitableHashMapTest {
     }
 
 
+    // AWAIT ALL / ANY
+
+
+    @Test
+    public void shouldAwaitAllValues() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        map.put(1, "A");
+
+        // When
+        var futureValues = map.awaitAll(List.of(1, 2, 3), 5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(futureValues.isDone()).isEqualTo(false);
+
+        // When
+        map.put(2, "B");
+
+        // Then
+        assertThat(futureValues.isDone()).isEqualTo(false);
+
+        // When
+        map.put(3, "C");
+
+        // Then
+        assertThat(futureValues.isDone()).isEqualTo(true);
+        assertThat(futureValues.getNow(null)).isEqualTo(Map.of(1, "A", 2, "B", 3, "C"));
+    }
+
+    @Test
+    public void shouldNotAwaitAllExistingValues() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        map.put(1, "A");
+        map.put(2, "B");
+
+        // When
+        var futureValues = map.awaitAll(List.of(1, 2));
+
+        // Then
+        assertThat(futureValues.isDone()).isEqualTo(true);
+        assertThat(futureValues.getNow(null)).isEqualTo(Map.of(1, "A", 2, "B"));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenAwaitAllByTimeout() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+
+        // When
+
+        var neverCompleted = map.awaitAll(List.of(1, 2), 1, TimeUnit.MILLISECONDS);
+        map.put(1, "A");
+
+        Throwable actualError = null;
+
+        try {
+            neverCompleted.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            actualError = e.getCause();
+        }
+
+        // Then
+        assertThat(neverCompleted.isDone()).isEqualTo(true);
+        assertThat(actualError).isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    public void shouldAwaitAnyValue() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+
+        // When
+        var futureValue = map.awaitAny(List.of(1, 2, 3), 5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(false);
+
+        // When
+        map.put(4, "D");
+        map.put(2, "B");
+        map.put(3, "C");
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(true);
+        assertThat(futureValue.getNow(null)).isEqualTo(Map.of(2, "B"));
+    }
+
+    @Test
+    public void shouldNotAwaitAnyExistingValue() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        map.put(2, "B");
+
+        // When
+        var futureValue = map.awaitAny(List.of(1, 2, 3));
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(true);
+        assertThat(futureValue.getNow(null)).isEqualTo(Map.of(2, "B"));
+    }
+
+    @Test
+    public void shouldNotAffectOtherAwaitersWhenAwaitAnyCompleted() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+
+        // When
+        var futureAny = map.awaitAny(List.of(1, 2));
+        var futureAll = map.awaitAll(List.of(1, 2));
+        var futureValue = map.await(2);
+        map.put(1, "A");
+
+        // Then
+        assertThat(futureAny.isDone()).isEqualTo(true);
+        assertThat(futureAll.isDone()).isEqualTo(false);
+        assertThat(futureValue.isDone()).isEqualTo(false);
+
+        // When
+        map.put(2, "B");
+
+        // Then
+        assertThat(futureAll.getNow(null)).isEqualTo(Map.of(1, "A", 2, "B"));
+        assertThat(futureValue.getNow(null)).isEqualTo("B");
+    }
+
+
+    // AWAIT CHANGE / MATCH
+
+
+    @Test
+    public void shouldAwaitValueChange() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        map.put(1, "A");
+
+        // When
+        var futureValue = map.awaitChange(1, "A", 5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(false);
+
+        // When
+        map.put(1, "A");
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(false);
+
+        // When
+        map.put(1, "B");
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(true);
+        assertThat(futureValue.getNow(null)).isEqualTo("B");
+    }
+
+    @Test
+    public void shouldNotAwaitAlreadyChangedValue() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        map.put(1, "B");
+
+        // When
+        var futureValue = map.awaitChange(1, "A");
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(true);
+        assertThat(futureValue.getNow(null)).isEqualTo("B");
+    }
+
+    @Test
+    public void shouldAwaitMatchingValue() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, Integer>(Runnable::run);
+
+        // When
+        var futureValue = map.awaitMatch(1, v -> v >= 3, 5, TimeUnit.SECONDS);
+        map.put(1, 1);
+        map.put(1, 2);
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(false);
+
+        // When
+        map.put(1, 3);
+        map.put(1, 4);
+
+        // Then
+        assertThat(futureValue.isDone()).isEqualTo(true);
+        assertThat(futureValue.getNow(null)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenAwaitMatchByTimeout() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, Integer>(Runnable::run);
+
+        // When
+
+        var neverCompleted = map.awaitMatch(1, v -> v > 10, 1, TimeUnit.MILLISECONDS);
+        map.put(1, 1);
+
+        Throwable actualError = null;
+
+        try {
+            neverCompleted.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            actualError = e.getCause();
+        }
+
+        // Then
+        assertThat(neverCompleted.isDone()).isEqualTo(true);
+        assertThat(actualError).isInstanceOf(TimeoutException.class);
+    }
+
+
     // REMOVE
 
 
@@ -182,7 +465,7 @@ public class AwaitableHashMapTest {
     public void shouldRemoveValue() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
         map.put(1, "A");
         map.put(2, "B");
         map.put(3, "C");
@@ -202,7 +485,7 @@ public class AwaitableHashMapTest {
     public void shouldAwaitRemoveValueInfinitely() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
         map.put(1, "A");
         map.put(2, "B");
         map.put(3, "C");
@@ -235,7 +518,7 @@ public class AwaitableHashMapTest {
     public void shouldAwaitRemoveValueWithTimeout() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
         map.put(1, "A");
         map.put(2, "B");
         map.put(3, "C");
@@ -268,7 +551,7 @@ public class AwaitableHashMapTest {
     public void shouldNotAwaitRemovedValue() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
 
         // When
         var futureValue1 = map.awaitRemove(1, 5, TimeUnit.SECONDS);
@@ -284,6 +567,74 @@ public class AwaitableHashMapTest {
         assertThat(futureValue3.getNow(null)).isEqualTo(false);
     }
 
+    @Test
+    public void shouldRemoveKeysThroughViews() {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        map.put(1, "A");
+        map.put(2, "B");
+        map.put(3, "C");
+        var futureValue1 = map.awaitRemove(1);
+        var futureValue2 = map.awaitRemove(2);
+
+        // When
+        map.keySet().remove(1);
+        map.values().removeIf("B"::equals);
+
+        // Then
+        assertThat(futureValue1.getNow(null)).isEqualTo(true);
+        assertThat(futureValue2.getNow(null)).isEqualTo(true);
+        assertThat(map.keySet()).containsExactlyInAnyOrder(3);
+        assertThat(map.values()).containsExactlyInAnyOrder("C");
+    }
+
+
+    // DELEGATED MAP
+
+
+    @Test
+    public void shouldKeepValuesInDelegatedMap() {
+
+        // Given
+        var delegatedMap = new ConcurrentHashMap<Integer, String>();
+        delegatedMap.put(1, "A");
+        var map = new AwaitableHashMap<Integer, String>(delegatedMap, Runnable::run);
+        var futureValue2 = map.await(2);
+        var futureRemove1 = map.awaitRemove(1);
+
+        // When
+        map.put(2, "B");
+        map.remove(1);
+        delegatedMap.put(3, "C");
+
+        // Then
+        assertThat(futureValue2.getNow(null)).isEqualTo("B");
+        assertThat(futureRemove1.getNow(null)).isEqualTo(true);
+        assertThat(delegatedMap).isEqualTo(Map.of(2, "B", 3, "C"));
+        assertThat(map.get(3)).isEqualTo("C");
+        assertThat(map.await(3).getNow(null)).isEqualTo("C");
+        assertThat(map.keySet()).containsExactlyInAnyOrder(2, 3);
+        assertThat(map.values()).containsExactlyInAnyOrder("B", "C");
+    }
+
+    @Test
+    public void shouldRemoveKeysOfDelegatedMapThroughViews() {
+
+        // Given
+        var delegatedMap = new HashMap<Integer, String>(Map.of(1, "A", 2, "B", 3, "C"));
+        var map = new AwaitableHashMap<Integer, String>(delegatedMap, Runnable::run);
+        var futureValue1 = map.awaitRemove(1);
+
+        // When
+        map.keySet().removeIf(key -> key < 3);
+
+        // Then
+        assertThat(futureValue1.getNow(null)).isEqualTo(true);
+        assertThat(delegatedMap).isEqualTo(Map.of(3, "C"));
+        assertThat(map.keySet()).containsExactlyInAnyOrder(3);
+    }
+
 
     // CLEAR
 
@@ -292,7 +643,7 @@ public class AwaitableHashMapTest {
     public void shouldClearValues() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
         map.put(1, "A");
         map.put(2, "B");
         map.put(3, "C");
@@ -312,7 +663,7 @@ public class AwaitableHashMapTest {
     public void shouldCompleteRemoveAwaiters() {
 
         // Given
-        var map = new AwaitableHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
         map.put(1, "A");
         map.put(2, "B");
         map.put(3, "C");
@@ -338,4 +689,369 @@ public class AwaitableHashMapTest {
         assertThat(futureValue2.getNow(null)).isEqualTo(true);
         assertThat(futureValue3.getNow(null)).isEqualTo(true);
     }
+
+
+    // COMPLETION
+
+
+    @Test
+    public void shouldCompleteAwaitersInCompletionExecutor() throws Exception {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>();
+        var putThread = Thread.currentThread();
+
+        // When
+        var futureThread = map.await(1, 5, TimeUnit.SECONDS).thenApply(v -> Thread.currentThread());
+        map.put(1, "A");
+
+        // Then
+        assertThat(futureThread.get(5, TimeUnit.SECONDS) == putThread).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldPutAllValuesAndCompleteAwaitersAtOnce() {
+
+        // Given
+        var executions = new AtomicInteger();
+        var map = new AwaitableHashMap<Integer, String>(task -> {
+            executions.incrementAndGet();
+            task.run();
+        });
+
+        // When
+        var futureValue1 = map.await(1);
+        var futureValue2 = map.await(2);
+        var futureAll = map.awaitAll(List.of(1, 2, 3));
+        var futureRemove = map.awaitRemove(1);
+        map.putAll(Map.of(1, "A", 2, "B", 3, "C"));
+
+        // Then
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(futureValue1.getNow(null)).isEqualTo("A");
+        assertThat(futureValue2.getNow(null)).isEqualTo("B");
+        assertThat(futureAll.getNow(null)).isEqualTo(Map.of(1, "A", 2, "B", 3, "C"));
+        assertThat(futureRemove.getNow(null)).isEqualTo(false);
+        assertThat(map.keySet()).containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+
+    // EVICTION
+
+
+    @Test
+    public void shouldEvictEldestKeysBySize() {
+
+        // Given
+        var evicted = new ConcurrentHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(2, null, null, evicted::put, Runnable::run);
+        map.put(1, "A");
+        map.put(2, "B");
+        var futureRemove = map.awaitRemove(1);
+
+        // When
+        map.put(1, "A2");
+        map.put(3, "C");
+
+        // Then
+        assertThat(futureRemove.isDone()).isEqualTo(false);
+        assertThat(map.keySet()).containsExactlyInAnyOrder(1, 3);
+        assertThat(evicted).isEqualTo(Map.of(2, "B"));
+
+        // When
+        map.put(4, "D");
+
+        // Then
+        assertThat(futureRemove.getNow(null)).isEqualTo(true);
+        assertThat(map.keySet()).containsExactlyInAnyOrder(3, 4);
+        assertThat(evicted).isEqualTo(Map.of(1, "A2", 2, "B"));
+    }
+
+    @Test
+    public void shouldEvictKeysByWeight() {
+
+        // Given
+        var evicted = new ConcurrentHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(5, (k, v) -> v.length(), null, evicted::put, Runnable::run);
+
+        // When
+        map.put(1, "AAA");
+        map.put(2, "BB");
+
+        // Then
+        assertThat(map.keySet()).containsExactlyInAnyOrder(1, 2);
+
+        // When
+        map.put(3, "C");
+
+        // Then
+        assertThat(map.keySet()).containsExactlyInAnyOrder(2, 3);
+        assertThat(evicted).isEqualTo(Map.of(1, "AAA"));
+    }
+
+    @Test
+    public void shouldExpireKeysAfterWrite() throws Exception {
+
+        // Given
+        var evicted = new ConcurrentHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Long.MAX_VALUE, null, Duration.ofMillis(100), evicted::put, Runnable::run);
+        map.put(1, "A");
+
+        // When
+        Thread.sleep(200);
+
+        // Then
+        assertThat(map.get(1)).isNull();
+        assertThat(evicted).hasSize(0);
+
+        // When
+        map.put(2, "B");
+
+        // Then
+        assertThat(map.keySet()).containsExactlyInAnyOrder(2);
+        assertThat(evicted).isEqualTo(Map.of(1, "A"));
+    }
+
+    @Test
+    public void shouldNotIterateExpiredKeys() throws Exception {
+
+        // Given
+        var evicted = new ConcurrentHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Long.MAX_VALUE, null, Duration.ofMillis(100), evicted::put, Runnable::run);
+        map.put(1, "A");
+
+        // When
+        Thread.sleep(200);
+
+        // Then
+        assertThat(map.keySet()).isEmpty();
+        assertThat(map.keySet().size()).isEqualTo(0);
+        assertThat(map.values()).isEmpty();
+        assertThat(evicted).hasSize(0);
+    }
+
+    @Test
+    public void shouldNotAwaitExpiredValue() throws Exception {
+
+        // Given
+        var evicted = new ConcurrentHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Long.MAX_VALUE, null, Duration.ofMillis(100), evicted::put, Runnable::run);
+        map.put(1, "A");
+        map.put(2, "B");
+        var futureRemove2 = map.awaitRemove(2);
+        Thread.sleep(200);
+
+        // When
+        var futureValue1 = map.await(1);
+        var futureValue2 = map.awaitMatch(2, "B"::equals);
+
+        // Then
+        assertThat(futureValue1.isDone()).isEqualTo(false);
+        assertThat(futureValue2.isDone()).isEqualTo(false);
+        assertThat(futureRemove2.getNow(null)).isEqualTo(true);
+        assertThat(evicted).isEqualTo(Map.of(1, "A", 2, "B"));
+
+        // When
+        map.put(1, "C");
+        map.put(2, "B");
+
+        // Then
+        assertThat(futureValue1.getNow(null)).isEqualTo("C");
+        assertThat(futureValue2.getNow(null)).isEqualTo("B");
+    }
+
+    @Test
+    public void shouldPutOverExpiredKeyAsNewKey() throws Exception {
+
+        // Given
+        var evicted = new ConcurrentHashMap<Integer, String>();
+        var map = new AwaitableHashMap<Integer, String>(Long.MAX_VALUE, null, Duration.ofMillis(100), evicted::put, Runnable::run);
+        var subscriber = new ChangeSubscriber(Long.MAX_VALUE);
+        map.changes().subscribe(subscriber);
+        subscriber.subscribed.get(5, TimeUnit.SECONDS);
+        map.put(1, "A");
+        Thread.sleep(200);
+
+        // When
+        var previousValue = map.put(1, "B");
+
+        // Then
+        subscriber.awaitChanges(3);
+        assertThat(previousValue).isNull();
+        assertThat(map.get(1)).isEqualTo("B");
+        assertThat(map.keySet().size()).isEqualTo(1);
+        assertThat(evicted).isEqualTo(Map.of(1, "A"));
+        assertThat(subscriber.changes).hasSize(3);
+        assertThat(subscriber.changes.get(0).toString()).isEqualTo("PUT(1, A, null)");
+        assertThat(subscriber.changes.get(1).toString()).isEqualTo("REMOVE(1, null, A)");
+        assertThat(subscriber.changes.get(2).toString()).isEqualTo("PUT(1, B, null)");
+    }
+
+
+    // CHANGES
+
+
+    @Test
+    public void shouldPublishChanges() throws Exception {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        var subscriber = new ChangeSubscriber(Long.MAX_VALUE);
+        map.changes().subscribe(subscriber);
+        subscriber.subscribed.get(5, TimeUnit.SECONDS);
+
+        // When
+        map.put(1, "A");
+        map.put(1, "B");
+        map.remove(1);
+        map.clear();
+
+        // Then
+        subscriber.awaitChanges(4);
+        assertThat(subscriber.changes).hasSize(4);
+        assertThat(subscriber.changes.get(0).toString()).isEqualTo("PUT(1, A, null)");
+        assertThat(subscriber.changes.get(1).toString()).isEqualTo("REPLACE(1, B, A)");
+        assertThat(subscriber.changes.get(2).toString()).isEqualTo("REMOVE(1, null, B)");
+        assertThat(subscriber.changes.get(3).toString()).isEqualTo("CLEAR(null, null, null)");
+    }
+
+    @Test
+    public void shouldPublishChangesOnDemand() throws Exception {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        var subscriber = new ChangeSubscriber(1);
+        map.changes().subscribe(subscriber);
+        subscriber.subscribed.get(5, TimeUnit.SECONDS);
+
+        // When
+        map.put(1, "A");
+        map.put(2, "B");
+        map.put(3, "C");
+        subscriber.awaitChanges(1);
+        Thread.sleep(100);
+
+        // Then
+        assertThat(subscriber.changes).hasSize(1);
+
+        // When
+        subscriber.subscribed.get().request(2);
+        subscriber.awaitChanges(3);
+
+        // Then
+        assertThat(subscriber.changes.get(0).key()).isEqualTo(1);
+        assertThat(subscriber.changes.get(1).key()).isEqualTo(2);
+        assertThat(subscriber.changes.get(2).key()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldPublishChangesOfKeyInOrderOfWrites() throws Exception {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        var subscriber = new ChangeSubscriber(Long.MAX_VALUE);
+        map.changes().subscribe(subscriber);
+        subscriber.subscribed.get(5, TimeUnit.SECONDS);
+
+        var threads = new ArrayList<Thread>();
+
+        for (var t = 0; t < 4; t++) {
+            var name = "T" + t;
+
+            // The changes fit the buffer of the subscriber
+            threads.add(new Thread(() -> {
+                for (var i = 0; i < 40; i++) {
+                    map.put(1, name + i);
+
+                    if (i % 3 == 0) {
+                        map.remove(1);
+                    }
+                }
+            }));
+        }
+
+        // When
+        threads.forEach(Thread::start);
+
+        for (var thread : threads) {
+            thread.join(5000);
+        }
+
+        // Then
+        String replayedValue = null;
+        var consistent = true;
+
+        for (var change : subscriber.changes) {
+            consistent &= (change.previousValue() == null) ? replayedValue == null : change.previousValue().equals(replayedValue);
+            replayedValue = change.value();
+        }
+
+        assertThat(subscriber.error.isDone()).isEqualTo(false);
+        assertThat(consistent).isEqualTo(true);
+        assertThat(replayedValue).isEqualTo(map.get(1));
+    }
+
+    @Test
+    public void shouldTerminateSlowSubscriber() throws Exception {
+
+        // Given
+        var map = new AwaitableHashMap<Integer, String>(Runnable::run);
+        var subscriber = new ChangeSubscriber(0);
+        map.changes().subscribe(subscriber);
+        subscriber.subscribed.get(5, TimeUnit.SECONDS);
+
+        // When
+        for (var i = 0; i <= Flow.defaultBufferSize(); i++) {
+            map.put(i, "A");
+        }
+
+        // Then
+        assertThat(subscriber.error.get(5, TimeUnit.SECONDS)).isInstanceOf(IllegalStateException.class);
+        assertThat(subscriber.changes).hasSize(0);
+    }
+
+
+    private static class ChangeSubscriber implements Flow.Subscriber<AwaitableHashMap.Change<Integer, String>> {
+
+        private final long initialDemand;
+        private final List<AwaitableHashMap.Change<Integer, String>> changes = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+        private final CompletableFuture<Throwable> error = new CompletableFuture<>();
+
+
+        ChangeSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+            subscribed.complete(subscription);
+        }
+
+        @Override
+        public void onNext(AwaitableHashMap.Change<Integer, String> change) {
+            changes.add(change);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        void awaitChanges(int count) throws InterruptedException {
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+            while (changes.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
 }
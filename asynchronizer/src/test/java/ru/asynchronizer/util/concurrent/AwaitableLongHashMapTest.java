@@ -0,0 +1,268 @@
+package ru.asynchronizer.util.concurrent;
+
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AwaitableLongHashMapTest {
+
+    // PUT
+
+
+    @Test
+    public void shouldPutValue() {
+
+        // Given
+        var map = new AwaitableLongHashMap<String>();
+
+        // When
+        map.put(0L, "A");
+        map.put(-1L, "B");
+        map.put(Long.MAX_VALUE, "C");
+
+        // Then
+        assertThat(map.get(0L)).isEqualTo("A");
+        assertThat(map.get(-1L)).isEqualTo("B");
+        assertThat(map.get(Long.MAX_VALUE)).isEqualTo("C");
+        assertThat(map.get(1L)).isNull();
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.keys().length).isEqualTo(3);
+        assertThat(map.values()).containsExactlyInAnyOrder("A", "B", "C");
+    }
+
+    @Test
+    public void shouldPutManyValues() {
+
+        // Given
+        var map = new AwaitableLongHashMap<Long>(1, 1);
+
+        // When
+
+        for (var key = 0L; key < 10_000L; key++) {
+            map.put(key, key);
+        }
+
+        for (var key = 0L; key < 10_000L; key += 2) {
+            map.remove(key);
+        }
+
+        // Then
+
+        assertThat(map.size()).isEqualTo(5_000);
+
+        for (var key = 0L; key < 10_000L; key++) {
+            assertThat(map.get(key)).isEqualTo((key % 2 == 0) ? null : key);
+        }
+    }
+
+    @Test
+    public void shouldAwaitValueInfinitely() {
+
+        // Given
+        var map = new AwaitableLongHashMap<String>();
+
+        // When
+        var futureValue1 = map.await(1L);
+        var futureValue2 = map.await(2L);
+        var futureValue3 = map.await(3L);
+
+        // Then
+        assertThat(futureValue1.isDone()).isEqualTo(false);
+        assertThat(futureValue2.isDone()).isEqualTo(false);
+        assertThat(futureValue3.isDone()).isEqualTo(false);
+        assertThat(map.size()).isEqualTo(0);
+
+        // When
+        map.put(1L, "A");
+        map.put(2L, "B");
+        map.put(3L, "C");
+
+        // Then
+        assertThat(futureValue1.getNow(null)).isEqualTo("A");
+        assertThat(futureValue2.getNow(null)).isEqualTo("B");
+        assertThat(futureValue3.getNow(null)).isEqualTo("C");
+        assertThat(map.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldAwaitValueOrGetDefaultByTimeout() throws Exception {
+
+        // Given
+        var map = new AwaitableLongHashMap<String>();
+
+        // When
+        var futureValue1 = map.awaitOrDefault(1L, "X", 1, TimeUnit.SECONDS);
+        var futureValue2 = map.awaitOrDefault(2L, "Y", 100, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(futureValue1.isDone()).isEqualTo(false);
+        assertThat(futureValue2.isDone()).isEqualTo(false);
+
+        // When
+        map.put(1L, "A");
+        futureValue2.get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(futureValue1.getNow(null)).isEqualTo("A");
+        assertThat(futureValue2.getNow(null)).isEqualTo("Y");
+    }
+
+    @Test
+    public void shouldNotAwaitExistingValue() {
+
+        // Given
+        var map = new AwaitableLongHashMap<String>();
+        map.put(1L, "A");
+
+        // When
+        var futureValue = map.await(1L);
+
+        // Then
+        assertThat(futureValue.getNow(null)).isEqualTo("A");
+    }
+
+    @Test
+    public void shouldThrowExceptionByTimeout() {
+
+        // Given
+        var map = new AwaitableLongHashMap<String>();
+
+        // When
+
+        var neverCompleted = map.await(1L, 1, TimeUnit.MILLISECONDS);
+
+        Throwable actualError = null;
+
+        try {
+            neverCompleted.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            actualError = e.getCause();
+        }
+
+        // Then
+        assertThat(neverCompleted.isDone()).isEqualTo(true);
+        assertThat(actualError).isInstanceOf(TimeoutException.class);
+
+        // When
+        map.put(1L, "A");
+
+        // Then
+        assertThat(map.get(1L)).isEqualTo("A");
+    }
+
+    @Test
+    public void shouldAwaitValuesConcurrently() throws Exception {
+
+        // Given
+        var map = new AwaitableLongHashMap<Long>();
+        var futures = new ArrayList<CompletableFuture<Long>>();
+
+        // When
+
+        for (var key = 0L; key < 1_000L; key++) {
+            futures.add(map.await(key, 5, TimeUnit.SECONDS));
+        }
+
+        var producers = new ArrayList<CompletableFuture<Void>>();
+
+        for (var i = 0; i < 4; i++) {
+            var offset = i;
+            producers.add(CompletableFuture.runAsync(() -> {
+                for (var key = (long) offset; key < 1_000L; key += 4) {
+                    map.put(key, key);
+                }
+            }));
+        }
+
+        CompletableFuture.allOf(producers.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // Then
+        for (var key = 0; key < 1_000; key++) {
+            assertThat(futures.get(key).get(5, TimeUnit.SECONDS)).isEqualTo((long) key);
+        }
+    }
+
+
+    // REMOVE
+
+
+    @Test
+    public void shouldRemoveValue() {
+
+        // Given
+        var map = new AwaitableLongHashMap<String>();
+        map.put(1L, "A");
+        map.put(2L, "B");
+
+        // When
+        var removed = map.remove(2L);
+
+        // Then
+        assertThat(removed).isEqualTo("B");
+        assertThat(map.get(1L)).isEqualTo("A");
+        assertThat(map.get(2L)).isNull();
+        assertThat(map.remove(2L)).isNull();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAwaitRemoveValue() {
+
+        // Given
+        var map = new AwaitableLongHashMap<String>();
+        map.put(1L, "A");
+
+        // When
+        var futureRemove = map.awaitRemove(1L);
+        var futureMissing = map.awaitRemove(2L);
+
+        // Then
+        assertThat(futureRemove.isDone()).isEqualTo(false);
+        assertThat(futureMissing.getNow(null)).isEqualTo(false);
+        assertThat(map.get(1L)).isEqualTo("A");
+
+        // When
+        map.put(1L, "B");
+
+        // Then
+        assertThat(futureRemove.isDone()).isEqualTo(false);
+        assertThat(map.get(1L)).isEqualTo("B");
+
+        // When
+        map.remove(1L);
+
+        // Then
+        assertThat(futureRemove.getNow(null)).isEqualTo(true);
+        assertThat(map.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldClearAndKeepAwaiters() {
+
+        // Given
+        var map = new AwaitableLongHashMap<String>();
+        map.put(1L, "A");
+        var futureRemove = map.awaitRemove(1L);
+        var futureValue = map.await(2L);
+
+        // When
+        map.clear();
+
+        // Then
+        assertThat(futureRemove.getNow(null)).isEqualTo(true);
+        assertThat(futureValue.isDone()).isEqualTo(false);
+        assertThat(map.size()).isEqualTo(0);
+
+        // When
+        map.put(2L, "B");
+
+        // Then
+        assertThat(futureValue.getNow(null)).isEqualTo("B");
+    }
+}
@@ -2,6 +2,7 @@ package ru.asynchronizer.util.concurrent;
 
 import java.time.Duration;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -256,6 +257,188 @@ public class AwaitableQueueTest {
         await(task.disposeEvent());
     }
 
+    @Test
+    public void shouldRejectTaskWhenQueueIsFull() throws Exception {
+
+        // Given
+        var executor = Executors.newSingleThreadExecutor();
+        var queue = new AwaitableQueue(1, AwaitableQueue.AdmissionPolicy.REJECT, executor);
+        var task1 = new SomeTask<>();
+        var task2 = new SomeTask<>();
+
+        try {
+
+            // When
+            var task1Future = queue.enqueue(task1);
+            var task2Future = queue.enqueue(task2);
+
+            // Then
+            assertThat(task1Future.isDone()).isEqualTo(false);
+            assertThat(task2Future.isDone()).isEqualTo(true);
+            assertThat(task2Future.isCompletedExceptionally()).isEqualTo(true);
+            awaitRejection(task2Future);
+            assertThat(queue.size()).isEqualTo(1);
+            assertThat(queue.pendingSize()).isEqualTo(0);
+
+        } finally {
+            queue.dispose();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldWaitForFreeSlotWhenQueueIsFull() throws Exception {
+
+        // Given
+        var executor = Executors.newSingleThreadExecutor();
+        var queue = new AwaitableQueue(1, AwaitableQueue.AdmissionPolicy.WAIT, executor);
+        var task1 = new SomeTask<>();
+        var task2 = new SomeTask<>();
+
+        try {
+
+            // When
+            var task1Future = queue.enqueue(task1);
+            var task2Future = queue.enqueue(task2);
+            task2.complete(2);
+
+            // Then
+            assertThat(task2.awaiterCount()).isEqualTo(1);
+            assertThat(queue.size()).isEqualTo(1);
+            assertThat(queue.pendingSize()).isEqualTo(1);
+
+            // When
+            task1.complete(1);
+            var task1Result = await(task1Future);
+            var task2Result = await(task2Future);
+
+            // Then
+            assertThat(task1Result).isEqualTo(1);
+            assertThat(task2Result).isEqualTo(2);
+            assertThat(queue.pendingSize()).isEqualTo(0);
+
+        } finally {
+            queue.dispose();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldDeferTaskStartWhenQueueIsFull() throws Exception {
+
+        // Given
+        var executor = Executors.newSingleThreadExecutor();
+        var queue = new AwaitableQueue(1, AwaitableQueue.AdmissionPolicy.DEFER, executor);
+        var task1 = new SomeTask<>();
+        var task2 = new SomeTask<>();
+
+        try {
+
+            // When
+            var task1Future = queue.enqueue(task1);
+            var task2Future = queue.enqueue(task2);
+
+            // Then
+            assertThat(task1.awaiterCount()).isEqualTo(1);
+            assertThat(task2.awaiterCount()).isEqualTo(0);
+            assertThat(queue.pendingSize()).isEqualTo(1);
+
+            // When
+            task1.complete(1);
+            await(task1Future);
+            task2.complete(2);
+            var task2Result = await(task2Future);
+
+            // Then
+            assertThat(task2.awaiterCount()).isEqualTo(1);
+            assertThat(task2Result).isEqualTo(2);
+
+        } finally {
+            queue.dispose();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCompletePendingTaskByTimeout() throws Exception {
+
+        // Given
+        var executor = Executors.newSingleThreadExecutor();
+        var queue = new AwaitableQueue(1, AwaitableQueue.AdmissionPolicy.DEFER, executor);
+        var task1 = new SomeTask<>();
+        var task2 = new SomeTask<>();
+
+        try {
+
+            // When
+            queue.enqueue(task1);
+            var task2Future = queue.enqueue(task2, Duration.ofMillis(1));
+            awaitTimeout(task2Future);
+
+            // Then
+            assertThat(task2Future.isCompletedExceptionally()).isEqualTo(true);
+            assertThat(task2.awaiterCount()).isEqualTo(0);
+            assertThat(queue.pendingSize()).isEqualTo(0);
+
+        } finally {
+            queue.dispose();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCancelPendingTasksWhenDisposing() throws Exception {
+
+        // Given
+        var executor = Executors.newSingleThreadExecutor();
+        var queue = new AwaitableQueue(1, AwaitableQueue.AdmissionPolicy.WAIT, executor);
+        var task1 = new SomeTask<>();
+        var task2 = new SomeTask<>();
+
+        try {
+
+            // When
+            var task1Future = queue.enqueue(task1);
+            var task2Future = queue.enqueue(task2);
+            queue.dispose();
+            awaitCancellation(task1Future);
+            awaitCancellation(task2Future);
+
+            // Then
+            assertThat(task1Future.isCancelled()).isEqualTo(true);
+            assertThat(task2Future.isCancelled()).isEqualTo(true);
+            assertThat(queue.size()).isEqualTo(0);
+            assertThat(queue.pendingSize()).isEqualTo(0);
+            await(task2.disposeEvent());
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldMeasureQueueLoad() throws Exception {
+
+        // Given
+        var task = new SomeTask<>();
+
+        // When
+        target.enqueue(task);
+        Thread.sleep(300);
+
+        // Then
+        assertThat(target.oldestTaskAge().toMillis()).isGreaterThanOrEqualTo(300L);
+        assertThat(target.pollCycleDuration().toMillis()).isGreaterThanOrEqualTo(50L);
+
+        // When
+        task.complete(123);
+        Thread.sleep(300);
+
+        // Then
+        assertThat(target.size()).isEqualTo(0);
+        assertThat(target.oldestTaskAge().isZero()).isEqualTo(true);
+    }
+
 
     private static <T> T await(CompletableFuture<T> future) throws Exception {
         return future.get(5, TimeUnit.SECONDS); // prevent an infinite execution of the test
@@ -277,6 +460,14 @@ public class AwaitableQueueTest {
         }
     }
 
+    private static void awaitRejection(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS); // prevent an infinite execution of the test
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+    }
+
     private static void awaitException(CompletableFuture<?> future, Throwable exception) throws Exception {
         try {
             future.get(5, TimeUnit.SECONDS); // prevent an infinite execution of the test
@@ -290,6 +481,7 @@ public class AwaitableQueueTest {
 
         private final CountDownLatch completeEvent;
         private final CompletableFuture<?> disposeEvent;
+        private final AtomicInteger awaiterCount;
         private T result;
         private Throwable exception;
         private boolean interrupt;
@@ -297,6 +489,7 @@ public class AwaitableQueueTest {
         public SomeTask() {
             this.completeEvent = new CountDownLatch(1);
             this.disposeEvent = new CompletableFuture<>();
+            this.awaiterCount = new AtomicInteger();
         }
 
         public void complete(T result) {
@@ -316,8 +509,13 @@ public class AwaitableQueueTest {
             return disposeEvent;
         }
 
+        public int awaiterCount() {
+            return awaiterCount.get();
+        }
+
         @Override
         public IAwaiter<T> getAwaiter() {
+            awaiterCount.incrementAndGet();
             return new IAwaiter<>() {
 
                 @Override
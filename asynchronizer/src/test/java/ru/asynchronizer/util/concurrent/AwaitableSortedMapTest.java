@@ -0,0 +1,206 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AwaitableSortedMapTest {
+
+    @Test
+    public void shouldAwaitCeiling() {
+
+        // Given
+        var map = new AwaitableSortedMap<Integer, String>(null, Runnable::run);
+        map.put(1, "A");
+
+        // When
+        var futureEntry1 = map.awaitCeiling(1);
+        var futureEntry2 = map.awaitCeiling(5);
+        var futureEntry3 = map.awaitCeiling(10);
+
+        // Then
+        assertThat(futureEntry1.getNow(null)).isEqualTo(Map.entry(1, "A"));
+        assertThat(futureEntry2.isDone()).isEqualTo(false);
+        assertThat(futureEntry3.isDone()).isEqualTo(false);
+
+        // When
+        map.put(3, "C");
+        map.put(7, "G");
+
+        // Then
+        assertThat(futureEntry2.getNow(null)).isEqualTo(Map.entry(7, "G"));
+        assertThat(futureEntry3.isDone()).isEqualTo(false);
+
+        // When
+        map.put(12, "L");
+
+        // Then
+        assertThat(futureEntry3.getNow(null)).isEqualTo(Map.entry(12, "L"));
+    }
+
+    @Test
+    public void shouldAwaitRange() {
+
+        // Given
+        var map = new AwaitableSortedMap<Integer, String>(null, Runnable::run);
+
+        // When
+        var futureEntry = map.awaitRange(5, 10);
+        map.put(3, "C");
+        map.put(10, "J");
+
+        // Then
+        assertThat(futureEntry.isDone()).isEqualTo(false);
+
+        // When
+        map.put(9, "I");
+
+        // Then
+        assertThat(futureEntry.getNow(null)).isEqualTo(Map.entry(9, "I"));
+        assertThat(map.keySet()).containsExactly(3, 9, 10);
+    }
+
+    @Test
+    public void shouldAwaitPrefix() {
+
+        // Given
+        var map = new AwaitableSortedMap<String, String>(null, Runnable::run);
+        map.put("a:1", "A1");
+
+        // When
+        var futureEntry1 = map.awaitPrefix("a:");
+        var futureEntry2 = map.awaitPrefix("b:");
+        map.put("b", "B");
+        map.put("c:1", "C1");
+
+        // Then
+        assertThat(futureEntry1.getNow(null)).isEqualTo(Map.entry("a:1", "A1"));
+        assertThat(futureEntry2.isDone()).isEqualTo(false);
+
+        // When
+        map.put("b:2", "B2");
+
+        // Then
+        assertThat(futureEntry2.getNow(null)).isEqualTo(Map.entry("b:2", "B2"));
+    }
+
+    @Test
+    public void shouldAwaitOverlappingRanges() {
+
+        // Given
+        var map = new AwaitableSortedMap<Integer, String>(null, Runnable::run);
+        var random = new Random(42);
+        var ranges = new ArrayList<int[]>();
+        var futureEntries = new ArrayList<CompletableFuture<Map.Entry<Integer, String>>>();
+
+        for (var i = 0; i < 500; i++) {
+            var fromKey = random.nextInt(1000);
+            var toKey = fromKey + 1 + random.nextInt(50);
+            ranges.add(new int[] { fromKey, toKey });
+            futureEntries.add(map.awaitRange(fromKey, toKey));
+        }
+
+        // When
+        var keys = new ArrayList<Integer>();
+
+        for (var i = 0; i < 100; i++) {
+            var key = random.nextInt(1100);
+            keys.add(key);
+            map.put(key, "V" + key);
+        }
+
+        // Then
+        for (var i = 0; i < ranges.size(); i++) {
+            var range = ranges.get(i);
+            Integer firstKey = null;
+
+            for (var key : keys) {
+                if (key >= range[0] && key < range[1]) {
+                    firstKey = key;
+                    break;
+                }
+            }
+
+            var expectedEntry = (firstKey != null) ? Map.entry(firstKey, "V" + firstKey) : null;
+            assertThat(futureEntries.get(i).getNow(null)).isEqualTo(expectedEntry);
+        }
+    }
+
+    @Test
+    public void shouldNotVisitRangesEndingBeforeKey() {
+
+        // Given
+        var comparisons = new AtomicInteger();
+        Comparator<Integer> comparator = (a, b) -> {
+            comparisons.incrementAndGet();
+            return Integer.compare(a, b);
+        };
+        var map = new AwaitableSortedMap<Integer, String>(comparator, Runnable::run);
+        var futureEntries = new ArrayList<CompletableFuture<Map.Entry<Integer, String>>>();
+
+        for (var i = 0; i < 10_000; i++) {
+            futureEntries.add(map.awaitRange(i, i + 1));
+        }
+
+        // When
+        comparisons.set(0);
+        map.put(20_000, "A");
+        var putComparisons = comparisons.get();
+        map.put(5_000, "B");
+
+        // Then
+        assertThat(putComparisons).isLessThan(100);
+        assertThat(futureEntries.get(5_000).getNow(null)).isEqualTo(Map.entry(5_000, "B"));
+        assertThat(futureEntries.get(4_999).isDone()).isEqualTo(false);
+        assertThat(futureEntries.get(5_001).isDone()).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldNotAwaitReplacedKey() {
+
+        // Given
+        var map = new AwaitableSortedMap<Integer, String>(null, Runnable::run);
+        map.put(1, "A");
+        var futureEntry = map.awaitRange(2, 3);
+
+        // When
+        map.put(1, "B");
+        map.remove(1);
+
+        // Then
+        assertThat(futureEntry.isDone()).isEqualTo(false);
+        assertThat(map.get(1)).isNull();
+    }
+
+    @Test
+    public void shouldThrowExceptionByTimeout() {
+
+        // Given
+        var map = new AwaitableSortedMap<Integer, String>();
+
+        // When
+
+        var neverCompleted = map.awaitCeiling(1, 1, TimeUnit.MILLISECONDS);
+
+        Throwable actualError = null;
+
+        try {
+            neverCompleted.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            actualError = e.getCause();
+        }
+
+        // Then
+        assertThat(neverCompleted.isDone()).isEqualTo(true);
+        assertThat(actualError).isInstanceOf(TimeoutException.class);
+    }
+}
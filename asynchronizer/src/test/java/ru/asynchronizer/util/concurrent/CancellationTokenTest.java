@@ -0,0 +1,198 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CancellationTokenTest {
+
+    @AfterEach
+    public void afterEach() {
+        Asynchronizer.context().setCancellationToken(null);
+    }
+
+
+    @Test
+    public void shouldInvokeCallbacks() {
+
+        // Given
+        var token = new CancellationToken();
+        var calls = new ArrayList<String>();
+
+        // When
+        token.onCancel(() -> calls.add("c1"));
+        token.onCancel(() -> calls.add("c2")).dispose();
+        var cancelled1 = token.cancel();
+        var cancelled2 = token.cancel();
+        token.onCancel(() -> calls.add("c3"));
+
+        // Then
+        assertThat(cancelled1).isEqualTo(true);
+        assertThat(cancelled2).isEqualTo(false);
+        assertThat(token.isCancelled()).isEqualTo(true);
+        assertThat(calls).containsExactly("c1", "c3");
+        assertThat(CancellationToken.NONE.cancel()).isEqualTo(false);
+        assertThat(CancellationToken.NONE.isCancelled()).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldCancelByDeadline() throws Exception {
+
+        // Given
+        var parent = new CancellationToken(Duration.ofMillis(50));
+        var child = new CancellationToken(parent, Duration.ofMinutes(1));
+        var childCancelled = new CompletableFuture<Boolean>();
+
+        // When
+        child.onCancel(() -> childCancelled.complete(true));
+
+        // Then
+        assertThat(child.remaining()).isLessThanOrEqualTo(Duration.ofMillis(50));
+        assertThat(childCancelled.get(2, TimeUnit.SECONDS)).isEqualTo(true);
+        assertThat(parent.isCancelled()).isEqualTo(true);
+    }
+
+    @Test
+    public void shouldCombineDeadlinesWithoutDeadlineOfParentOrChild() {
+
+        // Given
+        var parent = new CancellationToken();
+        var unlimitedParent = new CancellationToken(Duration.ofMinutes(1));
+
+        // When
+        var child = new CancellationToken(parent, Duration.ofSeconds(10));
+        var unlimitedChild = new CancellationToken(unlimitedParent);
+
+        // Then
+        assertThat(parent.remaining()).isNull();
+        assertThat(child.remaining()).isLessThanOrEqualTo(Duration.ofSeconds(10));
+        assertThat(child.remaining()).isGreaterThan(Duration.ofSeconds(5));
+        assertThat(unlimitedChild.remaining()).isGreaterThan(Duration.ofSeconds(50));
+
+        child.dispose();
+        unlimitedChild.dispose();
+        unlimitedParent.dispose();
+    }
+
+    @Test
+    public void shouldSkipSubmittedTasks() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var executor = factory.newSingleThreadExecutor(CancellationTokenTest.class);
+        var token = new CancellationToken();
+
+        try {
+
+            // When
+
+            context.setCancellationToken(token);
+
+            var blocker = new CompletableFuture<Void>();
+            executor.submit(() -> blocker.get());
+            var skippedTask = executor.submit(() -> "skipped");
+            var executedTask = new CompletableFuture<Boolean>();
+            executor.execute(() -> executedTask.complete(true));
+
+            token.cancel();
+            blocker.complete(null);
+
+            // Then
+
+            Throwable actualError = null;
+
+            try {
+                skippedTask.get(2, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                actualError = e.getCause();
+            }
+
+            assertThat(actualError).isInstanceOf(CancellationException.class);
+            assertThat(executedTask.get(2, TimeUnit.SECONDS)).isEqualTo(true);
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldStopAwaitableQueue() throws Exception {
+
+        // Given
+        var executor = Executors.newSingleThreadExecutor();
+        var queue = new AwaitableQueue(executor);
+        var token = new CancellationToken();
+
+        try {
+
+            // When
+            Asynchronizer.context().setCancellationToken(token);
+            var taskFuture = queue.enqueue(new AwaitableQueueTest.SomeTask<Integer>());
+            token.cancel();
+            var lateTaskFuture = queue.enqueue(new AwaitableQueueTest.SomeTask<Integer>());
+
+            // Then
+            assertThat(taskFuture.isCancelled()).isEqualTo(true);
+            assertThat(lateTaskFuture.isCompletedExceptionally()).isEqualTo(true);
+
+        } finally {
+            queue.dispose();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldStopRepeatedAttempts() throws Exception {
+
+        // Given
+        var token = new CancellationToken();
+        Asynchronizer.context().setCancellationToken(token);
+
+        // When
+        var valueFuture = RepeatedCompletableFuture.startAttempts(() -> { throw new Exception(); }, e -> { }, Duration.ofMillis(10));
+        token.cancel();
+
+        // Then
+        assertThat(valueFuture.isCompletedExceptionally()).isEqualTo(true);
+    }
+
+    @Test
+    public void shouldStopPipelineBetweenStages() throws Exception {
+
+        // Given
+        var token = new CancellationToken();
+        var stages = new ArrayList<Integer>();
+        Asynchronizer.context().setCancellationToken(token);
+
+        // When
+
+        var pipeline = AsyncPipeline
+                .run(f -> {
+                    stages.add(1);
+                    token.cancel();
+                }, Runnable::run)
+                .run((f, r) -> stages.add(2));
+
+        Throwable actualError = null;
+
+        try {
+            pipeline.toFuture().toCompletableFuture().get(2, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            actualError = e.getCause();
+        }
+
+        // Then
+        assertThat(stages).containsExactly(1);
+        assertThat(actualError).isInstanceOf(CancellationException.class);
+    }
+}
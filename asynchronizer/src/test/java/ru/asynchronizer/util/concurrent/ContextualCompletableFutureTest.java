@@ -0,0 +1,117 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContextualCompletableFutureTest {
+
+    @Test
+    public void shouldPassContextToInlineContinuation() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var future = new ContextualCompletableFuture<String>(context, Runnable::run);
+
+        // When
+
+        context.setProperty("p1", "v1");
+
+        var continuation = future
+                .thenApply(v -> v + "-" + context.getProperty("p1"))
+                .thenApply(v -> v + "-" + context.getProperty("p1"));
+
+        // Complete the future in a thread with another context
+        var thread = new Thread(() -> {
+            context.setProperty("p1", "v2");
+            future.complete("r");
+        });
+
+        thread.start();
+        thread.join(2000);
+
+        // Then
+        assertThat(continuation.get(2, TimeUnit.SECONDS)).isEqualTo("r-v1-v1");
+    }
+
+    @Test
+    public void shouldPassContextToForeignExecutor() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var foreignExecutor = Executors.newSingleThreadExecutor();
+        var future = new ContextualCompletableFuture<String>(context, Runnable::run);
+
+        try {
+
+            // When
+
+            context.setProperty("p1", "v1");
+
+            var continuation = future.thenApplyAsync(v -> v + "-" + context.getProperty("p1"), foreignExecutor);
+            var stage = new CompletableFuture<Object>();
+            future.whenCompleteAsync((v, e) -> stage.complete(context.getProperty("p1")), foreignExecutor);
+
+            future.complete("r");
+
+            // Then
+            assertThat(continuation.get(2, TimeUnit.SECONDS)).isEqualTo("r-v1");
+            assertThat(stage.get(2, TimeUnit.SECONDS)).isEqualTo("v1");
+            assertThat(continuation).isInstanceOf(ContextualCompletableFuture.class);
+
+        } finally {
+            foreignExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldPassContextToCompletionSupplier() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var foreignExecutor = Executors.newSingleThreadExecutor();
+        var future = new ContextualCompletableFuture<Object>(context, Runnable::run);
+
+        try {
+
+            // When
+            context.setProperty("p1", "v1");
+            future.completeAsync(() -> context.getProperty("p1"), foreignExecutor);
+
+            // Then
+            assertThat(future.get(2, TimeUnit.SECONDS)).isEqualTo("v1");
+
+        } finally {
+            foreignExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldRestoreCompletingThreadContext() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var future = new ContextualCompletableFuture<String>(context, Runnable::run);
+        var completingThreadProperty = new CompletableFuture<Object>();
+
+        // When
+
+        context.setProperty("p1", "v1");
+        future.thenAccept(v -> context.setProperty("p2", v));
+
+        var thread = new Thread(() -> {
+            context.setProperty("p1", "v2");
+            future.complete("r");
+            completingThreadProperty.complete(context.getProperty("p1") + "-" + context.getProperty("p2"));
+        });
+
+        thread.start();
+
+        // Then
+        assertThat(completingThreadProperty.get(2, TimeUnit.SECONDS)).isEqualTo("v2-null");
+    }
+}
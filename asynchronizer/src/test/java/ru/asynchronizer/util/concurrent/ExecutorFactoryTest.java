@@ -1,14 +1,18 @@
 package ru.asynchronizer.util.concurrent;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import lombok.*;
 
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -32,10 +36,16 @@ public class ExecutorFactoryTest {
                     new TestCase<>("Fixed, 5 threads, daemon", f -> f.newFixedThreadPool(owner, 5, true)),
                     new TestCase<>("SingleThread", f -> f.newSingleThreadExecutor(owner)),
                     new TestCase<>("SingleThread, daemon", f -> f.newSingleThreadExecutor(owner, true)),
+                    new TestCase<>("WorkStealing, 5 threads", f -> f.newWorkStealingPool(owner, 5)),
+                    new TestCase<>("WorkStealing, 5 threads, daemon", f -> f.newWorkStealingPool(owner, 5, true)),
                     new TestCase<>("Scheduled, 5 threads", f -> f.newScheduledThreadPool(owner, 5)),
                     new TestCase<>("Scheduled, 5 threads, daemon", f -> f.newScheduledThreadPool(owner, 5, true)),
                     new TestCase<>("SingleThreadScheduled", f -> f.newSingleThreadScheduledExecutor(owner)),
-                    new TestCase<>("SingleThreadScheduled, daemon", f -> f.newSingleThreadScheduledExecutor(owner, true))
+                    new TestCase<>("SingleThreadScheduled, daemon", f -> f.newSingleThreadScheduledExecutor(owner, true)),
+                    new TestCase<>("VirtualThreadPerTask", f -> f.newVirtualThreadPerTaskExecutor(owner)),
+                    new TestCase<>("VirtualThreadPool, 5 threads", f -> f.newVirtualThreadPool(owner, 5)),
+                    new TestCase<>("BoundedElastic, 5 threads", f -> f.newBoundedElasticPool(owner, 5, 100, Duration.ofSeconds(1), SaturationPolicy.REJECT)),
+                    new TestCase<>("BoundedElastic, 5 threads, daemon", f -> f.newBoundedElasticPool(owner, 5, 100, Duration.ofSeconds(1), SaturationPolicy.REJECT, true))
             );
         }
 
@@ -102,6 +112,197 @@ public class ExecutorFactoryTest {
     }
 
 
+    @Nested
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    public class VirtualExecutors {
+
+        public Iterable<TestCase<ExecutorService>> testCases() {
+            return List.of(
+                    new TestCase<>("VirtualThreadPerTask", f -> f.newVirtualThreadPerTaskExecutor(owner)),
+                    new TestCase<>("VirtualThreadPool, 5 threads", f -> f.newVirtualThreadPool(owner, 5))
+            );
+        }
+
+
+        @ParameterizedTest
+        @MethodSource("testCases")
+        public void shouldNameThreadsAfterOwner(TestCase<ExecutorService> testCase) throws Exception {
+
+            // Given
+            var executor = testCase.getExecutor();
+
+            // When
+            var threadName = executor.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(threadName.startsWith(owner.getSimpleName() + "-pool-")).isEqualTo(true);
+        }
+
+        @ParameterizedTest
+        @MethodSource("testCases")
+        public void shouldLimitConcurrency(TestCase<ExecutorService> testCase) throws Exception {
+
+            // Given
+            var executor = testCase.getExecutor();
+            var maxConcurrency = testCase.getName().contains("5 threads") ? 5 : 20;
+            var running = new AtomicInteger();
+            var maxRunning = new AtomicInteger();
+
+            // When
+
+            var tasks = new ArrayList<Future<?>>();
+
+            for (var i = 0; i < 20; i++) {
+                tasks.add(executor.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    TimeUnit.MILLISECONDS.sleep(50);
+                    running.decrementAndGet();
+                    return null;
+                }));
+            }
+
+            for (var task : tasks) {
+                task.get(5, TimeUnit.SECONDS);
+            }
+
+            // Then
+            assertThat(maxRunning.get()).isLessThanOrEqualTo(maxConcurrency);
+            assertThat(maxRunning.get()).isGreaterThan(1);
+        }
+
+    }
+
+
+    @Nested
+    public class BoundedElasticExecutors {
+
+        @Test
+        public void shouldRejectTasksWhenSaturated() throws Exception {
+
+            // Given
+            var factory = new ExecutorFactory(new AsyncContext());
+            var executor = factory.newBoundedElasticPool(owner, 1, 1, Duration.ofSeconds(1), SaturationPolicy.REJECT);
+            var release = new CountDownLatch(1);
+
+            try {
+
+                // When
+
+                var running = executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+                var queued = executor.submit(() -> { });
+
+                RejectedExecutionException rejected = null;
+
+                try {
+                    executor.submit(() -> { });
+                } catch (RejectedExecutionException e) {
+                    rejected = e;
+                }
+
+                release.countDown();
+
+                // Then
+                assertThat(rejected).isNotNull();
+                assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo(true);
+                assertThat(queued.get(5, TimeUnit.SECONDS)).isNull();
+
+            } finally {
+                release.countDown();
+                factory.disposeNow();
+            }
+        }
+
+        @Test
+        public void shouldRunTasksInCallerWhenSaturated() throws Exception {
+
+            // Given
+            var factory = new ExecutorFactory(new AsyncContext());
+            var executor = factory.newBoundedElasticPool(owner, 1, 1, Duration.ofSeconds(1), SaturationPolicy.CALLER_RUNS);
+            var release = new CountDownLatch(1);
+
+            try {
+
+                // When
+                executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+                executor.submit(() -> { });
+                var thread = executor.submit(() -> Thread.currentThread()).get(5, TimeUnit.SECONDS);
+
+                // Then
+                assertThat(thread).isSameAs(Thread.currentThread());
+
+            } finally {
+                release.countDown();
+                factory.disposeNow();
+            }
+        }
+
+        @Test
+        public void shouldKeepCallerContextWhenRunningInCaller() throws Exception {
+
+            // Given
+            var context = new AsyncContext();
+            var factory = new ExecutorFactory(context);
+            var executor = factory.newBoundedElasticPool(owner, 1, 1, Duration.ofSeconds(1), SaturationPolicy.CALLER_RUNS);
+            var release = new CountDownLatch(1);
+            context.setProperty("p1", "v1");
+
+            try {
+
+                // When
+
+                executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+                executor.submit(() -> { });
+
+                var taskValue = executor.submit(() -> {
+                    var value = context.getProperty("p1");
+                    context.setProperty("p1", "v2");
+                    context.setProperty("p2", "v2");
+                    return value;
+                }).get(5, TimeUnit.SECONDS);
+
+                // Then
+                assertThat(taskValue).isEqualTo("v1");
+                assertThat(context.getProperty("p1")).isEqualTo("v1");
+                assertThat(context.getProperty("p2")).isNull();
+
+            } finally {
+                release.countDown();
+                factory.disposeNow();
+            }
+        }
+
+        @Test
+        public void shouldRejectTasksInCallerAfterShutdown() throws Exception {
+
+            // Given
+            var factory = new ExecutorFactory(new AsyncContext());
+            var executor = factory.newBoundedElasticPool(owner, 1, 1, Duration.ofSeconds(1), SaturationPolicy.CALLER_RUNS);
+
+            try {
+
+                // When
+
+                executor.shutdown();
+
+                RejectedExecutionException rejected = null;
+
+                try {
+                    executor.submit(() -> { });
+                } catch (RejectedExecutionException e) {
+                    rejected = e;
+                }
+
+                // Then
+                assertThat(rejected).isNotNull();
+
+            } finally {
+                factory.disposeNow();
+            }
+        }
+
+    }
+
+
     @Nested
     @TestInstance(TestInstance.Lifecycle.PER_CLASS)
     public class MainExecutors {
@@ -111,6 +312,8 @@ public class ExecutorFactoryTest {
                     new TestCase<>("Cached", f -> f.newCachedThreadPool(owner, false)),
                     new TestCase<>("Fixed, 5 threads", f -> f.newFixedThreadPool(owner, 5, false)),
                     new TestCase<>("SingleThread", f -> f.newSingleThreadExecutor(owner, false)),
+                    new TestCase<>("WorkStealing, 5 threads", f -> f.newWorkStealingPool(owner, 5, false)),
+                    new TestCase<>("BoundedElastic, 5 threads", f -> f.newBoundedElasticPool(owner, 5, 100, Duration.ofSeconds(1), SaturationPolicy.REJECT, false)),
                     new TestCase<>("Scheduled, 5 threads", f -> f.newScheduledThreadPool(owner, 5, false)),
                     new TestCase<>("SingleThreadScheduled", f -> f.newSingleThreadScheduledExecutor(owner, false))
             );
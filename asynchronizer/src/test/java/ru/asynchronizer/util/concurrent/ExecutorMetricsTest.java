@@ -0,0 +1,207 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExecutorMetricsTest {
+
+    private static final Class<?> owner = ExecutorMetricsTest.class;
+
+
+    @Test
+    public void shouldCountTasks() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = factory.newFixedThreadPool(owner, 2);
+        var metrics = getMetrics(executor);
+
+        try {
+
+            // When
+            executor.submit(() -> {
+                Thread.sleep(10);
+                return null;
+            }).get(5, TimeUnit.SECONDS);
+            executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+            ExecutionException error = null;
+
+            try {
+                executor.submit(() -> { throw new IllegalStateException(); }).get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                error = e;
+            }
+
+            // Then
+            assertThat(error).isNotNull();
+            assertThat(metrics.getOwner()).isEqualTo(owner.getName());
+            assertThat(metrics.getSubmittedTasks()).isEqualTo(3L);
+            assertThat(metrics.getCompletedTasks()).isEqualTo(2L);
+            assertThat(metrics.getFailedTasks()).isEqualTo(1L);
+            assertThat(metrics.getRejectedTasks()).isEqualTo(0L);
+            assertThat(metrics.getActiveThreads()).isEqualTo(0);
+            assertThat(metrics.getRunTime99thPercentileMicros()).isGreaterThan(10_000L);
+            assertThat(sum(metrics.getRunTimeHistogram())).isEqualTo(3L);
+            assertThat(sum(metrics.getQueueTimeHistogram())).isEqualTo(3L);
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldCountRejectedTasks() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = factory.newBoundedElasticPool(owner, 1, 1, Duration.ofSeconds(1), SaturationPolicy.REJECT);
+        var metrics = getMetrics(executor);
+        var release = new CountDownLatch(1);
+
+        try {
+
+            // When
+            executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+            executor.submit(() -> { });
+
+            RejectedExecutionException rejected = null;
+
+            try {
+                executor.submit(() -> { });
+            } catch (RejectedExecutionException e) {
+                rejected = e;
+            }
+
+            var queueSize = metrics.getQueueSize();
+            release.countDown();
+
+            // Then
+            assertThat(rejected).isNotNull();
+            assertThat(queueSize).isEqualTo(1L);
+            assertThat(metrics.getRejectedTasks()).isEqualTo(1L);
+            assertThat(metrics.getSubmittedTasks()).isEqualTo(3L);
+
+        } finally {
+            release.countDown();
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldReportPoolOfSingleThreadExecutors() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = factory.newSingleThreadExecutor(owner);
+        var scheduledExecutor = factory.newSingleThreadScheduledExecutor(owner);
+        var metrics = getMetrics(executor);
+        var scheduledMetrics = getMetrics(scheduledExecutor);
+        var started = new CountDownLatch(2);
+        var release = new CountDownLatch(1);
+
+        try {
+
+            // When
+            executor.submit(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            });
+            executor.submit(() -> { });
+            executor.submit(() -> { });
+            scheduledExecutor.submit(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            });
+            scheduledExecutor.schedule(() -> { }, 1, TimeUnit.MINUTES);
+            started.await(5, TimeUnit.SECONDS);
+
+            var poolSize = metrics.getPoolSize();
+            var queueSize = metrics.getQueueSize();
+            var scheduledPoolSize = scheduledMetrics.getPoolSize();
+            var scheduledQueueSize = scheduledMetrics.getQueueSize();
+            release.countDown();
+
+            // Then
+            assertThat(poolSize).isEqualTo(1);
+            assertThat(queueSize).isEqualTo(2L);
+            assertThat(scheduledPoolSize).isEqualTo(1);
+            assertThat(scheduledQueueSize).isEqualTo(1L);
+
+        } finally {
+            release.countDown();
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldNotCountScheduleDelayAsQueueTime() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = factory.newScheduledThreadPool(owner, 1);
+        var metrics = ((AsyncContextScheduledExecutorService) executor).metrics();
+        var delay = Duration.ofMillis(300);
+
+        try {
+
+            // When
+            executor.schedule(() -> true, delay.toMillis(), TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+            executor.schedule(() -> { }, delay.toMillis(), TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(metrics.queueTimeTotal()).isLessThan(delay.toNanos());
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldUnregisterMetricsOnShutdown() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = factory.newScheduledThreadPool(owner, 1);
+        var name = new ObjectName(((AsyncContextScheduledExecutorService) executor).metrics().objectName());
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var registered = server.isRegistered(name);
+
+        // When
+        executor.shutdown();
+
+        // Then
+        assertThat(registered).isEqualTo(true);
+        assertThat(server.isRegistered(name)).isEqualTo(false);
+    }
+
+
+    private static IExecutorMetrics getMetrics(ExecutorService executor) throws Exception {
+        var metrics = (executor instanceof AsyncContextScheduledExecutorService)
+                ? ((AsyncContextScheduledExecutorService) executor).metrics()
+                : ((AsyncContextExecutorService) executor).metrics();
+        var name = new ObjectName(metrics.objectName());
+        return JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), name, IExecutorMetrics.class);
+    }
+
+    private static long sum(long[] values) {
+        var sum = 0L;
+
+        for (var value : values) {
+            sum += value;
+        }
+
+        return sum;
+    }
+}
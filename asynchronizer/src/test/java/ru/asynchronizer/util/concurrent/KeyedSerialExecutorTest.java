@@ -0,0 +1,190 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyedSerialExecutorTest {
+
+    private static final Class<?> owner = KeyedSerialExecutorTest.class;
+
+
+    @Test
+    public void shouldRunTasksOfKeyInOrder() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = new KeyedSerialExecutor<Integer>(factory.newFixedThreadPool(owner, 8));
+        var keyCount = 4;
+        var taskCount = 1000;
+        var results = new ConcurrentHashMap<Integer, List<Integer>>();
+        var running = new ConcurrentHashMap<Integer, AtomicInteger>();
+        var overlapped = new AtomicBoolean();
+        var done = new CountDownLatch(keyCount * taskCount);
+
+        try {
+
+            // When
+            for (var i = 0; i < taskCount; i++) {
+                for (var key = 0; key < keyCount; key++) {
+                    var k = key;
+                    var n = i;
+
+                    executor.execute(k, () -> {
+                        if (running.computeIfAbsent(k, x -> new AtomicInteger()).incrementAndGet() > 1) {
+                            overlapped.set(true);
+                        }
+
+                        results.computeIfAbsent(k, x -> new ArrayList<>()).add(n);
+                        running.get(k).decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            }
+
+            var completed = done.await(10, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(completed).isEqualTo(true);
+            assertThat(overlapped.get()).isEqualTo(false);
+
+            for (var key = 0; key < keyCount; key++) {
+                var expected = new ArrayList<Integer>();
+
+                for (var i = 0; i < taskCount; i++) {
+                    expected.add(i);
+                }
+
+                assertThat(results.get(key)).isEqualTo(expected);
+            }
+
+            assertThat(awaitActiveKeys(executor, 0)).isEqualTo(true);
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldRunDifferentKeysInParallel() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = new KeyedSerialExecutor<String>(factory.newFixedThreadPool(owner, 2));
+        var release = new CountDownLatch(1);
+        var done = new CountDownLatch(1);
+
+        try {
+
+            // When
+            executor.execute("a", () -> await(release));
+            executor.forKey("b").execute(done::countDown);
+
+            var completed = done.await(5, TimeUnit.SECONDS);
+            var onlyBlockedKeyActive = awaitActiveKeys(executor, 1);
+            release.countDown();
+
+            // Then
+            assertThat(completed).isEqualTo(true);
+            assertThat(onlyBlockedKeyActive).isEqualTo(true);
+            assertThat(awaitActiveKeys(executor, 0)).isEqualTo(true);
+
+        } finally {
+            release.countDown();
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldRunTasksInContextOfCaller() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var executor = new KeyedSerialExecutor<String>(context, factory.newFixedThreadPool(owner, 1));
+        var release = new CountDownLatch(1);
+        var done = new CountDownLatch(2);
+        var users = new CopyOnWriteArrayList<Object>();
+
+        try {
+
+            // When
+            executor.execute("k", () -> {
+                await(release);
+                users.add(context.getProperty("user"));
+                done.countDown();
+            });
+
+            context.setProperty("user", "u1");
+            executor.execute("k", () -> {
+                users.add(context.getProperty("user"));
+                done.countDown();
+            });
+
+            release.countDown();
+            var completed = done.await(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(completed).isEqualTo(true);
+            assertThat(users.size()).isEqualTo(2);
+            assertThat(users.get(0)).isNull();
+            assertThat(users.get(1)).isEqualTo("u1");
+
+        } finally {
+            release.countDown();
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldContinueAfterFailedTask() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = new KeyedSerialExecutor<String>(factory.newFixedThreadPool(owner, 1));
+        var done = new CountDownLatch(1);
+
+        try {
+
+            // When
+            executor.execute("k", () -> { throw new IllegalStateException(); });
+            executor.execute("k", done::countDown);
+
+            var completed = done.await(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(completed).isEqualTo(true);
+            assertThat(awaitActiveKeys(executor, 0)).isEqualTo(true);
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+
+    private static boolean awaitActiveKeys(KeyedSerialExecutor<?> executor, int expected) throws InterruptedException {
+        // The chain is removed right after its last task
+        for (var i = 0; i < 100 && executor.activeKeys() != expected; i++) {
+            Thread.sleep(10);
+        }
+
+        return executor.activeKeys() == expected;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelStreamUtilTest {
+
+    private static final Class<?> owner = ParallelStreamUtilTest.class;
+
+
+    @Test
+    public void shouldPassContextToParallelStream() {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var pool = factory.newWorkStealingPool(owner, 4);
+        var threads = ConcurrentHashMap.<Thread>newKeySet();
+
+        try {
+
+            // When
+
+            context.setProperty("p1", "v1");
+
+            var properties = ParallelStreamUtil.invoke(pool, IntStream.range(0, 10_000).boxed(), s -> s
+                    .map(i -> {
+                        threads.add(Thread.currentThread());
+                        return context.getProperty("p1");
+                    })
+                    .collect(Collectors.toSet()), context);
+
+            // Then
+            assertThat(properties).isEqualTo(Set.of("v1"));
+            assertThat(threads.stream().allMatch(t -> t.getName().startsWith(owner.getSimpleName()))).isEqualTo(true);
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldRunPipelineInWorkerOfSamePool() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var pool = factory.newWorkStealingPool(owner, 1);
+
+        try {
+
+            // When
+
+            context.setProperty("p1", "v1");
+
+            var sameThread = pool.submit(() -> {
+                var workerThread = Thread.currentThread();
+                var pipelineThread = ParallelStreamUtil.invoke(pool, IntStream.range(0, 100).boxed(), s -> {
+                    s.forEach(i -> { });
+                    return Thread.currentThread();
+                }, context);
+                return workerThread == pipelineThread;
+            }).get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(sameThread).isEqualTo(true);
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldPassContextToForkedSubtasks() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var pool = factory.newWorkStealingPool(owner, 4);
+
+        try {
+
+            // When
+
+            context.setProperty("p1", "v1");
+
+            var properties = pool.submit(() -> new CollectPropertyTask(context, 0, 10_000).invoke()).get();
+
+            // Then
+            assertThat(properties).isEqualTo(Set.of("v1"));
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+
+    private static class CollectPropertyTask extends AsyncContextRecursiveTask<Set<Object>> {
+
+        private final IAsyncContext context;
+        private final int from;
+        private final int to;
+
+
+        CollectPropertyTask(IAsyncContext context, int from, int to) {
+            super(context);
+            this.context = context;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        @Override
+        protected Set<Object> compute() {
+            if (to - from <= 100) {
+                var result = ConcurrentHashMap.newKeySet();
+                result.add(String.valueOf(context.getProperty("p1")));
+                return result;
+            }
+
+            var middle = (from + to) / 2;
+            var left = new CollectPropertyTask(context, from, middle);
+            left.fork();
+
+            var result = new CollectPropertyTask(context, middle, to).compute();
+            result.addAll(left.join());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpanBufferTest {
+
+    @Test
+    public void shouldGrowUpToCapacity() {
+
+        // Given
+        var buffer = new SpanBuffer(Thread.currentThread(), 64);
+        var spans = new ArrayList<Span>();
+
+        for (var i = 0; i < 10; i++) {
+            spans.add(new Span("span" + i, Span.Kind.OPERATION, i));
+        }
+
+        var drained = new ArrayList<Span>();
+
+        // When
+        var added = 0;
+
+        for (var i = 0; i < 10; i++) {
+            if (buffer.add(spans.get(i))) {
+                added++;
+            }
+        }
+
+        buffer.drainTo(drained);
+
+        for (var i = 0; i < 100; i++) {
+            if (buffer.add(spans.get(i % spans.size()))) {
+                added++;
+            }
+        }
+
+        buffer.drainTo(drained);
+
+        // Then
+        assertThat(added).isEqualTo(74);
+        assertThat(drained).hasSize(74);
+
+        for (var i = 0; i < drained.size(); i++) {
+            assertThat(drained.get(i)).isSameAs(spans.get((i < 10) ? i : (i - 10) % spans.size()));
+        }
+    }
+}
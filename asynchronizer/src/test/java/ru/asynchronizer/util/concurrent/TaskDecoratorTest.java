@@ -0,0 +1,208 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskDecoratorTest {
+
+    private static final Class<?> owner = TaskDecoratorTest.class;
+
+
+    @Test
+    public void shouldApplyDecoratorsInOrder() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var executor = factory.newFixedThreadPool(owner, 1);
+        var events = new CopyOnWriteArrayList<String>();
+
+        factory.addTaskDecorator(new RecordingDecorator("d1", context, events));
+        factory.addTaskDecorator(new RecordingDecorator("d2", context, events));
+
+        try {
+
+            // When
+            context.setProperty("user", "u1");
+            executor.submit(() -> events.add("task")).get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(events).isEqualTo(List.of(
+                    "d1:submit", "d2:submit",
+                    "d1:before:u1", "d2:before:u1",
+                    "task",
+                    "d2:after:null", "d1:after:null"));
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldPassTaskErrorToDecorator() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = factory.newFixedThreadPool(owner, 1);
+        var error = new AtomicReference<Throwable>();
+        var failure = new IllegalStateException();
+
+        factory.addTaskDecorator(new ITaskDecorator() {
+
+            @Override
+            public void afterRun(Object state, Throwable e) {
+                error.set(e);
+            }
+        });
+
+        try {
+
+            // When
+            ExecutionException result = null;
+
+            try {
+                executor.submit(() -> { throw failure; }).get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                result = e;
+            }
+
+            // Then
+            assertThat(result).isNotNull();
+            assertThat(error.get()).isSameAs(failure);
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldNotifyDecoratorsOfSkippedTask() throws Exception {
+
+        // Given
+        var context = new AsyncContext();
+        var factory = new ExecutorFactory(context);
+        var executor = factory.newSingleThreadExecutor(owner);
+        var metrics = ((AsyncContextExecutorService) executor).metrics();
+        var events = new CopyOnWriteArrayList<String>();
+        var blocker = new CountDownLatch(1);
+        var token = new CancellationToken();
+
+        try {
+
+            // When
+            executor.submit(() -> blocker.await(5, TimeUnit.SECONDS));
+            factory.addTaskDecorator(new RecordingDecorator("d1", context, events));
+            context.setCancellationToken(token);
+            var skippedTask = executor.submit(() -> events.add("task"));
+            token.cancel();
+            blocker.countDown();
+
+            Throwable error = null;
+
+            try {
+                skippedTask.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                error = e.getCause();
+            }
+
+            // Then
+            assertThat(error).isInstanceOf(CancellationException.class);
+            assertThat(events).isEqualTo(List.of("d1:submit", "d1:after:" + error));
+            assertThat(metrics.getSubmittedTasks()).isEqualTo(2L);
+            assertThat(metrics.getCompletedTasks()).isEqualTo(1L);
+            assertThat(metrics.getFailedTasks()).isEqualTo(1L);
+
+        } finally {
+            blocker.countDown();
+            factory.disposeNow();
+        }
+    }
+
+    @Test
+    public void shouldSubmitPeriodicTaskOnce() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = factory.newSingleThreadScheduledExecutor(owner);
+        var submits = new AtomicInteger();
+        var runs = new AtomicInteger();
+        var done = new CountDownLatch(3);
+
+        var decorator = new ITaskDecorator() {
+
+            @Override
+            public Object onSubmit(Object task) {
+                submits.incrementAndGet();
+                return null;
+            }
+
+            @Override
+            public void beforeRun(Object state) {
+                runs.incrementAndGet();
+            }
+        };
+
+        factory.addTaskDecorator(decorator);
+
+        try {
+
+            // When
+            var future = executor.scheduleAtFixedRate(done::countDown, 0, 10, TimeUnit.MILLISECONDS);
+            var completed = done.await(5, TimeUnit.SECONDS);
+            future.cancel(false);
+
+            factory.removeTaskDecorator(decorator);
+            executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(completed).isEqualTo(true);
+            assertThat(submits.get()).isEqualTo(1);
+            assertThat(runs.get()).isGreaterThanOrEqualTo(3);
+
+        } finally {
+            factory.disposeNow();
+        }
+    }
+
+
+    private static final class RecordingDecorator implements ITaskDecorator {
+
+        private final String name;
+        private final IAsyncContext context;
+        private final List<String> events;
+
+
+        RecordingDecorator(String name, IAsyncContext context, List<String> events) {
+            this.name = name;
+            this.context = context;
+            this.events = events;
+        }
+
+
+        @Override
+        public Object onSubmit(Object task) {
+            events.add(name + ":submit");
+            return name;
+        }
+
+        @Override
+        public void beforeRun(Object state) {
+            events.add(state + ":before:" + context.getProperty("user"));
+        }
+
+        @Override
+        public void afterRun(Object state, Throwable error) {
+            events.add(state + ":after:" + error);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ru.asynchronizer.util.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThreadCountControllerTest {
+
+    private static final Class<?> owner = ThreadCountControllerTest.class;
+
+
+    @Test
+    public void shouldGrowWhileThroughputImproves() {
+
+        // Given
+        var pool = newPool(1);
+        var controller = newController(pool, 1, 3);
+
+        try {
+
+            // When
+            var size1 = controller.decide(100, 5000, 10, 0.5);
+            var size2 = controller.decide(150, 5000, 10, 0.5);
+            var size3 = controller.decide(200, 5000, 10, 0.5);
+
+            // Then
+            assertThat(size1).isEqualTo(2);
+            assertThat(size2).isEqualTo(3);
+            assertThat(size3).isEqualTo(3);
+            assertThat(pool.getCorePoolSize()).isEqualTo(3);
+            assertThat(pool.getMaximumPoolSize()).isEqualTo(3);
+            assertThat(controller.getDecisionCount()).isEqualTo(2L);
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldReverseWhenThroughputDrops() {
+
+        // Given
+        var pool = newPool(1);
+        var controller = newController(pool, 1, 8);
+
+        controller.decide(100, 5000, 10, 0.5);
+        controller.decide(150, 5000, 10, 0.5);
+
+        try {
+
+            // When
+            var size1 = controller.decide(100, 5000, 10, 0.5);
+            var size2 = controller.decide(160, 5000, 10, 0.5);
+
+            // Then
+            assertThat(size1).isEqualTo(2);
+            assertThat(size2).isEqualTo(1);
+            assertThat(controller.getLastDecision()).contains("2 -> 1");
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldShrinkWithoutBacklog() {
+
+        // Given
+        var pool = newPool(1);
+        var controller = newController(pool, 1, 8);
+
+        controller.decide(100, 5000, 10, 0.5);
+        controller.decide(150, 5000, 10, 0.5);
+
+        try {
+
+            // When
+            var size1 = controller.decide(50, 0, 0, 0.1);
+            var size2 = controller.decide(50, 0, 0, 0.1);
+            var size3 = controller.decide(50, 0, 0, 0.1);
+            var size4 = controller.decide(50, 5000, 10, 0.5);
+
+            // Then
+            assertThat(size1).isEqualTo(2);
+            assertThat(size2).isEqualTo(1);
+            assertThat(size3).isEqualTo(1);
+            assertThat(size4).isEqualTo(2);
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotGrowWhenCpuSaturated() {
+
+        // Given
+        var pool = newPool(2);
+        var controller = newController(pool, 1, 8);
+
+        try {
+
+            // When
+            var size1 = controller.decide(100, 5000, 10, 0.95);
+            var size2 = controller.decide(50, 5000, 10, 0.95);
+
+            // Then
+            assertThat(size1).isEqualTo(2);
+            assertThat(size2).isEqualTo(1);
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldPublishControllerOfAdaptivePool() throws Exception {
+
+        // Given
+        var factory = new ExecutorFactory(new AsyncContext());
+        var executor = factory.newPriorityAdaptiveThreadPool(owner, 2, 4);
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var names = server.queryNames(new ObjectName("ru.asynchronizer:type=ThreadCountController,owner=" + owner.getName() + ",*"), null);
+
+        try {
+
+            // When
+            var result = executor.submit(() -> "done").get(5, TimeUnit.SECONDS);
+            var controller = JMX.newMXBeanProxy(server, names.iterator().next(), IThreadCountController.class);
+
+            // Then
+            assertThat(result).isEqualTo("done");
+            assertThat(names.size()).isEqualTo(1);
+            assertThat(controller.getMinPoolSize()).isEqualTo(2);
+            assertThat(controller.getMaxPoolSize()).isEqualTo(4);
+            assertThat(controller.getPoolSize()).isEqualTo(2);
+
+        } finally {
+            factory.disposeNow();
+        }
+
+        assertThat(server.isRegistered(names.iterator().next())).isEqualTo(false);
+    }
+
+
+    private static ThreadPoolExecutor newPool(int poolSize) {
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    private static ThreadCountController newController(ThreadPoolExecutor pool, int minPoolSize, int maxPoolSize) {
+        return new ThreadCountController(owner, 1, pool, new ExecutorMetrics(owner, 1, pool), minPoolSize, maxPoolSize);
+    }
+}